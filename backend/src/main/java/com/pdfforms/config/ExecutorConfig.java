@@ -0,0 +1,124 @@
+package com.pdfforms.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Pools de threads dédiés aux traitements PDF en arrière-plan.
+ * Les files sont bornées : une tâche refusée lève RejectedExecutionException.
+ */
+@Configuration
+public class ExecutorConfig {
+
+    @Bean
+    public ThreadPoolTaskExecutor flattenExecutor(
+            @Value("${pdf-forms.flatten.threads:2}") int threads,
+            @Value("${pdf-forms.flatten.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("flatten-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor renderExecutor(
+            @Value("${pdf-forms.render.threads:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") int threads,
+            @Value("${pdf-forms.render.queue-capacity:200}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("render-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        return executor;
+    }
+
+    /**
+     * Pool d'écriture des flux SSE (WorkflowEventBus) : un thread par abonné en cours d'écriture, créé
+     * à la demande (pas de file). Un client lent n'occupe que son thread ; au-delà du maximum, ses
+     * événements restent dans sa file et l'écriture est relancée à l'événement suivant.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor eventsExecutor(
+            @Value("${pdf-forms.events.writer-threads:32}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("workflow-events-");
+        executor.setCorePoolSize(Math.min(2, threads));
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(0);
+        return executor;
+    }
+
+    /**
+     * Pool d'écriture des réponses NDJSON de signature en lot (BatchSigningService) : les résultats y
+     * sont écrits, une tâche à la fois par lot, pour que les threads de signature ne bloquent jamais
+     * sur la connexion d'un client lent.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor batchWriterExecutor(
+            @Value("${pdf-forms.signing.batch-writer-threads:8}") int threads,
+            @Value("${pdf-forms.signing.batch-writer-queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("batch-writer-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        return executor;
+    }
+
+    /**
+     * Thread de la migration des champs embarqués (FieldMigration). Une seule migration à la fois ;
+     * à l'arrêt, le thread est interrompu sans attendre la fin : la migration reprendra au démarrage.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor migrationExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("field-migration-");
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.setAwaitTerminationSeconds(10);
+        return executor;
+    }
+
+    /**
+     * Pool de chargement du cache hors tas des PDFs (PdfBufferCache) : lectures du blob store, hors des
+     * threads de requête. File pleine : le PDF n'est simplement pas mis en cache cette fois.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor pdfCacheExecutor(
+            @Value("${pdf-forms.pdf-cache.load-threads:2}") int threads,
+            @Value("${pdf-forms.pdf-cache.load-queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("pdf-cache-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        return executor;
+    }
+
+    /**
+     * Pool des signatures (fill-and-sign), dimensionné au nombre de cœurs : le travail est CPU-bound.
+     * La profondeur de file est bornée en amont par SigningJobService.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor signingExecutor(
+            @Value("${pdf-forms.signing.threads:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") int threads,
+            @Value("${pdf-forms.signing.max-pending:200}") int maxPending) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("signing-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        // Au plus une tâche planifiée par signature en attente : la file suffit toujours.
+        executor.setQueueCapacity(maxPending);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        return executor;
+    }
+}
@@ -0,0 +1,112 @@
+package com.pdfforms.config;
+
+import com.pdfforms.repository.DocumentRepository;
+import com.pdfforms.service.AdmissionControl;
+import com.pdfforms.service.FieldMigration;
+import com.pdfforms.service.FlattenPipeline;
+import com.pdfforms.service.MetadataCache;
+import com.pdfforms.service.PdfAnalysisService;
+import com.pdfforms.service.PdfBufferCache;
+import com.pdfforms.service.PdfMemoryBudget;
+import com.pdfforms.service.SigningJobService;
+import com.pdfforms.service.WorkflowEventBus;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Jauges des files et opérations en cours, exposées sur /actuator/prometheus.
+ * Les timers et distributions des traitements PDF sont enregistrés par PdfMetrics.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder pdfFormsGauges(DocumentRepository documentRepository,
+                                      FlattenPipeline flattenPipeline,
+                                      SigningJobService signingJobService,
+                                      AdmissionControl admissionControl,
+                                      PdfMemoryBudget memoryBudget,
+                                      WorkflowEventBus eventBus,
+                                      MetadataCache metadataCache,
+                                      PdfBufferCache pdfBufferCache,
+                                      PdfAnalysisService pdfAnalysisService,
+                                      FieldMigration fieldMigration) {
+        return registry -> {
+            // Documents dont le snapshot aplati est en retard sur le master (une requête count par scrape)
+            Gauge.builder("pdfforms.flatten.stale", documentRepository, DocumentRepository::countByFlattenedStaleTrue)
+                    .description("Documents à ré-aplatir")
+                    .register(registry);
+            Gauge.builder("pdfforms.flatten.in-flight", flattenPipeline, FlattenPipeline::inFlightCount)
+                    .description("Aplatissements planifiés ou en cours")
+                    .register(registry);
+            Gauge.builder("pdfforms.signing.pending", signingJobService, SigningJobService::pendingCount)
+                    .description("Signatures en attente ou en cours")
+                    .register(registry);
+            Gauge.builder("pdfforms.pdfbox.memory.reserved", memoryBudget, PdfMemoryBudget::reservedBytes)
+                    .description("Mémoire réservée par les documents PDFBox ouverts")
+                    .baseUnit("bytes")
+                    .register(registry);
+            Gauge.builder("pdfforms.fields.migration.complete", fieldMigration, m -> m.isComplete() ? 1 : 0)
+                    .description("Migration des champs embarqués terminée (1) ou encore à faire (0)")
+                    .register(registry);
+            Gauge.builder("pdfforms.events.subscribers", eventBus, WorkflowEventBus::subscriberCount)
+                    .description("Tableaux de bord abonnés aux événements des workflows")
+                    .register(registry);
+
+            // Taux de hits : rate(hit) / rate(hit + miss) côté Prometheus
+            for (MetadataCache.Region region : MetadataCache.Region.values()) {
+                String tag = region.key();
+                FunctionCounter.builder("pdfforms.cache.gets", metadataCache, c -> c.hits(region))
+                        .tag("cache", tag)
+                        .tag("result", "hit")
+                        .register(registry);
+                FunctionCounter.builder("pdfforms.cache.gets", metadataCache, c -> c.misses(region))
+                        .tag("cache", tag)
+                        .tag("result", "miss")
+                        .register(registry);
+                Gauge.builder("pdfforms.cache.size", metadataCache, c -> c.size(region))
+                        .tag("cache", tag)
+                        .register(registry);
+            }
+            FunctionCounter.builder("pdfforms.cache.gets", pdfBufferCache, PdfBufferCache::hits)
+                    .tag("cache", "pdf-bytes")
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("pdfforms.cache.gets", pdfBufferCache, PdfBufferCache::misses)
+                    .tag("cache", "pdf-bytes")
+                    .tag("result", "miss")
+                    .register(registry);
+            FunctionCounter.builder("pdfforms.cache.gets", pdfAnalysisService, PdfAnalysisService::hits)
+                    .tag("cache", "analyze-pdf")
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("pdfforms.cache.gets", pdfAnalysisService, PdfAnalysisService::misses)
+                    .tag("cache", "analyze-pdf")
+                    .tag("result", "miss")
+                    .register(registry);
+            Gauge.builder("pdfforms.cache.size", pdfAnalysisService, PdfAnalysisService::size)
+                    .tag("cache", "analyze-pdf")
+                    .register(registry);
+            Gauge.builder("pdfforms.pdf-cache.bytes", pdfBufferCache, PdfBufferCache::bytes)
+                    .description("Mémoire hors tas occupée par le cache des PDFs")
+                    .baseUnit("bytes")
+                    .register(registry);
+
+            for (AdmissionControl.Operation operation : AdmissionControl.Operation.values()) {
+                String tag = operation.key();
+                Gauge.builder("pdfforms.admission.in-flight", admissionControl, a -> a.inFlight(operation))
+                        .tag("operation", tag)
+                        .register(registry);
+                Gauge.builder("pdfforms.admission.waiting", admissionControl, a -> a.waiting(operation))
+                        .tag("operation", tag)
+                        .register(registry);
+                Gauge.builder("pdfforms.admission.limit", admissionControl, a -> a.limit(operation))
+                        .tag("operation", tag)
+                        .register(registry);
+            }
+        };
+    }
+}
@@ -0,0 +1,13 @@
+package com.pdfforms.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Active les tâches périodiques (@Scheduled) : purge du cache disque des rendus, des uploads expirés,
+ * relance de la migration des champs embarqués.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
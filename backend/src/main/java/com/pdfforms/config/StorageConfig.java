@@ -0,0 +1,20 @@
+package com.pdfforms.config;
+
+import com.mongodb.client.gridfs.GridFSBucket;
+import com.mongodb.client.gridfs.GridFSBuckets;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+
+@Configuration
+public class StorageConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "pdf-forms.storage.type", havingValue = "gridfs", matchIfMissing = true)
+    public GridFSBucket pdfBucket(MongoDatabaseFactory mongoDatabaseFactory,
+                                  @Value("${pdf-forms.storage.gridfs-bucket:pdfs}") String bucketName) {
+        return GridFSBuckets.create(mongoDatabaseFactory.getMongoDatabase(), bucketName);
+    }
+}
@@ -0,0 +1,130 @@
+package com.pdfforms.controller;
+
+import com.pdfforms.model.PdfRevision;
+import com.pdfforms.service.PdfBufferCache;
+import com.pdfforms.service.PdfRevisionStore;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Écrit une révision de PDF dans la réponse HTTP.
+ * Gère l'ETag fort (SHA-256 de la révision), If-None-Match/304, les requêtes Range
+ * (une seule plage, sinon le document entier est renvoyé) et If-Range.
+ * Si la révision tient dans un seul blob sur disque local et que le connecteur Tomcat
+ * le permet, le transfert est délégué à sendfile ; sinon elle est servie depuis le cache
+ * hors tas ({@link PdfBufferCache}), et à défaut ses segments sont copiés par blocs.
+ * Un master signé compte plusieurs segments : il ne passe jamais par sendfile.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PdfResponseWriter {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final PdfRevisionStore pdfRevisionStore;
+    private final PdfBufferCache pdfBufferCache;
+
+    public void write(HttpServletRequest request,
+                      HttpServletResponse response,
+                      PdfRevision pdf,
+                      ContentDisposition disposition,
+                      CacheControl cacheControl) throws IOException {
+        String etag = "\"" + pdf.getSha256() + "\"";
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+        if (new ServletWebRequest(request, response).checkNotModified(etag)) {
+            return; // 304 (ou 412 sur If-Match), en-têtes déjà positionnés
+        }
+
+        long length = pdf.getLength();
+        response.setContentType(MediaType.APPLICATION_PDF_VALUE);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, disposition.toString());
+
+        long start = 0;
+        long end = length - 1;
+        HttpRange range = singleRange(request, etag);
+        if (range != null) {
+            try {
+                start = range.getRangeStart(length);
+                end = range.getRangeEnd(length);
+            } catch (IllegalArgumentException e) {
+                start = length;
+            }
+            if (start >= length || start > end) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes %d-%d/%d".formatted(start, end, length));
+        }
+
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count <= 0) {
+            return;
+        }
+
+        Optional<Path> localFile = pdfRevisionStore.localFile(pdf);
+        if (localFile.isPresent() && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat envoie le fichier via sendfile une fois la méthode du contrôleur terminée
+            request.setAttribute(SENDFILE_FILENAME, localFile.get().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+        Optional<ByteBuffer> cached = pdfBufferCache.get(pdf);
+        if (cached.isPresent()) {
+            ByteBuffer buffer = cached.get();
+            buffer.limit(Math.toIntExact(start + count)).position(Math.toIntExact(start));
+            WritableByteChannel channel = Channels.newChannel(response.getOutputStream());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            return;
+        }
+        pdfRevisionStore.copyRange(pdf, start, count, response.getOutputStream());
+    }
+
+    /**
+     * Retourne la plage demandée si elle est unique et applicable, null sinon.
+     * Une plage invalide, multiple ou dont le If-Range ne correspond plus est ignorée :
+     * le document entier est renvoyé (comportement autorisé par la RFC 9110).
+     */
+    private HttpRange singleRange(HttpServletRequest request, String etag) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null) return null;
+
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(etag)) return null;
+
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            log.debug("En-tête Range ignoré ({}) : {}", rangeHeader, e.getMessage());
+            return null;
+        }
+    }
+}
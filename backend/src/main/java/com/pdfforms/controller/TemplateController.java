@@ -0,0 +1,68 @@
+package com.pdfforms.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pdfforms.dto.TemplateInstantiateRequest;
+import com.pdfforms.dto.TemplateSummaryDto;
+import com.pdfforms.dto.WorkflowCreateRequest;
+import com.pdfforms.dto.WorkflowCreateResponse;
+import com.pdfforms.service.TemplateService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.InputStream;
+import java.util.List;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/templates")
+@RequiredArgsConstructor
+public class TemplateController {
+
+    private final TemplateService templateService;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * POST /api/templates
+     * Crée un template à partir d'un PDF uploadé. Mêmes paramètres que POST /api/workflows :
+     * file (PDF) + data (JSON WorkflowCreateRequest), les signataires décrivant les rôles.
+     */
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<TemplateSummaryDto> createTemplate(
+            @RequestPart("file") MultipartFile file,
+            @RequestPart("data") String dataJson) throws Exception {
+
+        log.info("POST /api/templates - fichier: {} ({} bytes)",
+                file.getOriginalFilename(), file.getSize());
+
+        WorkflowCreateRequest request = objectMapper.readValue(dataJson, WorkflowCreateRequest.class);
+        try (InputStream in = file.getInputStream()) {
+            return ResponseEntity.ok(templateService.createTemplate(in, request, file.getOriginalFilename()));
+        }
+    }
+
+    /**
+     * GET /api/templates
+     * Liste les templates, du plus récent au plus ancien.
+     */
+    @GetMapping
+    public ResponseEntity<List<TemplateSummaryDto>> listTemplates() {
+        return ResponseEntity.ok(templateService.listTemplates());
+    }
+
+    /**
+     * POST /api/templates/{templateId}/workflows
+     * Crée un workflow depuis un template, sans traitement PDF : seuls les signataires sont fournis.
+     */
+    @PostMapping("/{templateId}/workflows")
+    public ResponseEntity<WorkflowCreateResponse> instantiate(
+            @PathVariable String templateId,
+            @RequestBody TemplateInstantiateRequest request) {
+
+        log.info("POST /api/templates/{}/workflows - {}", templateId, request.getName());
+        return ResponseEntity.ok(templateService.instantiate(templateId, request));
+    }
+}
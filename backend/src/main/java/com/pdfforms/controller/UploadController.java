@@ -0,0 +1,105 @@
+package com.pdfforms.controller;
+
+import com.pdfforms.dto.UploadCreateRequest;
+import com.pdfforms.dto.UploadStatusResponse;
+import com.pdfforms.service.UploadService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/uploads")
+@RequiredArgsConstructor
+public class UploadController {
+
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+|\\*)");
+
+    private final UploadService uploadService;
+
+    /**
+     * POST /api/uploads
+     * Ouvre un upload par morceaux pour un fichier de {@code length} octets.
+     */
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<UploadStatusResponse> createUpload(@RequestBody UploadCreateRequest request) throws Exception {
+        log.info("POST /api/uploads - fichier: {} ({} bytes)", request.getFileName(), request.getLength());
+        UploadStatusResponse status = uploadService.create(request);
+        return ResponseEntity.created(URI.create("/api/uploads/" + status.getUploadId())).body(status);
+    }
+
+    /**
+     * PUT /api/uploads/{uploadId}
+     * Envoie un morceau brut (application/octet-stream). Sa position est donnée par l'en-tête
+     * Content-Range ("bytes 0-5242879/12345678") ou Upload-Offset. Le corps est écrit sur disque
+     * au fil de la lecture. 409 si le morceau ne commence pas à l'offset déjà reçu.
+     */
+    @PutMapping(value = "/{uploadId}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<UploadStatusResponse> appendChunk(
+            @PathVariable String uploadId,
+            @RequestHeader(value = HttpHeaders.CONTENT_RANGE, required = false) String contentRange,
+            @RequestHeader(value = "Upload-Offset", required = false) Long uploadOffset,
+            HttpServletRequest request) throws Exception {
+
+        long start = chunkStart(contentRange, uploadOffset);
+        Long end = contentRange != null ? chunkEnd(contentRange) : null;
+        log.debug("PUT /api/uploads/{} - offset {}", uploadId, start);
+        try (InputStream in = request.getInputStream()) {
+            return ResponseEntity.ok(uploadService.append(uploadId, start, end, in));
+        }
+    }
+
+    /**
+     * GET /api/uploads/{uploadId}
+     * Offset reçu jusqu'ici : point de reprise après une coupure.
+     */
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<UploadStatusResponse> getUpload(@PathVariable String uploadId) {
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                .body(uploadService.status(uploadId));
+    }
+
+    /**
+     * DELETE /api/uploads/{uploadId}
+     * Abandonne l'upload et supprime le fichier temporaire.
+     */
+    @DeleteMapping("/{uploadId}")
+    public ResponseEntity<Void> deleteUpload(@PathVariable String uploadId) {
+        uploadService.delete(uploadId);
+        return ResponseEntity.noContent().build();
+    }
+
+    private static long chunkStart(String contentRange, Long uploadOffset) {
+        if (contentRange != null) {
+            return Long.parseLong(parseContentRange(contentRange).group(1));
+        }
+        if (uploadOffset != null) {
+            return uploadOffset;
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "En-tête Content-Range ou Upload-Offset requis.");
+    }
+
+    private static long chunkEnd(String contentRange) {
+        return Long.parseLong(parseContentRange(contentRange).group(2));
+    }
+
+    private static Matcher parseContentRange(String contentRange) {
+        Matcher matcher = CONTENT_RANGE.matcher(contentRange.trim());
+        if (!matcher.matches()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "En-tête Content-Range invalide : " + contentRange);
+        }
+        return matcher;
+    }
+}
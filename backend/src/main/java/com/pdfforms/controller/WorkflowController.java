@@ -2,25 +2,39 @@ package com.pdfforms.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.pdfforms.dto.*;
-import com.pdfforms.service.PdfBoxService;
+import com.pdfforms.model.PdfRevision;
+import com.pdfforms.service.BatchSigningService;
+import com.pdfforms.service.PageRenderService;
+import com.pdfforms.service.PdfAnalysisService;
+import com.pdfforms.service.SigningJobService;
+import com.pdfforms.service.UploadService;
+import com.pdfforms.service.WorkflowEventBus;
 import com.pdfforms.service.WorkflowService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-
-import java.nio.charset.StandardCharsets;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @RestController
@@ -28,13 +42,22 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class WorkflowController {
 
+    private static final long BATCH_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(30);
+
     private final WorkflowService workflowService;
-    private final PdfBoxService pdfBoxService;
+    private final PdfAnalysisService pdfAnalysisService;
     private final ObjectMapper objectMapper;
+    private final PdfResponseWriter pdfResponseWriter;
+    private final PageRenderService pageRenderService;
+    private final SigningJobService signingJobService;
+    private final BatchSigningService batchSigningService;
+    private final UploadService uploadService;
+    private final WorkflowEventBus eventBus;
 
     /**
      * POST /api/workflows/analyze-pdf
      * Analyse un PDF et retourne la liste des champs AcroForm détectés.
+     * Un contenu déjà analysé (même SHA-256) est servi depuis le cache.
      */
     @PostMapping(value = "/analyze-pdf", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<AnalyzePdfResponse> analyzePdf(
@@ -46,16 +69,51 @@ public class WorkflowController {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Fichier PDF requis.");
         }
 
-        return ResponseEntity.ok(pdfBoxService.extractFields(file.getBytes()));
+        try (InputStream in = file.getInputStream()) {
+            return ResponseEntity.ok(pdfAnalysisService.analyze(in));
+        }
+    }
+
+    /**
+     * POST /api/workflows/analyze-pdf?uploadId={uploadId}
+     * Analyse un PDF envoyé par morceaux (/api/uploads) : PDFBox le lit depuis le disque.
+     */
+    @PostMapping(value = "/analyze-pdf", params = "uploadId")
+    public ResponseEntity<AnalyzePdfResponse> analyzeUploadedPdf(@RequestParam String uploadId) throws Exception {
+        UploadService.CompletedUpload upload = uploadService.completed(uploadId);
+        log.info("POST /api/workflows/analyze-pdf - upload: {} ({} bytes)", uploadId, upload.length());
+        return ResponseEntity.ok(pdfAnalysisService.analyze(upload.sha256(), upload.file()));
     }
 
     /**
-     * GET /api/workflows
-     * Retourne la liste résumée de tous les workflows, triée par updatedAt décroissant.
+     * GET /api/workflows?status=&signer=&q=&cursor=&size=
+     * Retourne une page de la liste résumée des workflows, triée par updatedAt décroissant.
+     * Filtres optionnels : statut, signataire (signerId ou nom), début du nom (q).
+     * La page suivante s'obtient en repassant les mêmes filtres avec cursor = nextCursor.
      */
     @GetMapping
-    public ResponseEntity<List<WorkflowSummaryDto>> listWorkflows() {
-        return ResponseEntity.ok(workflowService.listWorkflows());
+    public ResponseEntity<WorkflowPageDto> listWorkflows(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String signer,
+            @RequestParam(value = "q", required = false) String namePrefix,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(workflowService.listWorkflows(status, signer, namePrefix, cursor, size));
+    }
+
+    /**
+     * GET /api/workflows/events
+     * Flux Server-Sent Events des changements de workflows (événement {@code workflow} : résumé
+     * à jour). Remplace le rafraîchissement périodique de la liste par le tableau de bord.
+     * Un événement {@code reset} demande au client de recharger la liste.
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter workflowEvents(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            HttpServletResponse response) {
+        // Pas de mise en mémoire tampon par un proxy nginx devant l'application
+        response.setHeader("X-Accel-Buffering", "no");
+        return eventBus.subscribe(lastEventId);
     }
 
     /**
@@ -72,8 +130,32 @@ public class WorkflowController {
                 file.getOriginalFilename(), file.getSize());
 
         WorkflowCreateRequest request = objectMapper.readValue(dataJson, WorkflowCreateRequest.class);
-        WorkflowCreateResponse response = workflowService.createWorkflow(
-                file.getBytes(), request, file.getOriginalFilename());
+        WorkflowCreateResponse response;
+        try (InputStream in = file.getInputStream()) {
+            response = workflowService.createWorkflow(in, request, file.getOriginalFilename());
+        }
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * POST /api/workflows?uploadId={uploadId}
+     * Variante de la création pour un PDF envoyé par morceaux : le corps est le JSON
+     * WorkflowCreateRequest. L'upload est supprimé une fois le workflow créé.
+     */
+    @PostMapping(params = "uploadId", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<WorkflowCreateResponse> createWorkflowFromUpload(
+            @RequestParam String uploadId,
+            @RequestBody WorkflowCreateRequest request) throws Exception {
+
+        UploadService.CompletedUpload upload = uploadService.completed(uploadId);
+        log.info("POST /api/workflows - upload: {} {} ({} bytes)", uploadId, upload.fileName(), upload.length());
+
+        WorkflowCreateResponse response;
+        try (InputStream in = Files.newInputStream(upload.file())) {
+            response = workflowService.createWorkflow(in, request, upload.fileName());
+        }
+        uploadService.delete(uploadId);
 
         return ResponseEntity.ok(response);
     }
@@ -93,35 +175,155 @@ public class WorkflowController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * GET /api/workflows/{workflowId}/signer/{signerId}/pdf?rev={revision}
+     * Retourne le PDF aplati en binaire. L'URL est propre à une révision : la réponse est immuable
+     * et peut être mise en cache par le navigateur et le CDN (revalidation par ETag → 304).
+     */
+    @GetMapping(value = "/{workflowId}/signer/{signerId}/pdf", produces = MediaType.APPLICATION_PDF_VALUE)
+    public void getSignerPdf(
+            @PathVariable String workflowId,
+            @PathVariable String signerId,
+            @RequestParam("rev") int revision,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+
+        log.info("GET /api/workflows/{}/signer/{}/pdf?rev={}", workflowId, signerId, revision);
+        PdfDownload pdf = workflowService.getFlattenedPdfForSigner(workflowId, signerId, revision);
+
+        pdfResponseWriter.write(request, response, pdf.getRevision(),
+                ContentDisposition.inline()
+                        .filename(pdf.getFileName(), StandardCharsets.UTF_8)
+                        .build(),
+                CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable());
+    }
+
+    /**
+     * GET /api/workflows/{workflowId}/signer/{signerId}/pages/{page}?rev={revision}&dpi={dpi}
+     * Retourne une page (0-based) du PDF aplati rendue en PNG à la résolution demandée.
+     * Comme pour le PDF, l'URL est propre à une révision : la réponse est immuable.
+     */
+    @GetMapping(value = "/{workflowId}/signer/{signerId}/pages/{page}", produces = MediaType.IMAGE_PNG_VALUE)
+    public ResponseEntity<byte[]> getSignerPage(
+            @PathVariable String workflowId,
+            @PathVariable String signerId,
+            @PathVariable int page,
+            @RequestParam("rev") int revision,
+            @RequestParam(value = "dpi", defaultValue = "72") int dpi,
+            WebRequest webRequest) throws Exception {
+
+        log.info("GET /api/workflows/{}/signer/{}/pages/{}?rev={}&dpi={}", workflowId, signerId, page, revision, dpi);
+        PdfDownload pdf = workflowService.getFlattenedPdfForSigner(workflowId, signerId, revision);
+
+        String etag = "\"%s-p%d-%d\"".formatted(pdf.getRevision().getSha256(), page, dpi);
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.IMAGE_PNG)
+                .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                .body(pageRenderService.renderPage(workflowId, pdf.getRevision(), page, dpi));
+    }
+
+    /**
+     * GET /api/workflows/{workflowId}/thumbnail
+     * Vignette PNG de la première page du snapshot aplati courant (tableau de bord).
+     */
+    @GetMapping(value = "/{workflowId}/thumbnail", produces = MediaType.IMAGE_PNG_VALUE)
+    public ResponseEntity<byte[]> getThumbnail(@PathVariable String workflowId,
+                                               WebRequest webRequest) throws Exception {
+        PdfRevision flattened = workflowService.getThumbnailSource(workflowId);
+
+        String etag = "\"%s-thumbnail\"".formatted(flattened.getSha256());
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.IMAGE_PNG)
+                .cacheControl(CacheControl.noCache())
+                .body(pageRenderService.renderThumbnail(workflowId, flattened));
+    }
+
     /**
      * POST /api/workflows/{workflowId}/fill-and-sign
      * Remplit les champs du signataire puis signe le document en une seule opération.
+     * Les signatures d'un même workflow sont sérialisées par le SigningJobService.
+     * Avec {@code async=true}, répond 202 immédiatement avec l'identifiant du job à suivre
+     * via GET /api/workflows/jobs/{jobId} ; sinon attend la fin de la signature.
      */
     @PostMapping("/{workflowId}/fill-and-sign")
-    public ResponseEntity<Map<String, Object>> fillAndSign(
+    public ResponseEntity<?> fillAndSign(
             @PathVariable String workflowId,
+            @RequestParam(value = "async", defaultValue = "false") boolean async,
             @RequestBody FillAndSignRequest request) throws Exception {
 
-        log.info("POST /api/workflows/{}/fill-and-sign - signer: {}", workflowId, request.getSignerName());
-        Map<String, Object> result = workflowService.fillAndSign(workflowId, request);
+        log.info("POST /api/workflows/{}/fill-and-sign - signer: {} (async: {})",
+                workflowId, request.getSignerName(), async);
+        if (async) {
+            SigningJobResponse job = signingJobService.submit(workflowId, request);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/workflows/jobs/" + job.getJobId()))
+                    .body(job);
+        }
+        Map<String, Object> result = signingJobService.submitAndWait(workflowId, request);
         return ResponseEntity.ok(result);
     }
 
+    /**
+     * POST /api/workflows/batch/fill-and-sign
+     * Signe, pour un même signataire, une liste de workflows en parallèle.
+     * La réponse est un flux NDJSON : une ligne BatchSignItemResult par workflow, dans l'ordre
+     * de fin de traitement.
+     */
+    @PostMapping(value = "/batch/fill-and-sign", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ResponseBodyEmitter> batchFillAndSign(@RequestBody BatchSignRequest request) {
+        log.info("POST /api/workflows/batch/fill-and-sign - signer: {}, {} workflows",
+                request.getSignerName(), request.getItems() != null ? request.getItems().size() : 0);
+
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(BATCH_TIMEOUT_MS);
+        batchSigningService.signAll(request, result -> {
+            try {
+                emitter.send(objectMapper.writeValueAsString(result) + "\n", MediaType.APPLICATION_NDJSON);
+            } catch (IOException e) {
+                // Client déconnecté : les signatures se poursuivent, seuls les résultats sont perdus
+                log.debug("Résultat du lot non transmis pour {} : {}", result.getWorkflowId(), e.getMessage());
+            }
+        }, emitter::complete);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(emitter);
+    }
+
+    /**
+     * GET /api/workflows/jobs/{jobId}
+     * État d'une signature asynchrone : QUEUED (avec sa position), RUNNING, SUCCEEDED ou FAILED.
+     */
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<SigningJobResponse> getSigningJob(@PathVariable String jobId) {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(signingJobService.getJob(jobId));
+    }
+
     /**
      * GET /api/workflows/{workflowId}/download
      * Télécharge le PDF master final (uniquement si workflow COMPLETED).
+     * Supporte Range/If-Range (reprise de téléchargement) et If-None-Match (304).
      */
     @GetMapping(value = "/{workflowId}/download", produces = MediaType.APPLICATION_PDF_VALUE)
     public void downloadFinalPdf(
-            @PathVariable String workflowId, HttpServletResponse response) throws IOException {
+            @PathVariable String workflowId,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
 
-        log.info("GET /api/workflows/{}/download", workflowId);
-        String fileName = workflowService.downloadFinalPdf(workflowId, response.getOutputStream());
+        log.info("GET /api/workflows/{}/download (Range: {})", workflowId, request.getHeader(HttpHeaders.RANGE));
+        PdfDownload download = workflowService.downloadFinalPdf(workflowId);
 
-        response.addHeader(HttpHeaders.CONTENT_DISPOSITION,
+        pdfResponseWriter.write(request, response, download.getRevision(),
                 ContentDisposition.attachment()
-                        .filename(fileName, StandardCharsets.UTF_8)
-                        .build()
-                        .toString());
+                        .filename(download.getFileName(), StandardCharsets.UTF_8)
+                        .build(),
+                CacheControl.noCache());
     }
 }
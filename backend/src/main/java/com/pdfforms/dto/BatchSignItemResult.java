@@ -0,0 +1,19 @@
+package com.pdfforms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchSignItemResult {
+    private String workflowId;
+    private String status;          // SIGNED | REJECTED | FAILED
+    private int httpStatus;         // code équivalent à un appel fill-and-sign unitaire
+    private String error;
+    private String workflowStatus;  // SIGNED : statut du workflow après signature
+    private boolean completed;      // SIGNED : dernier signataire du workflow
+}
@@ -0,0 +1,20 @@
+package com.pdfforms.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class BatchSignRequest {
+    private String signerName;
+    private List<Item> items = new ArrayList<>();
+
+    @Data
+    public static class Item {
+        private String workflowId;
+        private Map<String, String> fields = new HashMap<>();  // fieldName -> value
+    }
+}
@@ -0,0 +1,16 @@
+package com.pdfforms.dto;
+
+import com.pdfforms.model.PdfRevision;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PdfDownload {
+    private String fileName;       // nom proposé au navigateur
+    private PdfRevision revision;  // révision à transmettre (blob, taille, empreinte)
+}
@@ -16,7 +16,9 @@ public class SignerDocumentResponse {
     private String workflowName;
     private String signerName;
     private String signerId;
-    private String pdfBase64;          // PDF aplati encodé en base64
+    private String documentStatus;     // "READY" | "PREPARING" (PDF aplati en cours de génération)
+    private String pdfUrl;             // URL du PDF aplati, estampillée par la révision (null si PREPARING)
+    private int pdfRevision;           // révision courante du master
     private List<FieldDto> fields;     // Champs assignés à ce signataire
     private boolean lastSigner;        // true si c'est le dernier signataire du workflow
     private List<SignerContext> signers; // Tous les signataires avec leur statut
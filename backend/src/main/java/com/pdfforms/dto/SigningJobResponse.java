@@ -0,0 +1,26 @@
+package com.pdfforms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SigningJobResponse {
+
+    private String jobId;
+    private String workflowId;
+    private String status;               // QUEUED | RUNNING | SUCCEEDED | FAILED
+    private int position;                // jobs à traiter avant celui-ci pour le même workflow (QUEUED)
+    private Map<String, Object> result;  // réponse de fill-and-sign (SUCCEEDED)
+    private Integer errorStatus;         // code HTTP de l'erreur (FAILED)
+    private String error;
+    private LocalDateTime createdAt;
+    private LocalDateTime finishedAt;
+}
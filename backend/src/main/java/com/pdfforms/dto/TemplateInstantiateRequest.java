@@ -0,0 +1,18 @@
+package com.pdfforms.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class TemplateInstantiateRequest {
+    private String name;
+    private List<Assignee> signers = new ArrayList<>();
+
+    @Data
+    public static class Assignee {
+        private String roleId;
+        private String name;   // nom affiché du signataire (par défaut : nom du rôle)
+    }
+}
@@ -0,0 +1,23 @@
+package com.pdfforms.dto;
+
+import com.pdfforms.model.TemplateRole;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TemplateSummaryDto {
+    private String id;
+    private String name;
+    private String pdfOriginalName;
+    private List<TemplateRole> roles;
+    private int fieldCount;
+    private LocalDateTime createdAt;
+}
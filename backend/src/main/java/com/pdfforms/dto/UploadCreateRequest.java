@@ -0,0 +1,9 @@
+package com.pdfforms.dto;
+
+import lombok.Data;
+
+@Data
+public class UploadCreateRequest {
+    private String fileName;
+    private long length;       // taille totale du fichier, en octets
+}
@@ -0,0 +1,19 @@
+package com.pdfforms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadStatusResponse {
+    private String uploadId;
+    private String fileName;
+    private long length;
+    private long offset;       // octets reçus : le prochain morceau doit commencer ici
+    private boolean complete;
+    private String sha256;     // empreinte du fichier, une fois complet
+}
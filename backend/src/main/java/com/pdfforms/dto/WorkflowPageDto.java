@@ -0,0 +1,20 @@
+package com.pdfforms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WorkflowPageDto {
+    private List<WorkflowSummaryDto> items;
+    private String nextCursor;          // à passer en ?cursor= pour la page suivante, null sur la dernière page
+    private Long total;                 // workflows correspondant aux filtres (première page uniquement)
+    private Map<String, Long> counts;   // statut -> nombre, hors filtre de statut (première page uniquement)
+}
@@ -21,6 +21,7 @@ public class WorkflowSummaryDto {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private List<SignerSummary> signers;
+    private String thumbnailUrl;
 
     @Data
     @Builder
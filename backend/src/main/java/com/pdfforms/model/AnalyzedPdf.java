@@ -0,0 +1,28 @@
+package com.pdfforms.model;
+
+import com.pdfforms.dto.AnalyzePdfResponse;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Résultat d'analyse d'un PDF, indexé par le SHA-256 de son contenu.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "analyzed_pdfs")
+public class AnalyzedPdf {
+
+    @Id
+    private String sha256;
+
+    private AnalyzePdfResponse result;
+    private LocalDateTime createdAt;
+}
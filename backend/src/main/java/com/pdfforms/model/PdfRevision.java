@@ -0,0 +1,35 @@
+package com.pdfforms.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Référence vers une révision d'un PDF stockée dans le blob store.
+ * Seule la référence est persistée dans MongoDB, jamais les octets du PDF.
+ * <p>
+ * Une révision est soit un blob unique ({@code blobId}), soit un journal de segments
+ * ({@code segments}) : le blob de base suivi des incréments ajoutés par chaque signature.
+ * Dans ce cas, {@code sha256} est l'empreinte chaînée des segments, pas celle du fichier.
+ * <p>
+ * Un numéro de révision n'est jamais réutilisé : les URLs, caches de rendu et aplatissements qui
+ * en dépendent peuvent le tenir pour immuable. Une signature annulée est donc suivie d'une révision
+ * de restauration, de même contenu que la révision d'avant, sous un nouveau numéro.
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class PdfRevision {
+    private int revision;    // 0 = master certifié, +1 à chaque signature ou restauration
+    private String blobId;             // null si la révision est stockée en segments
+    private long length;               // taille du fichier complet
+    private String sha256;
+    private List<PdfSegment> segments;  // base puis incréments, dans l'ordre du fichier
+    private List<String> changedFields;  // champs dont la valeur a changé dans cette révision
+    private boolean shared;             // blobs partagés avec un template : jamais supprimés par un workflow
+    private int voidedRevisions;        // numéros sans signature (annulée, restauration) : revision - voidedRevisions = signatures
+}
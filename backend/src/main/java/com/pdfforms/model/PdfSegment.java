@@ -0,0 +1,22 @@
+package com.pdfforms.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Segment d'une révision de PDF stockée en journal : un blob dont le contenu occupe
+ * [offset, offset + length[ dans le fichier reconstitué.
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class PdfSegment {
+    private String blobId;
+    private long offset;     // position du premier octet dans le fichier reconstitué
+    private long length;
+    private String sha256;   // empreinte SHA-256 du segment seul, en hexadécimal
+    private boolean shared;  // blob partagé avec un template : jamais supprimé par un workflow
+}
@@ -6,11 +6,11 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class Signer {
-    private String signerId;   // slugifié depuis le nom, ex: "jean-dupont"
+    private String signerId;   // slugifié depuis le nom, ex: "jean-dupont" (index workflows.signer_updated_id)
     private String name;       // nom affiché
     private int order;         // 1, 2, ...
     private SignerStatus status;
@@ -0,0 +1,16 @@
+package com.pdfforms.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoredBlob {
+    private String blobId;   // identifiant dans le blob store (ObjectId GridFS en hexadécimal)
+    private long length;     // taille en octets
+    private String sha256;   // empreinte SHA-256 du contenu, en hexadécimal
+}
@@ -0,0 +1,16 @@
+package com.pdfforms.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TemplateRole {
+    private String roleId;     // slugifié depuis le nom du rôle, ex: "salarie" ; clé d'assignation des champs
+    private String name;       // nom du rôle, ex: "Salarié"
+    private int order;         // 1, 2, ...
+}
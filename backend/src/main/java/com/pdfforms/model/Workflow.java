@@ -5,16 +5,21 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "workflows")
+// Pagination du tableau de bord : tri (updatedAt, _id) décroissant, filtré ou non par statut / signataire
+@CompoundIndex(name = "updated_id", def = "{'updatedAt': -1, '_id': -1}")
+@CompoundIndex(name = "status_updated_id", def = "{'status': 1, 'updatedAt': -1, '_id': -1}")
+@CompoundIndex(name = "signer_updated_id", def = "{'signers.signerId': 1, 'updatedAt': -1, '_id': -1}")
 public class Workflow {
 
     @Id
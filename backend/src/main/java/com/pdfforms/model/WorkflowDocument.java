@@ -5,6 +5,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.List;
@@ -21,14 +22,27 @@ public class WorkflowDocument {
 
     private String workflowId;
 
-    private byte[] masterPdf;
-    private byte[] flattenedPdf;
+    /**
+     * Révision courante du PDF master (stocké dans le blob store).
+     */
+    private PdfRevision master;
 
+    /**
+     * Dernier PDF aplati généré. Son numéro de révision est celui du master dont il est issu.
+     */
+    private PdfRevision flattened;
+
+    /**
+     * Champs embarqués des documents créés avant la collection {@code fields}. Déplacés dans cette
+     * collection par FieldMigration puis supprimés : toujours null pour un nouveau document.
+     */
     private List<FieldDefinition> fields;
 
     /**
      * true si le master a changé depuis le dernier aplatissement.
      * Le flattenedPdf doit être régénéré avant d'être envoyé au prochain signataire.
+     * Indexé pour la jauge pdfforms.flatten.stale.
      */
+    @Indexed
     private boolean flattenedStale;
 }
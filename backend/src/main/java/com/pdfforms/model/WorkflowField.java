@@ -0,0 +1,35 @@
+package com.pdfforms.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Unwrapped;
+
+/**
+ * Champ d'un workflow, stocké dans sa propre collection plutôt que dans WorkflowDocument :
+ * un signataire ne lit et n'écrit que ses champs, via l'index (workflowId, assignedTo),
+ * quelle que soit la taille du formulaire.
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "fields")
+@CompoundIndex(name = "workflow_assigned", def = "{'workflowId': 1, 'assignedTo': 1}")
+public class WorkflowField {
+
+    @Id
+    private String id;
+
+    private String workflowId;
+
+    /**
+     * Définition et valeur courante, à plat dans le document MongoDB (assignedTo au premier niveau).
+     */
+    @Unwrapped.Empty
+    private FieldDefinition definition;
+}
@@ -0,0 +1,19 @@
+package com.pdfforms.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Filtres de la liste des workflows ; un critère null n'est pas appliqué.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WorkflowFilter {
+    private WorkflowStatus status;
+    private String signerId;     // workflows dont l'un des signataires a cet identifiant
+    private String namePrefix;   // début du nom, sans tenir compte de la casse
+}
@@ -0,0 +1,34 @@
+package com.pdfforms.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Modèle de workflow : master certifié et snapshot aplati préparés une fois,
+ * partagés par tous les workflows créés à partir du template.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "templates")
+public class WorkflowTemplate {
+
+    @Id
+    private String id;
+
+    private String name;
+    private String pdfOriginalName;
+    private List<TemplateRole> roles;
+    private List<FieldDefinition> fields;  // assignedTo = roleId
+    private PdfRevision master;            // blobs partagés (shared = true)
+    private PdfRevision flattened;         // blobs partagés (shared = true)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,7 @@
+package com.pdfforms.repository;
+
+import com.pdfforms.model.AnalyzedPdf;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface AnalyzedPdfRepository extends MongoRepository<AnalyzedPdf, String> {
+}
@@ -0,0 +1,53 @@
+package com.pdfforms.repository;
+
+import com.pdfforms.model.StoredBlob;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Stockage des PDFs hors des documents MongoDB.
+ * Les contenus sont écrits et relus en flux : aucun PDF complet n'est matérialisé par le store.
+ */
+public interface BlobStore {
+
+    /**
+     * Écrit un nouveau blob via {@code writer} et calcule sa taille et son SHA-256 au passage.
+     * Si {@code writer} échoue, le blob partiellement écrit est supprimé.
+     *
+     * @param filename nom logique du blob (ex : "{workflowId}/master-r2.pdf")
+     * @param metadata métadonnées libres associées au blob
+     * @param writer   producteur du contenu
+     * @return référence vers le blob stocké
+     */
+    StoredBlob store(String filename, Map<String, Object> metadata, BlobWriter writer) throws Exception;
+
+    /**
+     * Ouvre un flux de lecture sur le blob. L'appelant doit le fermer.
+     */
+    InputStream open(String blobId) throws IOException;
+
+    /**
+     * Copie {@code length} octets du blob à partir de {@code offset} vers {@code out}, par blocs.
+     */
+    void copyRange(String blobId, long offset, long length, OutputStream out) throws IOException;
+
+    /**
+     * Chemin du blob sur le disque local, si le store en dispose.
+     * Permet de confier le transfert du fichier à sendfile (zero-copy), seul chemin sans recopie.
+     */
+    default Optional<Path> localFile(String blobId) {
+        return Optional.empty();
+    }
+
+    void delete(String blobId);
+
+    @FunctionalInterface
+    interface BlobWriter {
+        void writeTo(OutputStream out) throws Exception;
+    }
+}
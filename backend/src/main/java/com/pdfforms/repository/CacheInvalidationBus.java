@@ -0,0 +1,31 @@
+package com.pdfforms.repository;
+
+import java.util.function.Consumer;
+
+/**
+ * Diffusion des invalidations du cache de métadonnées entre les nœuds de l'application.
+ * <p>
+ * {@code pdf-forms.metadata-cache.invalidation} : {@code local} (un seul nœud, rien à diffuser)
+ * ou {@code mongo} (collection plafonnée lue en continu par chaque nœud).
+ */
+public interface CacheInvalidationBus {
+
+    /**
+     * Invalidation d'un workflow et des champs du signataire {@code signerId} (de tous si null).
+     * {@link #ALL} demande de vider le cache (invalidations possiblement perdues).
+     */
+    record Invalidation(String workflowId, String signerId) {
+    }
+
+    Invalidation ALL = new Invalidation(null, null);
+
+    /**
+     * Transmet l'invalidation aux autres nœuds ; le nœud émetteur a déjà invalidé son propre cache.
+     */
+    void publish(Invalidation invalidation);
+
+    /**
+     * Enregistre le destinataire des invalidations émises par les autres nœuds.
+     */
+    void subscribe(Consumer<Invalidation> listener);
+}
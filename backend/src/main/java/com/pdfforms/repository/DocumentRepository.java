@@ -2,10 +2,40 @@ package com.pdfforms.repository;
 
 import com.pdfforms.model.WorkflowDocument;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface DocumentRepository extends MongoRepository<WorkflowDocument, String> {
+public interface DocumentRepository extends MongoRepository<WorkflowDocument, String>, DocumentRepositoryCustom {
 
     Optional<WorkflowDocument> findByWorkflowId(String workflowId);
+
+    /**
+     * Document réduit à la référence du master (signature, téléchargement final).
+     */
+    @Query(value = "{ 'workflowId': ?0 }", fields = "{ 'workflowId': 1, 'master': 1 }")
+    Optional<WorkflowDocument> findMasterByWorkflowId(String workflowId);
+
+    /**
+     * Document réduit au PDF aplati, à son indicateur de péremption et au numéro de révision du master
+     * (lecture par un signataire, vignette) : le journal des segments du master n'est pas lu.
+     */
+    @Query(value = "{ 'workflowId': ?0 }",
+            fields = "{ 'workflowId': 1, 'flattened': 1, 'flattenedStale': 1, 'master.revision': 1 }")
+    Optional<WorkflowDocument> findFlattenedByWorkflowId(String workflowId);
+
+    long countByFlattenedStaleTrue();
+
+    /**
+     * Document réduit à ses champs embarqués, s'il n'a pas encore été migré vers la collection fields.
+     */
+    @Query(value = "{ 'workflowId': ?0, 'fields': { $exists: true } }", fields = "{ 'workflowId': 1, 'fields': 1 }")
+    Optional<WorkflowDocument> findEmbeddedFieldsByWorkflowId(String workflowId);
+
+    /**
+     * Documents qui embarquent encore leurs champs, réduits à leur workflowId (migration).
+     */
+    @Query(value = "{ 'fields': { $exists: true } }", fields = "{ 'workflowId': 1 }")
+    Stream<WorkflowDocument> streamWithEmbeddedFields();
 }
@@ -0,0 +1,43 @@
+package com.pdfforms.repository;
+
+import com.pdfforms.model.PdfRevision;
+
+/**
+ * Mises à jour ciblées de WorkflowDocument, implémentées avec MongoTemplate.
+ */
+public interface DocumentRepositoryCustom {
+
+    /**
+     * Remplace le PDF aplati {@code previous} par {@code flattened} et lève flattenedStale,
+     * à condition que le master soit toujours à la révision {@code masterRevision} et que
+     * {@code previous} soit toujours le PDF aplati courant (compare-and-set).
+     *
+     * @return true si la mise à jour a été appliquée
+     */
+    boolean replaceFlattened(String workflowId, int masterRevision, PdfRevision previous, PdfRevision flattened);
+
+    /**
+     * Remplace le master {@code previous} par {@code master} (révision suivante du journal) et marque
+     * le PDF aplati comme périmé, à condition que le master soit toujours à la révision de
+     * {@code previous} (compare-and-set). Seuls les nouveaux segments et les champs scalaires de la
+     * révision sont écrits.
+     *
+     * @return true si la mise à jour a été appliquée, false si un autre signataire l'a devancée
+     */
+    boolean appendMaster(String workflowId, PdfRevision previous, PdfRevision master);
+
+    /**
+     * Annule un {@link #appendMaster} : remplace le master par {@code restored} (contenu de la révision
+     * précédente, sous un numéro de révision postérieur à {@code appended}) et marque le PDF aplati
+     * comme périmé, à condition que le master soit toujours à la révision de {@code appended}
+     * (compare-and-set).
+     *
+     * @return true si le master a été restauré
+     */
+    boolean restoreMaster(String workflowId, PdfRevision appended, PdfRevision restored);
+
+    /**
+     * Supprime les champs embarqués du document, une fois copiés dans la collection fields.
+     */
+    void unsetEmbeddedFields(String workflowId);
+}
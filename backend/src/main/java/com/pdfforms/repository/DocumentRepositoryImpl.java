@@ -0,0 +1,69 @@
+package com.pdfforms.repository;
+
+import com.pdfforms.model.PdfRevision;
+import com.pdfforms.model.PdfSegment;
+import com.pdfforms.model.WorkflowDocument;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+class DocumentRepositoryImpl implements DocumentRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public boolean replaceFlattened(String workflowId, int masterRevision,
+                                    PdfRevision previous, PdfRevision flattened) {
+        Query query = Query.query(Criteria.where("workflowId").is(workflowId)
+                .and("master.revision").is(masterRevision)
+                .and("flattened.blobId").is(previous != null ? previous.getBlobId() : null));
+        Update update = new Update()
+                .set("flattened", flattened)
+                .set("flattenedStale", false);
+        return mongoTemplate.updateFirst(query, update, WorkflowDocument.class).getModifiedCount() > 0;
+    }
+
+    @Override
+    public boolean appendMaster(String workflowId, PdfRevision previous, PdfRevision master) {
+        Query query = Query.query(Criteria.where("workflowId").is(workflowId)
+                .and("master.revision").is(previous.getRevision()));
+        Update update = new Update().set("flattenedStale", true);
+
+        List<PdfSegment> before = previous.getSegments() != null ? previous.getSegments() : List.of();
+        List<PdfSegment> after = master.getSegments() != null ? master.getSegments() : List.of();
+        if (!before.isEmpty() && after.size() > before.size() && after.subList(0, before.size()).equals(before)) {
+            // Journal prolongé : $push des seuls nouveaux segments, les précédents ne sont pas réécrits
+            update.set("master.revision", master.getRevision())
+                    .set("master.length", master.getLength())
+                    .set("master.sha256", master.getSha256())
+                    .set("master.changedFields", master.getChangedFields())
+                    .set("master.shared", master.isShared())
+                    .push("master.segments").each(after.subList(before.size(), after.size()).toArray());
+        } else {
+            // Premier incrément d'un master en blob unique : la révision est écrite en entier
+            update.set("master", master);
+        }
+        return mongoTemplate.updateFirst(query, update, WorkflowDocument.class).getModifiedCount() > 0;
+    }
+
+    @Override
+    public boolean restoreMaster(String workflowId, PdfRevision appended, PdfRevision restored) {
+        Query query = Query.query(Criteria.where("workflowId").is(workflowId)
+                .and("master.revision").is(appended.getRevision()));
+        Update update = new Update()
+                .set("master", restored)
+                .set("flattenedStale", true);
+        return mongoTemplate.updateFirst(query, update, WorkflowDocument.class).getModifiedCount() > 0;
+    }
+
+    @Override
+    public void unsetEmbeddedFields(String workflowId) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("workflowId").is(workflowId)),
+                new Update().unset("fields"), WorkflowDocument.class);
+    }
+}
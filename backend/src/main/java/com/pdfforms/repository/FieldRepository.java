@@ -0,0 +1,14 @@
+package com.pdfforms.repository;
+
+import com.pdfforms.model.WorkflowField;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.List;
+
+public interface FieldRepository extends MongoRepository<WorkflowField, String>, FieldRepositoryCustom {
+
+    /**
+     * Champs assignés à {@code assignedTo} dans le workflow (index workflow_assigned).
+     */
+    List<WorkflowField> findByWorkflowIdAndDefinitionAssignedTo(String workflowId, String assignedTo);
+}
@@ -0,0 +1,16 @@
+package com.pdfforms.repository;
+
+import com.pdfforms.model.WorkflowField;
+
+import java.util.List;
+
+/**
+ * Mises à jour ciblées des champs, implémentées avec MongoTemplate.
+ */
+public interface FieldRepositoryCustom {
+
+    /**
+     * Écrit la valeur courante de chaque champ ($set currentValue par _id), en une seule requête bulk.
+     */
+    void updateValues(List<WorkflowField> fields);
+}
@@ -0,0 +1,30 @@
+package com.pdfforms.repository;
+
+import com.pdfforms.model.WorkflowField;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+class FieldRepositoryImpl implements FieldRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public void updateValues(List<WorkflowField> fields) {
+        if (fields.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, WorkflowField.class);
+        for (WorkflowField field : fields) {
+            bulk.updateOne(Query.query(Criteria.where("id").is(field.getId())),
+                    Update.update("currentValue", field.getDefinition().getCurrentValue()));
+        }
+        bulk.execute();
+    }
+}
@@ -0,0 +1,111 @@
+package com.pdfforms.repository;
+
+import com.pdfforms.model.StoredBlob;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Blob store sur disque local (pdf-forms.storage.type=filesystem).
+ * Les blobs sont immuables : écrits dans un fichier temporaire puis renommés atomiquement.
+ * Les lectures par plage se positionnent directement à l'offset demandé puis copient par blocs
+ * vers le flux de sortie : ce n'est pas un transfert zero-copy, que seul sendfile permet
+ * (voir {@link #localFile}).
+ */
+@Slf4j
+@Repository
+@ConditionalOnProperty(name = "pdf-forms.storage.type", havingValue = "filesystem")
+public class FileSystemBlobStore implements BlobStore {
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final Path directory;
+
+    public FileSystemBlobStore(@Value("${pdf-forms.storage.directory:./data/blobs}") Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory).toAbsolutePath();
+        log.info("Blob store fichier : {}", this.directory);
+    }
+
+    @Override
+    public StoredBlob store(String filename, Map<String, Object> metadata, BlobWriter writer) throws Exception {
+        String blobId = new ObjectId().toHexString();
+        Path tmp = Files.createTempFile(directory, blobId, ".tmp");
+        HashingOutputStream out = new HashingOutputStream(Files.newOutputStream(tmp));
+        try {
+            try (out) {
+                writer.writeTo(out);
+            }
+            Files.move(tmp, path(blobId), StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+
+        StoredBlob blob = StoredBlob.builder()
+                .blobId(blobId)
+                .length(out.getCount())
+                .sha256(out.getSha256())
+                .build();
+        log.debug("Blob fichier écrit : {} ({} bytes, id={}).", filename, blob.getLength(), blobId);
+        return blob;
+    }
+
+    @Override
+    public InputStream open(String blobId) throws IOException {
+        return Files.newInputStream(path(blobId));
+    }
+
+    @Override
+    public void copyRange(String blobId, long offset, long length, OutputStream out) throws IOException {
+        try (InputStream in = Channels.newInputStream(
+                FileChannel.open(path(blobId), StandardOpenOption.READ).position(offset))) {
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            long remaining = length;
+            while (remaining > 0) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) {
+                    throw new EOFException("Blob %s tronqué à l'offset %d".formatted(blobId, offset + length - remaining));
+                }
+                out.write(buffer, 0, read);
+                remaining -= read;
+            }
+        }
+    }
+
+    @Override
+    public Optional<Path> localFile(String blobId) {
+        return Optional.of(path(blobId));
+    }
+
+    @Override
+    public void delete(String blobId) {
+        try {
+            Files.deleteIfExists(path(blobId));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path path(String blobId) {
+        // Les ids sont des ObjectId hexadécimaux : on refuse tout ce qui pourrait sortir du répertoire
+        if (!ObjectId.isValid(blobId)) {
+            throw new IllegalArgumentException("Identifiant de blob invalide : " + blobId);
+        }
+        return directory.resolve(blobId + ".pdf");
+    }
+}
@@ -0,0 +1,83 @@
+package com.pdfforms.repository;
+
+import com.mongodb.client.gridfs.GridFSBucket;
+import com.mongodb.client.gridfs.GridFSUploadStream;
+import com.mongodb.client.gridfs.model.GridFSUploadOptions;
+import com.pdfforms.model.StoredBlob;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * Blob store adossé à GridFS : les PDFs sont découpés en chunks de 255 Ko,
+ * ce qui lève la limite de 16 Mo par document MongoDB.
+ */
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "pdf-forms.storage.type", havingValue = "gridfs", matchIfMissing = true)
+public class GridFsBlobStore implements BlobStore {
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final GridFSBucket pdfBucket;
+
+    @Override
+    public StoredBlob store(String filename, Map<String, Object> metadata, BlobWriter writer) throws Exception {
+        GridFSUploadOptions options = new GridFSUploadOptions().metadata(new Document(metadata));
+        GridFSUploadStream upload = pdfBucket.openUploadStream(filename, options);
+        HashingOutputStream out = new HashingOutputStream(upload);
+        try {
+            writer.writeTo(out);
+        } catch (Exception e) {
+            upload.abort();
+            throw e;
+        }
+        upload.close();
+
+        StoredBlob blob = StoredBlob.builder()
+                .blobId(upload.getObjectId().toHexString())
+                .length(out.getCount())
+                .sha256(out.getSha256())
+                .build();
+        log.debug("Blob GridFS écrit : {} ({} bytes, id={}).", filename, blob.getLength(), blob.getBlobId());
+        return blob;
+    }
+
+    @Override
+    public InputStream open(String blobId) {
+        return pdfBucket.openDownloadStream(new ObjectId(blobId));
+    }
+
+    @Override
+    public void copyRange(String blobId, long offset, long length, OutputStream out) throws IOException {
+        // GridFSDownloadStream.skip() saute directement au chunk concerné
+        try (InputStream in = open(blobId)) {
+            in.skipNBytes(offset);
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            long remaining = length;
+            while (remaining > 0) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) {
+                    throw new EOFException("Blob %s tronqué à l'offset %d".formatted(blobId, offset + length - remaining));
+                }
+                out.write(buffer, 0, read);
+                remaining -= read;
+            }
+        }
+    }
+
+    @Override
+    public void delete(String blobId) {
+        pdfBucket.delete(new ObjectId(blobId));
+    }
+}
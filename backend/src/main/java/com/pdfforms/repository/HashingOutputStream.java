@@ -0,0 +1,48 @@
+package com.pdfforms.repository;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * OutputStream qui calcule le SHA-256 et compte les octets écrits, sans les conserver.
+ */
+class HashingOutputStream extends FilterOutputStream {
+
+    private final MessageDigest digest;
+    private long count;
+
+    HashingOutputStream(OutputStream out) {
+        super(out);
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        digest.update((byte) b);
+        count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        digest.update(b, off, len);
+        count += len;
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    String getSha256() {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
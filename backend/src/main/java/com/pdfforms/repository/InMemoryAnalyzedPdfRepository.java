@@ -0,0 +1,17 @@
+package com.pdfforms.repository;
+
+import com.pdfforms.model.AnalyzedPdf;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+/**
+ * AnalyzedPdfRepository en mémoire (profil {@code inmemory}).
+ */
+@Repository
+@Profile("inmemory")
+public class InMemoryAnalyzedPdfRepository extends InMemoryMongoRepository<AnalyzedPdf> implements AnalyzedPdfRepository {
+
+    public InMemoryAnalyzedPdfRepository() {
+        super(AnalyzedPdf.class);
+    }
+}
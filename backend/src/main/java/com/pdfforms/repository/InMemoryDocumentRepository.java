@@ -0,0 +1,203 @@
+package com.pdfforms.repository;
+
+import com.pdfforms.model.PdfRevision;
+import com.pdfforms.model.WorkflowDocument;
+import org.bson.Document;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Stream;
+
+/**
+ * DocumentRepository en mémoire (profil {@code inmemory}). Un index workflowId → id remplace
+ * celui de MongoDB ; replaceFlattened, appendMaster et restoreMaster sont des compare-and-set atomiques
+ * sur le document stocké.
+ */
+@Repository
+@Profile("inmemory")
+public class InMemoryDocumentRepository extends InMemoryMongoRepository<WorkflowDocument> implements DocumentRepository {
+
+    private final ConcurrentMap<String, String> idsByWorkflowId = new ConcurrentHashMap<>();
+
+    public InMemoryDocumentRepository() {
+        super(WorkflowDocument.class);
+    }
+
+    @Override
+    public <S extends WorkflowDocument> S save(S document) {
+        super.save(document);
+        idsByWorkflowId.put(document.getWorkflowId(), document.getId());
+        return document;
+    }
+
+    @Override
+    public <S extends WorkflowDocument> S insert(S document) {
+        super.insert(document);
+        idsByWorkflowId.put(document.getWorkflowId(), document.getId());
+        return document;
+    }
+
+    @Override
+    public Optional<WorkflowDocument> findByWorkflowId(String workflowId) {
+        String id = idsByWorkflowId.get(workflowId);
+        return id != null ? findById(id) : Optional.empty();
+    }
+
+    @Override
+    public Optional<WorkflowDocument> findMasterByWorkflowId(String workflowId) {
+        return findProjected(workflowId, "workflowId", "master");
+    }
+
+    @Override
+    public Optional<WorkflowDocument> findFlattenedByWorkflowId(String workflowId) {
+        return findProjected(workflowId, "workflowId", "flattened", "flattenedStale", "master.revision");
+    }
+
+    @Override
+    public long countByFlattenedStaleTrue() {
+        return collection.values().stream()
+                .filter(document -> Boolean.TRUE.equals(document.get("flattenedStale")))
+                .count();
+    }
+
+    @Override
+    public boolean replaceFlattened(String workflowId, int masterRevision, PdfRevision previous, PdfRevision flattened) {
+        String id = idsByWorkflowId.get(workflowId);
+        if (id == null) {
+            return false;
+        }
+        String previousBlobId = previous != null ? previous.getBlobId() : null;
+        boolean[] replaced = {false};
+        collection.computeIfPresent(id, (key, stored) -> {
+            if (!Objects.equals(path(stored, "master.revision"), masterRevision)
+                    || !Objects.equals(path(stored, "flattened.blobId"), previousBlobId)) {
+                return stored;
+            }
+            WorkflowDocument document = fromDocument(stored);
+            document.setFlattened(flattened);
+            document.setFlattenedStale(false);
+            replaced[0] = true;
+            return toDocument(document);
+        });
+        return replaced[0];
+    }
+
+    @Override
+    public boolean appendMaster(String workflowId, PdfRevision previous, PdfRevision master) {
+        String id = idsByWorkflowId.get(workflowId);
+        if (id == null) {
+            return false;
+        }
+        boolean[] appended = {false};
+        collection.computeIfPresent(id, (key, stored) -> {
+            if (!Objects.equals(path(stored, "master.revision"), previous.getRevision())) {
+                return stored;
+            }
+            WorkflowDocument document = fromDocument(stored);
+            document.setMaster(master);
+            document.setFlattenedStale(true);
+            appended[0] = true;
+            return toDocument(document);
+        });
+        return appended[0];
+    }
+
+    @Override
+    public boolean restoreMaster(String workflowId, PdfRevision appended, PdfRevision restored) {
+        String id = idsByWorkflowId.get(workflowId);
+        if (id == null) {
+            return false;
+        }
+        boolean[] done = {false};
+        collection.computeIfPresent(id, (key, stored) -> {
+            if (!Objects.equals(path(stored, "master.revision"), appended.getRevision())) {
+                return stored;
+            }
+            WorkflowDocument document = fromDocument(stored);
+            document.setMaster(restored);
+            document.setFlattenedStale(true);
+            done[0] = true;
+            return toDocument(document);
+        });
+        return done[0];
+    }
+
+    @Override
+    public Optional<WorkflowDocument> findEmbeddedFieldsByWorkflowId(String workflowId) {
+        String id = idsByWorkflowId.get(workflowId);
+        Document stored = id != null ? collection.get(id) : null;
+        if (stored == null || !stored.containsKey("fields")) {
+            return Optional.empty();
+        }
+        return findProjected(workflowId, "workflowId", "fields");
+    }
+
+    @Override
+    public Stream<WorkflowDocument> streamWithEmbeddedFields() {
+        return find(document -> document.containsKey("fields")).stream()
+                .map(document -> WorkflowDocument.builder()
+                        .id(document.getId())
+                        .workflowId(document.getWorkflowId())
+                        .build());
+    }
+
+    @Override
+    public void unsetEmbeddedFields(String workflowId) {
+        String id = idsByWorkflowId.get(workflowId);
+        if (id != null) {
+            collection.computeIfPresent(id, (key, stored) -> {
+                Document updated = new Document(stored);
+                updated.remove("fields");
+                return updated;
+            });
+        }
+    }
+
+    /**
+     * Lecture avec projection : seuls _id et les chemins {@code paths} sont copiés, comme avec fields() dans MongoDB.
+     */
+    private Optional<WorkflowDocument> findProjected(String workflowId, String... paths) {
+        String id = idsByWorkflowId.get(workflowId);
+        Document stored = id != null ? collection.get(id) : null;
+        if (stored == null) {
+            return Optional.empty();
+        }
+        Document projected = new Document("_id", stored.get("_id"));
+        for (String path : paths) {
+            Object value = path(stored, path);
+            if (value == null) {
+                continue;
+            }
+            int dot = path.indexOf('.');
+            if (dot < 0) {
+                projected.put(path, value);
+            } else {
+                ((Document) projected.computeIfAbsent(path.substring(0, dot), key -> new Document()))
+                        .put(path.substring(dot + 1), value);
+            }
+        }
+        return Optional.of(fromDocument(projected));
+    }
+
+    @Override
+    public void deleteById(String id) {
+        super.deleteById(id);
+        idsByWorkflowId.values().remove(id);
+    }
+
+    @Override
+    public void delete(WorkflowDocument document) {
+        super.delete(document);
+        idsByWorkflowId.remove(document.getWorkflowId(), document.getId());
+    }
+
+    @Override
+    public void deleteAll() {
+        super.deleteAll();
+        idsByWorkflowId.clear();
+    }
+}
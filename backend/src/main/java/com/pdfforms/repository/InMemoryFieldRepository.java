@@ -0,0 +1,90 @@
+package com.pdfforms.repository;
+
+import com.pdfforms.model.WorkflowField;
+import org.bson.Document;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * FieldRepository en mémoire (profil {@code inmemory}). Un index (workflowId, assignedTo) → ids
+ * remplace celui de MongoDB.
+ */
+@Repository
+@Profile("inmemory")
+public class InMemoryFieldRepository extends InMemoryMongoRepository<WorkflowField> implements FieldRepository {
+
+    private final ConcurrentMap<String, Set<String>> idsBySigner = new ConcurrentHashMap<>();
+
+    public InMemoryFieldRepository() {
+        super(WorkflowField.class);
+    }
+
+    @Override
+    public <S extends WorkflowField> S save(S field) {
+        super.save(field);
+        index(field);
+        return field;
+    }
+
+    @Override
+    public <S extends WorkflowField> S insert(S field) {
+        super.insert(field);
+        index(field);
+        return field;
+    }
+
+    @Override
+    public List<WorkflowField> findByWorkflowIdAndDefinitionAssignedTo(String workflowId, String assignedTo) {
+        Set<String> ids = idsBySigner.getOrDefault(key(workflowId, assignedTo), Set.of());
+        return ids.stream()
+                .map(this::findById)
+                .flatMap(Optional::stream)
+                .filter(field -> Objects.equals(field.getDefinition().getAssignedTo(), assignedTo))
+                .toList();
+    }
+
+    @Override
+    public void updateValues(List<WorkflowField> fields) {
+        for (WorkflowField field : fields) {
+            collection.computeIfPresent(field.getId(), (key, stored) -> {
+                Document updated = new Document(stored);
+                updated.put("currentValue", field.getDefinition().getCurrentValue());
+                return updated;
+            });
+        }
+    }
+
+    @Override
+    public void deleteById(String id) {
+        super.deleteById(id);
+        idsBySigner.values().forEach(ids -> ids.remove(id));
+    }
+
+    @Override
+    public void delete(WorkflowField field) {
+        super.delete(field);
+        idsBySigner.values().forEach(ids -> ids.remove(field.getId()));
+    }
+
+    @Override
+    public void deleteAll() {
+        super.deleteAll();
+        idsBySigner.clear();
+    }
+
+    private void index(WorkflowField field) {
+        idsBySigner.computeIfAbsent(key(field.getWorkflowId(), field.getDefinition().getAssignedTo()),
+                key -> ConcurrentHashMap.newKeySet()).add(field.getId());
+    }
+
+    private static String key(String workflowId, String assignedTo) {
+        return workflowId + '|' + assignedTo;
+    }
+}
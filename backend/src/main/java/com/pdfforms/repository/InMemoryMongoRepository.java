@@ -0,0 +1,270 @@
+package com.pdfforms.repository;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.repository.query.FluentQuery;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Collection MongoDB simulée en mémoire (profil {@code inmemory}), pour les tests de charge hors ligne.
+ * <p>
+ * Les entités sont stockées sous forme de {@link Document} BSON, converties par le même
+ * MappingMongoConverter que Spring Data : chaque lecture retourne une copie, comme un find MongoDB,
+ * et les modifications d'un objet ne sont visibles qu'après save. Les requêtes par exemple
+ * (Query by Example) ne sont pas supportées.
+ */
+abstract class InMemoryMongoRepository<T> implements MongoRepository<T, String> {
+
+    private static final MongoMappingContext MAPPING_CONTEXT = new MongoMappingContext();
+    private static final MappingMongoConverter CONVERTER;
+
+    static {
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MAPPING_CONTEXT.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        MAPPING_CONTEXT.afterPropertiesSet();
+        CONVERTER = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, MAPPING_CONTEXT);
+        CONVERTER.setCustomConversions(conversions);
+        CONVERTER.afterPropertiesSet();
+    }
+
+    private final Class<T> type;
+    private final MongoPersistentEntity<?> entity;
+    protected final ConcurrentMap<String, Document> collection = new ConcurrentHashMap<>();
+
+    protected InMemoryMongoRepository(Class<T> type) {
+        this.type = type;
+        this.entity = MAPPING_CONTEXT.getRequiredPersistentEntity(type);
+    }
+
+    @Override
+    public <S extends T> S save(S object) {
+        Document document = toDocument(object);
+        collection.put(id(document), document);
+        return object;
+    }
+
+    @Override
+    public <S extends T> S insert(S object) {
+        Document document = toDocument(object);
+        if (collection.putIfAbsent(id(document), document) != null) {
+            throw new DuplicateKeyException("Identifiant déjà présent : " + id(document));
+        }
+        return object;
+    }
+
+    @Override
+    public <S extends T> List<S> insert(Iterable<S> objects) {
+        return stream(objects).map(this::insert).toList();
+    }
+
+    @Override
+    public <S extends T> List<S> saveAll(Iterable<S> objects) {
+        return stream(objects).map(this::save).toList();
+    }
+
+    @Override
+    public Optional<T> findById(String id) {
+        return Optional.ofNullable(collection.get(id)).map(this::fromDocument);
+    }
+
+    @Override
+    public boolean existsById(String id) {
+        return collection.containsKey(id);
+    }
+
+    @Override
+    public List<T> findAll() {
+        return find(document -> true);
+    }
+
+    @Override
+    public List<T> findAllById(Iterable<String> ids) {
+        return stream(ids).map(collection::get)
+                .filter(Objects::nonNull)
+                .map(this::fromDocument)
+                .toList();
+    }
+
+    @Override
+    public List<T> findAll(Sort sort) {
+        return sorted(sort).map(this::fromDocument).toList();
+    }
+
+    @Override
+    public Page<T> findAll(Pageable pageable) {
+        Stream<Document> documents = sorted(pageable.getSort());
+        if (pageable.isPaged()) {
+            documents = documents.skip(pageable.getOffset()).limit(pageable.getPageSize());
+        }
+        return new PageImpl<>(documents.map(this::fromDocument).toList(), pageable, collection.size());
+    }
+
+    @Override
+    public long count() {
+        return collection.size();
+    }
+
+    @Override
+    public void deleteById(String id) {
+        collection.remove(id);
+    }
+
+    @Override
+    public void delete(T object) {
+        Object id = entity.getIdentifierAccessor(object).getIdentifier();
+        if (id != null) {
+            collection.remove(id.toString());
+        }
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends String> ids) {
+        ids.forEach(collection::remove);
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends T> objects) {
+        objects.forEach(this::delete);
+    }
+
+    @Override
+    public void deleteAll() {
+        collection.clear();
+    }
+
+    @Override
+    public <S extends T> Optional<S> findOne(Example<S> example) {
+        throw unsupported();
+    }
+
+    @Override
+    public <S extends T> List<S> findAll(Example<S> example) {
+        throw unsupported();
+    }
+
+    @Override
+    public <S extends T> List<S> findAll(Example<S> example, Sort sort) {
+        throw unsupported();
+    }
+
+    @Override
+    public <S extends T> Page<S> findAll(Example<S> example, Pageable pageable) {
+        throw unsupported();
+    }
+
+    @Override
+    public <S extends T> long count(Example<S> example) {
+        throw unsupported();
+    }
+
+    @Override
+    public <S extends T> boolean exists(Example<S> example) {
+        throw unsupported();
+    }
+
+    @Override
+    public <S extends T, R> R findBy(Example<S> example,
+                                    Function<FluentQuery.FetchableFluentQuery<S>, R> queryFunction) {
+        throw unsupported();
+    }
+
+    /**
+     * Entités dont le document BSON satisfait {@code filter} (parcours complet de la collection).
+     */
+    protected List<T> find(Predicate<Document> filter) {
+        return collection.values().stream().filter(filter).map(this::fromDocument).toList();
+    }
+
+    protected T fromDocument(Document document) {
+        return CONVERTER.read(type, document);
+    }
+
+    /**
+     * Convertit l'entité en BSON, en lui attribuant un ObjectId si elle n'a pas encore d'identifiant.
+     */
+    protected Document toDocument(T object) {
+        var accessor = entity.getPropertyAccessor(object);
+        if (accessor.getProperty(entity.getRequiredIdProperty()) == null) {
+            accessor.setProperty(entity.getRequiredIdProperty(), new ObjectId().toHexString());
+        }
+        Document document = new Document();
+        CONVERTER.write(object, document);
+        return document;
+    }
+
+    /**
+     * Clé du document : les identifiants String au format ObjectId sont stockés en ObjectId par le converter.
+     */
+    protected static String id(Document document) {
+        return document.get("_id").toString();
+    }
+
+    /**
+     * Valeur d'un champ BSON désigné par un chemin pointé (ex : {@code "master.revision"}).
+     */
+    protected static Object path(Document document, String path) {
+        Object value = document;
+        for (String key : path.split("\\.")) {
+            if (!(value instanceof Document nested)) {
+                return null;
+            }
+            value = nested.get(key);
+        }
+        return value;
+    }
+
+    private Stream<Document> sorted(Sort sort) {
+        List<Document> documents = new ArrayList<>(collection.values());
+        Comparator<Document> comparator = null;
+        for (Sort.Order order : sort) {
+            Comparator<Document> next = Comparator.comparing(
+                    (Document document) -> comparable(path(document, order.getProperty())),
+                    Comparator.nullsFirst(Comparator.naturalOrder()));
+            if (order.isDescending()) {
+                next = next.reversed();
+            }
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        if (comparator != null) {
+            documents.sort(comparator);
+        }
+        return documents.stream();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Comparable<Object> comparable(Object value) {
+        return (Comparable<Object>) value;
+    }
+
+    private static <E> Stream<E> stream(Iterable<E> iterable) {
+        return StreamSupport.stream(iterable.spliterator(), false);
+    }
+
+    private UnsupportedOperationException unsupported() {
+        return new UnsupportedOperationException(
+                "Requêtes par exemple non supportées par le dépôt en mémoire (" + type.getSimpleName() + ").");
+    }
+}
@@ -0,0 +1,17 @@
+package com.pdfforms.repository;
+
+import com.pdfforms.model.WorkflowTemplate;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+/**
+ * TemplateRepository en mémoire (profil {@code inmemory}).
+ */
+@Repository
+@Profile("inmemory")
+public class InMemoryTemplateRepository extends InMemoryMongoRepository<WorkflowTemplate> implements TemplateRepository {
+
+    public InMemoryTemplateRepository() {
+        super(WorkflowTemplate.class);
+    }
+}
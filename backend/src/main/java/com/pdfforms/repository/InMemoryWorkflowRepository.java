@@ -0,0 +1,94 @@
+package com.pdfforms.repository;
+
+import com.pdfforms.model.Signer;
+import com.pdfforms.model.SignerStatus;
+import com.pdfforms.model.Workflow;
+import com.pdfforms.model.WorkflowFilter;
+import com.pdfforms.model.WorkflowStatus;
+import org.bson.Document;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * WorkflowRepository en mémoire (profil {@code inmemory}). La pagination parcourt et trie toute la collection ;
+ * advanceSigner est un compare-and-set atomique sur le document stocké.
+ */
+@Repository
+@Profile("inmemory")
+public class InMemoryWorkflowRepository extends InMemoryMongoRepository<Workflow> implements WorkflowRepository {
+
+    private static final Comparator<Workflow> NEWEST_FIRST = Comparator
+            .comparing(Workflow::getUpdatedAt, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(Workflow::getId, Comparator.reverseOrder());
+
+    public InMemoryWorkflowRepository() {
+        super(Workflow.class);
+    }
+
+    @Override
+    public List<Workflow> findBySigners_SignerId(String signerId) {
+        return find(document -> document.getList("signers", Document.class, List.of()).stream()
+                .anyMatch(signer -> signerId.equals(signer.get("signerId"))));
+    }
+
+    @Override
+    public List<Workflow> findPage(WorkflowFilter filter, LocalDateTime afterUpdatedAt, String afterId, int limit) {
+        Predicate<Workflow> matches = matches(filter, true);
+        if (afterUpdatedAt != null) {
+            matches = matches.and(workflow -> workflow.getUpdatedAt() != null
+                    && (workflow.getUpdatedAt().isBefore(afterUpdatedAt)
+                    || workflow.getUpdatedAt().isEqual(afterUpdatedAt) && workflow.getId().compareTo(afterId) < 0));
+        }
+        return findAll().stream().filter(matches).sorted(NEWEST_FIRST).limit(limit).toList();
+    }
+
+    @Override
+    public Map<WorkflowStatus, Long> countByStatus(WorkflowFilter filter) {
+        Map<WorkflowStatus, Long> counts = new EnumMap<>(WorkflowStatus.class);
+        findAll().stream().filter(matches(filter, false))
+                .forEach(workflow -> counts.merge(workflow.getStatus(), 1L, Long::sum));
+        return counts;
+    }
+
+    @Override
+    public Workflow advanceSigner(String workflowId, String signerId, int expectedOrder, int nextOrder,
+                                  boolean completed, LocalDateTime updatedAt) {
+        Workflow[] advanced = {null};
+        collection.computeIfPresent(workflowId, (key, stored) -> {
+            Workflow workflow = fromDocument(stored);
+            Signer signer = workflow.getSigners().stream()
+                    .filter(s -> s.getSignerId().equals(signerId) && s.getStatus() != SignerStatus.SIGNED)
+                    .findFirst()
+                    .orElse(null);
+            if (workflow.getCurrentSignerOrder() != expectedOrder || signer == null) {
+                return stored;
+            }
+            signer.setStatus(SignerStatus.SIGNED);
+            workflow.setCurrentSignerOrder(nextOrder);
+            workflow.setUpdatedAt(updatedAt);
+            if (completed) {
+                workflow.setStatus(WorkflowStatus.COMPLETED);
+            }
+            advanced[0] = workflow;
+            return toDocument(workflow);
+        });
+        return advanced[0];
+    }
+
+    private static Predicate<Workflow> matches(WorkflowFilter filter, boolean withStatus) {
+        String prefix = filter.getNamePrefix() != null ? filter.getNamePrefix().toLowerCase(Locale.ROOT) : null;
+        return workflow -> (!withStatus || filter.getStatus() == null || filter.getStatus() == workflow.getStatus())
+                && (filter.getSignerId() == null || workflow.getSigners().stream()
+                        .map(Signer::getSignerId).anyMatch(filter.getSignerId()::equals))
+                && (prefix == null || workflow.getName() != null
+                        && workflow.getName().toLowerCase(Locale.ROOT).startsWith(prefix));
+    }
+}
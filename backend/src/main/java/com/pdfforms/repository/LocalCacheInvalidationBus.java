@@ -0,0 +1,22 @@
+package com.pdfforms.repository;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Consumer;
+
+/**
+ * Nœud unique : le cache local est invalidé directement, il n'y a rien à diffuser.
+ */
+@Component
+@ConditionalOnProperty(name = "pdf-forms.metadata-cache.invalidation", havingValue = "local", matchIfMissing = true)
+public class LocalCacheInvalidationBus implements CacheInvalidationBus {
+
+    @Override
+    public void publish(Invalidation invalidation) {
+    }
+
+    @Override
+    public void subscribe(Consumer<Invalidation> listener) {
+    }
+}
@@ -0,0 +1,139 @@
+package com.pdfforms.repository;
+
+import com.mongodb.CursorType;
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Invalidations diffusées par la collection plafonnée {@code cache_invalidations} : chaque nœud y
+ * insère les siennes et lit celles des autres avec un curseur tailable (attente côté serveur, pas de
+ * polling). Si le curseur est perdu (coupure, collection qui a tourné), des invalidations ont pu
+ * être manquées : le cache local est vidé entièrement à la reprise.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "pdf-forms.metadata-cache.invalidation", havingValue = "mongo")
+public class MongoCacheInvalidationBus implements CacheInvalidationBus {
+
+    static final String COLLECTION = "cache_invalidations";
+
+    private final MongoTemplate mongoTemplate;
+    private final long cappedBytes;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final List<Consumer<Invalidation>> listeners = new CopyOnWriteArrayList<>();
+    private final Thread tailer = new Thread(this::tail, "cache-invalidations");
+    private volatile boolean running = true;
+    private ObjectId last;
+
+    public MongoCacheInvalidationBus(MongoTemplate mongoTemplate,
+                                     @Value("${pdf-forms.metadata-cache.capped-bytes:1048576}") long cappedBytes) {
+        this.mongoTemplate = mongoTemplate;
+        this.cappedBytes = cappedBytes;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!mongoTemplate.collectionExists(COLLECTION)) {
+            try {
+                mongoTemplate.createCollection(COLLECTION, CollectionOptions.empty().capped().size(cappedBytes));
+            } catch (DataAccessException e) {
+                log.debug("Collection {} créée par un autre nœud : {}", COLLECTION, e.getMessage());
+            }
+        }
+        // Un curseur tailable sur une collection vide est fermé aussitôt : un premier document est toujours présent
+        collection().insertOne(new Document("node", nodeId));
+        last = latestId();
+        tailer.setDaemon(true);
+        tailer.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        tailer.interrupt();
+    }
+
+    @Override
+    public void publish(Invalidation invalidation) {
+        collection().insertOne(new Document("node", nodeId)
+                .append("workflowId", invalidation.workflowId())
+                .append("signerId", invalidation.signerId()));
+    }
+
+    @Override
+    public void subscribe(Consumer<Invalidation> listener) {
+        listeners.add(listener);
+    }
+
+    private void tail() {
+        while (running) {
+            try (MongoCursor<Document> cursor = collection().find(Filters.gt("_id", last))
+                    .cursorType(CursorType.TailableAwait)
+                    .maxAwaitTime(1, TimeUnit.SECONDS)
+                    .noCursorTimeout(true)
+                    .iterator()) {
+                while (running) {
+                    Document message = cursor.tryNext();
+                    if (message == null) {
+                        if (cursor.getServerCursor() == null) {
+                            throw new IllegalStateException("curseur tailable fermé par le serveur");
+                        }
+                        continue;
+                    }
+                    last = message.getObjectId("_id");
+                    if (!nodeId.equals(message.getString("node")) && message.containsKey("workflowId")) {
+                        dispatch(new Invalidation(message.getString("workflowId"), message.getString("signerId")));
+                    }
+                }
+            } catch (MongoException | IllegalStateException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Lecture des invalidations de cache interrompue, cache vidé : {}", e.getMessage());
+                dispatch(ALL);
+                sleepQuietly();
+            }
+        }
+    }
+
+    private ObjectId latestId() {
+        Document latest = collection().find().sort(Sorts.descending("$natural")).limit(1).first();
+        return latest != null ? latest.getObjectId("_id") : new ObjectId();
+    }
+
+    private void dispatch(Invalidation invalidation) {
+        listeners.forEach(listener -> listener.accept(invalidation));
+    }
+
+    private MongoCollection<Document> collection() {
+        return mongoTemplate.getCollection(COLLECTION);
+    }
+
+    private void sleepQuietly() {
+        try {
+            Thread.sleep(1_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.pdfforms.repository;
+
+import com.pdfforms.model.WorkflowTemplate;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface TemplateRepository extends MongoRepository<WorkflowTemplate, String> {
+}
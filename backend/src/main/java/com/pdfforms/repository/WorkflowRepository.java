@@ -5,7 +5,7 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 
 import java.util.List;
 
-public interface WorkflowRepository extends MongoRepository<Workflow, String> {
+public interface WorkflowRepository extends MongoRepository<Workflow, String>, WorkflowRepositoryCustom {
 
     /**
      * Trouve les workflows contenant un signataire avec l'ID donné.
@@ -0,0 +1,38 @@
+package com.pdfforms.repository;
+
+import com.pdfforms.model.Workflow;
+import com.pdfforms.model.WorkflowFilter;
+import com.pdfforms.model.WorkflowStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Liste paginée des workflows, implémentée avec MongoTemplate.
+ */
+public interface WorkflowRepositoryCustom {
+
+    /**
+     * Au plus {@code limit} workflows correspondant à {@code filter}, triés par (updatedAt, id) décroissants,
+     * situés après la position ({@code afterUpdatedAt}, {@code afterId}) si elle est fournie (pagination
+     * par curseur : le coût ne dépend pas de la profondeur de la page). Seuls les champs du résumé sont lus.
+     */
+    List<Workflow> findPage(WorkflowFilter filter, LocalDateTime afterUpdatedAt, String afterId, int limit);
+
+    /**
+     * Nombre de workflows par statut parmi ceux correspondant aux filtres signataire et nom
+     * (le filtre de statut est ignoré : ce sont les compteurs des onglets).
+     */
+    Map<WorkflowStatus, Long> countByStatus(WorkflowFilter filter);
+
+    /**
+     * Marque {@code signerId} comme ayant signé et passe le tour à {@code nextOrder} (statut COMPLETED
+     * si {@code completed}), à condition que le tour soit toujours à {@code expectedOrder} et que le
+     * signataire n'ait pas déjà signé (compare-and-set). Seuls ces champs et updatedAt sont écrits.
+     *
+     * @return le workflow mis à jour, ou null si la condition n'est plus vérifiée
+     */
+    Workflow advanceSigner(String workflowId, String signerId, int expectedOrder, int nextOrder,
+                           boolean completed, LocalDateTime updatedAt);
+}
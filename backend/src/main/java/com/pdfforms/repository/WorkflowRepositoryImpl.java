@@ -0,0 +1,94 @@
+package com.pdfforms.repository;
+
+import com.pdfforms.model.SignerStatus;
+import com.pdfforms.model.Workflow;
+import com.pdfforms.model.WorkflowFilter;
+import com.pdfforms.model.WorkflowStatus;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+@RequiredArgsConstructor
+class WorkflowRepositoryImpl implements WorkflowRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public List<Workflow> findPage(WorkflowFilter filter, LocalDateTime afterUpdatedAt, String afterId, int limit) {
+        List<Criteria> criteria = criteria(filter, true);
+        if (afterUpdatedAt != null) {
+            // Keyset : (updatedAt, _id) < (afterUpdatedAt, afterId), parcours de l'index *_updated_id.
+            // Les _id sont stockés en ObjectId : le QueryMapper ne convertit pas la chaîne sous $lt.
+            criteria.add(new Criteria().orOperator(
+                    Criteria.where("updatedAt").lt(afterUpdatedAt),
+                    Criteria.where("updatedAt").is(afterUpdatedAt).and("id").lt(new ObjectId(afterId))));
+        }
+        Query query = new Query(and(criteria))
+                .with(Sort.by(Sort.Direction.DESC, "updatedAt", "id"))
+                .limit(limit);
+        query.fields().include("name", "pdfOriginalName", "status", "signers", "currentSignerOrder",
+                "createdAt", "updatedAt");
+        return mongoTemplate.find(query, Workflow.class);
+    }
+
+    @Override
+    public Map<WorkflowStatus, Long> countByStatus(WorkflowFilter filter) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(and(criteria(filter, false))),
+                Aggregation.group("status").count().as("count"));
+        Map<WorkflowStatus, Long> counts = new EnumMap<>(WorkflowStatus.class);
+        for (Document group : mongoTemplate.aggregate(aggregation, Workflow.class, Document.class)) {
+            counts.put(WorkflowStatus.valueOf(group.getString("_id")), ((Number) group.get("count")).longValue());
+        }
+        return counts;
+    }
+
+    @Override
+    public Workflow advanceSigner(String workflowId, String signerId, int expectedOrder, int nextOrder,
+                                  boolean completed, LocalDateTime updatedAt) {
+        Query query = Query.query(Criteria.where("id").is(workflowId)
+                .and("currentSignerOrder").is(expectedOrder)
+                .and("signers").elemMatch(Criteria.where("signerId").is(signerId).and("status").ne(SignerStatus.SIGNED)));
+        // signers.$ : le signataire trouvé par le $elemMatch de la requête
+        Update update = new Update()
+                .set("signers.$.status", SignerStatus.SIGNED)
+                .set("currentSignerOrder", nextOrder)
+                .set("updatedAt", updatedAt);
+        if (completed) {
+            update.set("status", WorkflowStatus.COMPLETED);
+        }
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), Workflow.class);
+    }
+
+    private static List<Criteria> criteria(WorkflowFilter filter, boolean withStatus) {
+        List<Criteria> criteria = new ArrayList<>();
+        if (withStatus && filter.getStatus() != null) {
+            criteria.add(Criteria.where("status").is(filter.getStatus()));
+        }
+        if (filter.getSignerId() != null) {
+            criteria.add(Criteria.where("signers.signerId").is(filter.getSignerId()));
+        }
+        if (filter.getNamePrefix() != null) {
+            criteria.add(Criteria.where("name").regex("^" + Pattern.quote(filter.getNamePrefix()), "i"));
+        }
+        return criteria;
+    }
+
+    private static Criteria and(List<Criteria> criteria) {
+        return criteria.isEmpty() ? new Criteria() : new Criteria().andOperator(criteria);
+    }
+}
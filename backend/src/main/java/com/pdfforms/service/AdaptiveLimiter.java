@@ -0,0 +1,165 @@
+package com.pdfforms.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limite de concurrence adaptative (AIMD) avec file d'attente bornée.
+ * <p>
+ * La latence de chaque opération réussie alimente deux moyennes mobiles : une courte (tendance
+ * actuelle) et une référence, qui suit les baisses immédiatement mais ne peut que doubler en 5 minutes
+ * (une surcharge durable n'est pas prise pour la nouvelle normale). Si la courte dépasse {@code tolerance} fois la référence,
+ * la limite est réduite de 20 % (au plus une fois par latence observée) ; sinon, tant que la
+ * limite est atteinte, elle augmente d'environ 1 par fenêtre de {@code limit} opérations.
+ * Au-delà de la limite, les appelants attendent dans une file FIFO bornée ; file pleine ou
+ * attente trop longue : 429 avec un Retry-After estimé sur la latence courante.
+ */
+class AdaptiveLimiter {
+
+    private static final double SHORT_ALPHA = 0.3;
+    /** La référence peut au plus doubler sur cette durée : le temps de s'adapter à des documents plus lourds. */
+    private static final long BASELINE_HORIZON_NANOS = TimeUnit.MINUTES.toNanos(5);
+    private static final double BACKOFF = 0.8;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final int queueCapacity;
+    private final long maxWaitNanos;
+    private final double tolerance;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+
+    private double limit;
+    private int inFlight;
+    private int waiting;
+    /** Moyennes mobiles de la latence, en nanosecondes ; 0 tant qu'aucune mesure. */
+    private double shortLatency;
+    private double baseLatency;
+    private long lastDecrease;
+    private long lastSample;
+
+    AdaptiveLimiter(String name, int maxLimit, int queueCapacity, long maxWaitMs, double tolerance) {
+        this.name = name;
+        this.minLimit = 1;
+        this.maxLimit = Math.max(1, maxLimit);
+        this.queueCapacity = queueCapacity;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        this.tolerance = tolerance;
+        this.limit = this.maxLimit;
+    }
+
+    /**
+     * Obtient une place, en attendant si la limite est atteinte. Retourne l'instant de départ
+     * à passer à {@link #release}.
+     */
+    long acquire() throws InterruptedException {
+        lock.lock();
+        try {
+            if (inFlight >= (int) limit) {
+                if (waiting >= queueCapacity) {
+                    throw rejected();
+                }
+                waiting++;
+                try {
+                    long remaining = maxWaitNanos;
+                    while (inFlight >= (int) limit) {
+                        if (remaining <= 0) {
+                            throw rejected();
+                        }
+                        remaining = available.awaitNanos(remaining);
+                    }
+                } finally {
+                    waiting--;
+                }
+            }
+            inFlight++;
+            return System.nanoTime();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Rend la place. Seules les opérations réussies ajustent la limite : un échec rapide
+     * ne doit pas faire croire que le service est peu chargé.
+     */
+    void release(long startNanos, boolean success) {
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            boolean saturated = inFlight >= (int) limit;
+            inFlight--;
+            int before = (int) limit;
+            if (success) {
+                adjust(now - startNanos, saturated, now);
+            }
+            if ((int) limit > before) {
+                available.signalAll();
+            } else {
+                available.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int inFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int waiting() {
+        lock.lock();
+        try {
+            return waiting;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int limit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void adjust(long latency, boolean saturated, long now) {
+        if (baseLatency == 0) {
+            shortLatency = baseLatency = latency;
+            lastSample = now;
+            return;
+        }
+        shortLatency += SHORT_ALPHA * (latency - shortLatency);
+        // La référence suit immédiatement une baisse, et ne remonte que lentement
+        double drift = 1 + (double) (now - lastSample) / BASELINE_HORIZON_NANOS;
+        baseLatency = Math.min(shortLatency, baseLatency * drift);
+        lastSample = now;
+
+        if (shortLatency > tolerance * baseLatency) {
+            if (now - lastDecrease > shortLatency) {
+                limit = Math.max(minLimit, limit * BACKOFF);
+                lastDecrease = now;
+            }
+        } else if (saturated) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    private TooManyRequestsException rejected() {
+        // Temps estimé pour écouler la file actuelle au rythme courant
+        double perSlotNanos = shortLatency / Math.max(1, (int) limit);
+        long retryAfter = (long) Math.ceil((waiting + 1) * perSlotNanos / 1e9);
+        return new TooManyRequestsException(
+                "Serveur saturé (%s), réessayez dans quelques instants.".formatted(name), retryAfter);
+    }
+}
@@ -0,0 +1,118 @@
+package com.pdfforms.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Contrôle d'admission des opérations PDFBox coûteuses en CPU.
+ * <p>
+ * Chaque classe d'opération a sa propre limite de concurrence, ajustée selon la latence observée
+ * ({@link AdaptiveLimiter}), et sa propre file d'attente bornée : une rafale de créations ne
+ * bloque ni les signatures ni les threads Tomcat des endpoints légers. File pleine : 429 + Retry-After.
+ * <p>
+ * Configuration par classe : {@code pdf-forms.admission.<classe>.max-concurrency} et
+ * {@code .queue-capacity} ; {@code pdf-forms.admission.max-wait-ms} et {@code latency-tolerance}
+ * sont communs.
+ */
+@Slf4j
+@Component
+public class AdmissionControl {
+
+    public enum Operation {
+        CREATE(16), SIGN(200), FLATTEN(100), ANALYZE(16), RENDER(64);
+
+        private final int defaultQueueCapacity;
+
+        Operation(int defaultQueueCapacity) {
+            this.defaultQueueCapacity = defaultQueueCapacity;
+        }
+
+        public String key() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    @FunctionalInterface
+    public interface Task {
+        void run() throws Exception;
+    }
+
+    private final PdfMetrics metrics;
+    private final Map<Operation, AdaptiveLimiter> limiters = new EnumMap<>(Operation.class);
+
+    public AdmissionControl(Environment environment, PdfMetrics metrics) {
+        this.metrics = metrics;
+        int processors = Runtime.getRuntime().availableProcessors();
+        long maxWaitMs = environment.getProperty("pdf-forms.admission.max-wait-ms", Long.class, 30_000L);
+        double tolerance = environment.getProperty("pdf-forms.admission.latency-tolerance", Double.class, 2.0);
+        for (Operation operation : Operation.values()) {
+            String prefix = "pdf-forms.admission." + operation.key();
+            int maxConcurrency = environment.getProperty(prefix + ".max-concurrency", Integer.class, processors);
+            int queueCapacity = environment.getProperty(prefix + ".queue-capacity", Integer.class,
+                    operation.defaultQueueCapacity);
+            limiters.put(operation,
+                    new AdaptiveLimiter(operation.key(), maxConcurrency, queueCapacity, maxWaitMs, tolerance));
+            log.debug("Admission {} : {} opérations simultanées au plus, file de {}.",
+                    operation.key(), maxConcurrency, queueCapacity);
+        }
+    }
+
+    /**
+     * Exécute {@code work} sur le thread appelant dès qu'une place est libre pour {@code operation}.
+     * Lève {@link TooManyRequestsException} si la file est pleine ou l'attente trop longue.
+     */
+    public <T> T call(Operation operation, Callable<T> work) throws Exception {
+        AdaptiveLimiter limiter = limiters.get(operation);
+        long requested = System.nanoTime();
+        long start;
+        try {
+            start = limiter.acquire();
+        } catch (TooManyRequestsException e) {
+            metrics.rejected(operation.key());
+            throw e;
+        }
+        metrics.record(operation.key(), "admission-wait", start - requested);
+        boolean success = false;
+        try {
+            T result = work.call();
+            success = true;
+            return result;
+        } finally {
+            limiter.release(start, success);
+        }
+    }
+
+    /**
+     * Opérations en cours d'exécution pour {@code operation}.
+     */
+    public int inFlight(Operation operation) {
+        return limiters.get(operation).inFlight();
+    }
+
+    /**
+     * Opérations en attente d'une place pour {@code operation}.
+     */
+    public int waiting(Operation operation) {
+        return limiters.get(operation).waiting();
+    }
+
+    /**
+     * Limite de concurrence courante pour {@code operation}.
+     */
+    public int limit(Operation operation) {
+        return limiters.get(operation).limit();
+    }
+
+    public void run(Operation operation, Task work) throws Exception {
+        call(operation, () -> {
+            work.run();
+            return null;
+        });
+    }
+}
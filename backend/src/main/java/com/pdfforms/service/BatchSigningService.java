@@ -0,0 +1,308 @@
+package com.pdfforms.service;
+
+import com.pdfforms.dto.BatchSignItemResult;
+import com.pdfforms.dto.BatchSignRequest;
+import com.pdfforms.dto.FillAndSignRequest;
+import com.pdfforms.model.Signer;
+import com.pdfforms.model.SignerStatus;
+import com.pdfforms.model.Workflow;
+import com.pdfforms.repository.WorkflowRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Signature en lot : un signataire termine son tour sur plusieurs workflows en une requête.
+ * <p>
+ * Le tour de parole est vérifié pour tous les workflows en une seule requête indexée
+ * (signers.signerId), puis les signatures valides passent par le SigningJobService :
+ * elles restent sérialisées par workflow et s'exécutent en parallèle sur le pool de signature.
+ * Au plus {@code batch-parallelism} signatures d'un même lot sont en file à la fois, pour
+ * ne pas saturer la file globale. Chaque résultat est transmis dès qu'il est connu, par le pool
+ * {@code batchWriterExecutor} : les threads de signature n'écrivent jamais dans la connexion d'un
+ * client, si bien qu'un client lent ne retarde que son propre lot.
+ */
+@Slf4j
+@Service
+public class BatchSigningService {
+
+    private final WorkflowRepository workflowRepository;
+    private final SigningJobService signingJobService;
+    private final TaskExecutor batchWriterExecutor;
+    private final int maxItems;
+    private final int parallelism;
+
+    public BatchSigningService(WorkflowRepository workflowRepository,
+                               SigningJobService signingJobService,
+                               @Qualifier("batchWriterExecutor") TaskExecutor batchWriterExecutor,
+                               @Value("${pdf-forms.signing.batch-max-items:500}") int maxItems,
+                               @Value("${pdf-forms.signing.batch-parallelism:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") int parallelism) {
+        this.workflowRepository = workflowRepository;
+        this.signingJobService = signingJobService;
+        this.batchWriterExecutor = batchWriterExecutor;
+        this.maxItems = maxItems;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Valide le lot puis lance les signatures. Retourne immédiatement ; {@code sink} reçoit un résultat
+     * par élément, puis {@code onComplete} est appelé une fois, sur le pool d'écriture des lots et un
+     * appel à la fois. Lève 400 si le lot est invalide dans son ensemble (workflow en double compris).
+     */
+    public void signAll(BatchSignRequest request, Consumer<BatchSignItemResult> sink, Runnable onComplete) {
+        if (request.getSignerName() == null || request.getItems() == null || request.getItems().isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Signataire et workflows requis.");
+        }
+        if (request.getItems().size() > maxItems) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Lot trop volumineux : %d workflows au maximum.".formatted(maxItems));
+        }
+        Set<String> seen = new HashSet<>();
+        for (BatchSignRequest.Item item : request.getItems()) {
+            if (!seen.add(item.getWorkflowId())) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Workflow présent plusieurs fois dans le lot : " + item.getWorkflowId());
+            }
+        }
+
+        String signerId = WorkflowService.slugify(request.getSignerName());
+        Map<String, Workflow> workflows = workflowRepository.findBySigners_SignerId(signerId).stream()
+                .collect(Collectors.toMap(Workflow::getId, Function.identity()));
+        log.info("Lot de {} signatures pour signerId='{}' ({} workflows le concernent).",
+                request.getItems().size(), signerId, workflows.size());
+
+        // Workflows absents de la requête : distingue un workflow inexistant (404) d'un signataire étranger (403)
+        Set<String> existing = new HashSet<>(workflows.keySet());
+        List<String> unmatched = request.getItems().stream()
+                .map(BatchSignRequest.Item::getWorkflowId)
+                .filter(id -> !workflows.containsKey(id))
+                .distinct()
+                .toList();
+        if (!unmatched.isEmpty()) {
+            workflowRepository.findAllById(unmatched).forEach(workflow -> existing.add(workflow.getId()));
+        }
+
+        BatchOutput output = new BatchOutput(sink, onComplete);
+        List<BatchSignRequest.Item> accepted = new ArrayList<>();
+        for (BatchSignRequest.Item item : request.getItems()) {
+            ResponseStatusException rejection = checkTurn(item.getWorkflowId(), workflows.get(item.getWorkflowId()),
+                    existing.contains(item.getWorkflowId()), signerId);
+            if (rejection != null) {
+                output.offer(BatchSignItemResult.builder()
+                        .workflowId(item.getWorkflowId())
+                        .status("REJECTED")
+                        .httpStatus(rejection.getStatusCode().value())
+                        .error(rejection.getReason())
+                        .build());
+            } else {
+                accepted.add(item);
+            }
+        }
+
+        if (accepted.isEmpty()) {
+            output.close();
+            return;
+        }
+        new Batch(request.getSignerName(), accepted, output).launch();
+    }
+
+    /**
+     * Motif de refus si ce n'est pas le tour de {@code signerId} sur ce workflow, null sinon.
+     */
+    private ResponseStatusException checkTurn(String workflowId, Workflow workflow, boolean exists, String signerId) {
+        if (workflow == null) {
+            return exists
+                    ? new ResponseStatusException(HttpStatus.FORBIDDEN, "Signataire inconnu dans ce workflow.")
+                    : new ResponseStatusException(HttpStatus.NOT_FOUND, "Workflow introuvable : " + workflowId);
+        }
+        Signer signer = workflow.getSigners().stream()
+                .filter(s -> s.getSignerId().equals(signerId))
+                .findFirst()
+                .orElseThrow();
+        if (signer.getStatus() == SignerStatus.SIGNED) {
+            return new ResponseStatusException(HttpStatus.FORBIDDEN, "Vous avez déjà signé ce document.");
+        }
+        if (signer.getOrder() != workflow.getCurrentSignerOrder()) {
+            return new ResponseStatusException(HttpStatus.FORBIDDEN, "Ce n'est pas votre tour de signer.");
+        }
+        return null;
+    }
+
+    private CompletableFuture<BatchSignItemResult> sign(String signerName, BatchSignRequest.Item item) {
+        FillAndSignRequest request = new FillAndSignRequest();
+        request.setSignerName(signerName);
+        request.setFields(item.getFields());
+
+        try {
+            return signingJobService.submitAsync(item.getWorkflowId(), request)
+                    .handle((result, error) -> error == null
+                            ? BatchSignItemResult.builder()
+                                    .workflowId(item.getWorkflowId())
+                                    .status("SIGNED")
+                                    .httpStatus(HttpStatus.OK.value())
+                                    .workflowStatus((String) result.get("workflowStatus"))
+                                    .completed(Boolean.TRUE.equals(result.get("completed")))
+                                    .build()
+                            : failure(item, error));
+        } catch (ResponseStatusException e) {
+            // File de signature pleine (429)
+            return CompletableFuture.completedFuture(failure(item, e));
+        }
+    }
+
+    private BatchSignItemResult failure(BatchSignRequest.Item item, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        BatchSignItemResult.BatchSignItemResultBuilder result = BatchSignItemResult.builder()
+                .workflowId(item.getWorkflowId())
+                .status("FAILED");
+        if (cause instanceof ResponseStatusException rse) {
+            return result.httpStatus(rse.getStatusCode().value()).error(rse.getReason()).build();
+        }
+        return result.httpStatus(HttpStatus.INTERNAL_SERVER_ERROR.value()).error("Erreur lors de la signature.").build();
+    }
+
+    /**
+     * Signatures d'un lot en cours : au plus {@code parallelism} en file à la fois, la suivante étant
+     * lancée à la fin de la précédente. Les lancements se font en boucle, jamais par récursion : une
+     * signature refusée sur-le-champ (429) ne fait pas grandir la pile de l'appelant.
+     */
+    private final class Batch {
+        private final String signerName;
+        private final Iterator<BatchSignRequest.Item> items;
+        private final int total;
+        private final BatchOutput output;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger done = new AtomicInteger();
+        /** Demandes de lancement ; seul le thread qui la fait passer de 0 à 1 parcourt les éléments. */
+        private final AtomicInteger launchRequests = new AtomicInteger();
+
+        Batch(String signerName, List<BatchSignRequest.Item> items, BatchOutput output) {
+            this.signerName = signerName;
+            this.items = items.iterator();
+            this.total = items.size();
+            this.output = output;
+        }
+
+        void launch() {
+            if (launchRequests.getAndIncrement() != 0) {
+                return; // le thread en cours de lancement refera un tour
+            }
+            do {
+                while (inFlight.get() < parallelism && items.hasNext()) {
+                    inFlight.incrementAndGet();
+                    sign(signerName, items.next()).thenAccept(this::signed);
+                }
+            } while (launchRequests.decrementAndGet() != 0);
+        }
+
+        private void signed(BatchSignItemResult result) {
+            output.offer(result);
+            inFlight.decrementAndGet();
+            if (done.incrementAndGet() == total) {
+                output.close();
+            } else {
+                launch();
+            }
+        }
+    }
+
+    /**
+     * Résultats d'un lot en attente d'écriture. La file est bornée par la taille du lot
+     * ({@code batch-max-items}) ; une seule tâche d'écriture à la fois la vide, dans l'ordre, sur
+     * {@code batchWriterExecutor}. Si ce pool refuse la tâche, les résultats restants du lot sont
+     * abandonnés (les signatures se poursuivent) et la réponse se termine à son expiration.
+     */
+    private final class BatchOutput {
+        private final Consumer<BatchSignItemResult> sink;
+        private final Runnable onComplete;
+        private final Deque<BatchSignItemResult> pending = new ArrayDeque<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private boolean closed;
+        private boolean completed;
+        private volatile boolean abandoned;
+
+        BatchOutput(Consumer<BatchSignItemResult> sink, Runnable onComplete) {
+            this.sink = sink;
+            this.onComplete = onComplete;
+        }
+
+        void offer(BatchSignItemResult result) {
+            synchronized (pending) {
+                pending.addLast(result);
+            }
+            scheduleDrain();
+        }
+
+        void close() {
+            synchronized (pending) {
+                closed = true;
+            }
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (abandoned || !draining.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                batchWriterExecutor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                abandoned = true;
+                log.warn("Pool d'écriture des lots saturé : résultats du lot non transmis.");
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                BatchSignItemResult result;
+                boolean finish = false;
+                synchronized (pending) {
+                    result = pending.pollFirst();
+                    if (result == null) {
+                        if (closed && !completed) {
+                            completed = true;
+                            finish = true;
+                        } else {
+                            draining.set(false);
+                            break;
+                        }
+                    }
+                }
+                if (finish) {
+                    onComplete.run();
+                    return; // dernier appel du lot : draining reste levé
+                }
+                sink.accept(result);
+            }
+            // résultat déposé entre la file vide et la libération de draining
+            boolean refilled;
+            synchronized (pending) {
+                refilled = !pending.isEmpty() || (closed && !completed);
+            }
+            if (refilled) {
+                scheduleDrain();
+            }
+        }
+    }
+}
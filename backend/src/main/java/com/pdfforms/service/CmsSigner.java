@@ -0,0 +1,104 @@
+package com.pdfforms.service;
+
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.cms.CMSObjectIdentifiers;
+import org.bouncycastle.cert.jcajce.JcaCertStore;
+import org.bouncycastle.cms.CMSSignedDataGenerator;
+import org.bouncycastle.cms.CMSTypedData;
+import org.bouncycastle.cms.SignerInfoGenerator;
+import org.bouncycastle.cms.jcajce.JcaSignerInfoGeneratorBuilder;
+import org.bouncycastle.operator.DigestCalculatorProvider;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Génère les signatures CMS/PKCS#7 détachées des PDFs.
+ * <p>
+ * Le contenu signé (ByteRange fourni par PDFBox) est digéré en flux, sans être copié en mémoire.
+ * Le contexte de signature (certificats, fournisseur de digest) est construit une fois par couple
+ * clé/certificat ; le SignerInfoGenerator, qui porte un état de signature, est propre à chaque thread.
+ */
+@Component
+public class CmsSigner {
+
+    private final Map<Key, Context> contexts = new ConcurrentHashMap<>();
+
+    public byte[] sign(InputStream content, PrivateKey privateKey, X509Certificate certificate) throws Exception {
+        Context context = contexts.computeIfAbsent(new Key(privateKey, certificate), Context::new);
+        SignerInfoGenerator signerInfoGenerator = context.signerInfoGenerator.get();
+        try {
+            CMSSignedDataGenerator gen = new CMSSignedDataGenerator();
+            gen.addSignerInfoGenerator(signerInfoGenerator);
+            gen.addCertificates(context.certStore);
+            return gen.generate(new StreamingContent(content), false).getEncoded(); // false = signature détachée
+        } catch (Exception e) {
+            // Un digest ou une signature interrompus laissent un état partiel : on reconstruit au prochain appel
+            context.signerInfoGenerator.remove();
+            throw e;
+        }
+    }
+
+    private record Key(PrivateKey privateKey, X509Certificate certificate) {
+    }
+
+    private static final class Context {
+        final JcaCertStore certStore;
+        final DigestCalculatorProvider digestProvider;
+        final ThreadLocal<SignerInfoGenerator> signerInfoGenerator;
+
+        Context(Key key) {
+            try {
+                this.certStore = new JcaCertStore(List.of(key.certificate()));
+                this.digestProvider = new JcaDigestCalculatorProviderBuilder().setProvider("BC").build();
+            } catch (Exception e) {
+                throw new IllegalStateException("Contexte de signature CMS invalide", e);
+            }
+            this.signerInfoGenerator = ThreadLocal.withInitial(() -> {
+                try {
+                    return new JcaSignerInfoGeneratorBuilder(digestProvider).build(
+                            new JcaContentSignerBuilder("SHA256withRSA").setProvider("BC").build(key.privateKey()),
+                            key.certificate());
+                } catch (Exception e) {
+                    throw new IllegalStateException("Construction du SignerInfoGenerator impossible", e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Contenu CMS lu une seule fois depuis un flux : le générateur le recopie directement
+     * dans les flux de digest.
+     */
+    private static final class StreamingContent implements CMSTypedData {
+        private final InputStream content;
+
+        StreamingContent(InputStream content) {
+            this.content = content;
+        }
+
+        @Override
+        public ASN1ObjectIdentifier getContentType() {
+            return CMSObjectIdentifiers.data;
+        }
+
+        @Override
+        public void write(OutputStream out) throws IOException {
+            content.transferTo(out);
+        }
+
+        @Override
+        public Object getContent() {
+            return content;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.pdfforms.service;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSNull;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Copie profonde d'objets COS vers un autre document : stream d'apparence d'un widget et ses
+ * ressources (polices, XObjects). Un objet déjà copié est réutilisé, si bien qu'une police partagée
+ * par plusieurs widgets n'est copiée qu'une fois et qu'une référence circulaire ne boucle pas.
+ * Les streams sont recopiés encodés, filtres compris. Les liens vers l'arborescence des pages
+ * (/P, /Parent) ne sont pas suivis : ils entraîneraient la copie du document source.
+ */
+class CosObjectCopier {
+
+    private final PDDocument target;
+    private final Map<COSBase, COSBase> copies = new IdentityHashMap<>();
+
+    CosObjectCopier(PDDocument target) {
+        this.target = target;
+    }
+
+    COSStream copy(COSStream stream) throws IOException {
+        return (COSStream) copyObject(stream);
+    }
+
+    private COSBase copyObject(COSBase base) throws IOException {
+        if (base instanceof COSObject reference) {
+            base = reference.getObject();
+        }
+        if (base == null) {
+            return COSNull.NULL;
+        }
+        COSBase existing = copies.get(base);
+        if (existing != null) {
+            return existing;
+        }
+
+        if (base instanceof COSStream stream) {
+            COSStream copy = target.getDocument().createCOSStream();
+            copies.put(stream, copy);
+            copyEntries(stream, copy);
+            if (stream.hasData()) {
+                try (InputStream in = stream.createRawInputStream();
+                     OutputStream out = copy.createRawOutputStream()) {
+                    in.transferTo(out);
+                }
+            }
+            return copy;
+        }
+        if (base instanceof COSDictionary dictionary) {
+            COSDictionary copy = new COSDictionary();
+            copies.put(dictionary, copy);
+            copyEntries(dictionary, copy);
+            return copy;
+        }
+        if (base instanceof COSArray array) {
+            COSArray copy = new COSArray();
+            copies.put(array, copy);
+            for (int i = 0; i < array.size(); i++) {
+                copy.add(copyObject(array.get(i)));
+            }
+            return copy;
+        }
+        // Nombres, noms, chaînes, booléens, null : partagés tels quels
+        return base;
+    }
+
+    private void copyEntries(COSDictionary source, COSDictionary copy) throws IOException {
+        for (Map.Entry<COSName, COSBase> entry : source.entrySet()) {
+            COSName key = entry.getKey();
+            if (COSName.P.equals(key) || COSName.PARENT.equals(key)) {
+                continue;
+            }
+            // La longueur d'un stream est recalculée à l'écriture de ses octets
+            if (copy instanceof COSStream && COSName.LENGTH.equals(key)) {
+                continue;
+            }
+            copy.setItem(key, copyObject(entry.getValue()));
+        }
+    }
+}
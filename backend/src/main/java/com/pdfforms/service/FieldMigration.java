@@ -0,0 +1,170 @@
+package com.pdfforms.service;
+
+import com.pdfforms.model.FieldDefinition;
+import com.pdfforms.model.WorkflowDocument;
+import com.pdfforms.model.WorkflowField;
+import com.pdfforms.repository.DocumentRepository;
+import com.pdfforms.repository.FieldRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Migration des champs embarqués dans WorkflowDocument (documents créés avant la collection
+ * {@code fields}) vers la collection {@code fields}.
+ * <p>
+ * Lancée en tâche de fond au démarrage, sur le pool {@code migrationExecutor} (arrêté avec
+ * l'application, la migration s'interrompt alors entre deux workflows), puis relancée périodiquement
+ * tant qu'elle n'a pas abouti. Tant qu'elle n'est pas terminée, MetadataCache migre à la demande
+ * le workflow dont il lit les champs : un signataire ne voit jamais un formulaire vide.
+ * La migration est idempotente : chaque champ reçoit un identifiant déterministe (workflowId et rang
+ * dans le document) et n'est inséré que s'il n'existe pas encore. Une migration interrompue, ou
+ * lancée en même temps par plusieurs nœuds, ne duplique ni n'écrase donc aucune valeur ; la liste
+ * embarquée n'est supprimée qu'une fois tous ses champs insérés.
+ */
+@Slf4j
+@Component
+public class FieldMigration {
+
+    private final DocumentRepository documentRepository;
+    private final FieldRepository fieldRepository;
+    private final TaskExecutor migrationExecutor;
+
+    private volatile boolean complete;
+    /** Une migration est planifiée ou en cours : une relance ne la duplique pas. */
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public FieldMigration(DocumentRepository documentRepository,
+                          FieldRepository fieldRepository,
+                          @Qualifier("migrationExecutor") TaskExecutor migrationExecutor) {
+        this.documentRepository = documentRepository;
+        this.fieldRepository = fieldRepository;
+        this.migrationExecutor = migrationExecutor;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void start() {
+        schedule();
+    }
+
+    /**
+     * Relance la migration tant qu'elle n'a pas abouti : sans cela, un échec au démarrage laisserait
+     * la migration à la demande, et sa lecture MongoDB à chaque défaut du cache des champs, active
+     * jusqu'au prochain redémarrage.
+     */
+    @Scheduled(initialDelayString = "${pdf-forms.field-migration.retry-interval-ms:300000}",
+            fixedDelayString = "${pdf-forms.field-migration.retry-interval-ms:300000}")
+    public void retry() {
+        if (!complete) {
+            log.info("Migration des champs embarqués non terminée : nouvelle tentative.");
+            schedule();
+        }
+    }
+
+    private void schedule() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            migrationExecutor.execute(() -> {
+                try {
+                    migrateAll();
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            running.set(false);
+            log.warn("Migration des champs embarqués non planifiée : {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Migre les champs du workflow s'ils sont encore embarqués dans son document. Sans effet une fois
+     * la migration de démarrage terminée.
+     */
+    public void ensureMigrated(String workflowId) {
+        if (!complete) {
+            migrate(workflowId);
+        }
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Migre tous les documents qui embarquent encore leurs champs. Un échec ou une interruption
+     * laisse la migration à la demande active jusqu'à la prochaine tentative réussie.
+     */
+    void migrateAll() {
+        List<String> workflowIds;
+        try (Stream<WorkflowDocument> documents = documentRepository.streamWithEmbeddedFields()) {
+            workflowIds = documents.map(WorkflowDocument::getWorkflowId).toList();
+        } catch (RuntimeException e) {
+            log.error("Migration des champs embarqués impossible : {}", e.getMessage(), e);
+            return;
+        }
+        if (workflowIds.isEmpty()) {
+            complete = true;
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        int failures = 0;
+        for (String workflowId : workflowIds) {
+            if (Thread.currentThread().isInterrupted()) {
+                log.info("Migration des champs embarqués interrompue (arrêt en cours).");
+                return;
+            }
+            try {
+                migrate(workflowId);
+            } catch (RuntimeException e) {
+                failures++;
+                log.warn("Champs du workflow {} non migrés : {}", workflowId, e.getMessage());
+            }
+        }
+        complete = failures == 0;
+        log.info("Champs embarqués migrés pour {} workflows sur {} ({} ms).",
+                workflowIds.size() - failures, workflowIds.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Copie les champs embarqués du document dans la collection fields, puis les retire du document.
+     *
+     * @return le nombre de champs insérés (0 si le workflow était déjà migré)
+     */
+    int migrate(String workflowId) {
+        WorkflowDocument document = documentRepository.findEmbeddedFieldsByWorkflowId(workflowId).orElse(null);
+        if (document == null) {
+            return 0;
+        }
+        List<FieldDefinition> fields = document.getFields() != null ? document.getFields() : List.of();
+        int inserted = 0;
+        for (int i = 0; i < fields.size(); i++) {
+            try {
+                fieldRepository.insert(WorkflowField.builder()
+                        .id(workflowId + "-" + i)
+                        .workflowId(workflowId)
+                        .definition(fields.get(i))
+                        .build());
+                inserted++;
+            } catch (DuplicateKeyException e) {
+                // Déjà inséré par une migration précédente ou concurrente : sa valeur fait foi
+            }
+        }
+        documentRepository.unsetEmbeddedFields(workflowId);
+        log.debug("Workflow {} : {} champs migrés.", workflowId, inserted);
+        return inserted;
+    }
+}
@@ -0,0 +1,158 @@
+package com.pdfforms.service;
+
+import com.pdfforms.model.PdfRevision;
+import com.pdfforms.model.WorkflowDocument;
+import com.pdfforms.repository.DocumentRepository;
+import com.pdfforms.service.AdmissionControl.Operation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Génération en arrière-plan des PDFs aplatis.
+ * <p>
+ * Chaque signature déclenche l'aplatissement de la nouvelle révision du master sur un pool borné.
+ * Les demandes concurrentes pour une même révision d'un même workflow sont dédupliquées
+ * (single-flight) : elles partagent le même CompletableFuture, une seule exécution PDFBox a lieu.
+ */
+@Slf4j
+@Service
+public class FlattenPipeline {
+
+    private final DocumentRepository documentRepository;
+    private final PdfBoxService pdfBoxService;
+    private final PdfRevisionStore pdfRevisionStore;
+    private final PageRenderService pageRenderService;
+    private final AdmissionControl admissionControl;
+    private final ThreadPoolTaskExecutor flattenExecutor;
+    private final boolean incrementalEnabled;
+
+    /** Aplatissements en cours, par "{workflowId}@{révision du master}". */
+    private final Map<String, CompletableFuture<PdfRevision>> inFlight = new ConcurrentHashMap<>();
+
+    public FlattenPipeline(DocumentRepository documentRepository,
+                           PdfBoxService pdfBoxService,
+                           PdfRevisionStore pdfRevisionStore,
+                           PageRenderService pageRenderService,
+                           AdmissionControl admissionControl,
+                           @Qualifier("flattenExecutor") ThreadPoolTaskExecutor flattenExecutor,
+                           @Value("${pdf-forms.flatten.incremental:true}") boolean incrementalEnabled) {
+        this.documentRepository = documentRepository;
+        this.pdfBoxService = pdfBoxService;
+        this.pdfRevisionStore = pdfRevisionStore;
+        this.pageRenderService = pageRenderService;
+        this.admissionControl = admissionControl;
+        this.flattenExecutor = flattenExecutor;
+        this.incrementalEnabled = incrementalEnabled;
+    }
+
+    /**
+     * Aplatit entièrement la révision {@code master} dans un nouveau blob, sur le thread appelant.
+     */
+    public PdfRevision flatten(String workflowId, PdfRevision master) throws Exception {
+        return pdfRevisionStore.store(workflowId, "flattened", master.getRevision(), out -> {
+            try (InputStream in = pdfRevisionStore.open(master)) {
+                admissionControl.run(Operation.FLATTEN, () -> pdfBoxService.flattenPdf(in, out));
+            }
+        });
+    }
+
+    /**
+     * Aplatit la révision {@code master} en partant du snapshot {@code previous} lorsqu'il correspond
+     * à la révision immédiatement précédente : seuls les champs modifiés par {@code master} sont apposés.
+     * Sinon (révision sautée, champs modifiés inconnus), aplatissement complet.
+     */
+    public PdfRevision flatten(String workflowId, PdfRevision master, PdfRevision previous) throws Exception {
+        boolean incremental = incrementalEnabled
+                && previous != null
+                && previous.getRevision() == master.getRevision() - 1
+                && master.getChangedFields() != null;
+        if (!incremental) {
+            return flatten(workflowId, master);
+        }
+        return pdfRevisionStore.store(workflowId, "flattened", master.getRevision(), out -> {
+            try (InputStream previousIn = pdfRevisionStore.open(previous);
+                 InputStream masterIn = pdfRevisionStore.open(master)) {
+                admissionControl.run(Operation.FLATTEN,
+                        () -> pdfBoxService.flattenIncremental(previousIn, masterIn, master.getChangedFields(), out));
+            }
+        });
+    }
+
+    /**
+     * Planifie l'aplatissement de la révision {@code masterRevision} du workflow.
+     * Si un aplatissement de cette révision est déjà en cours, retourne le même future.
+     * Le future se termine avec le PDF aplati enregistré, ou en erreur si la file est pleine
+     * (l'aplatissement sera replanifié à la prochaine lecture).
+     */
+    public CompletableFuture<PdfRevision> schedule(String workflowId, int masterRevision) {
+        String key = workflowId + "@" + masterRevision;
+        CompletableFuture<PdfRevision> promise = new CompletableFuture<>();
+        CompletableFuture<PdfRevision> existing = inFlight.putIfAbsent(key, promise);
+        if (existing != null) {
+            return existing;
+        }
+
+        try {
+            flattenExecutor.execute(() -> {
+                try {
+                    promise.complete(flattenAndCommit(workflowId, masterRevision));
+                } catch (Throwable e) {
+                    log.error("Échec de l'aplatissement de workflowId={} r{}.", workflowId, masterRevision, e);
+                    promise.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(key, promise);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            log.warn("File d'aplatissement pleine, workflowId={} r{} différé.", workflowId, masterRevision);
+            inFlight.remove(key, promise);
+            promise.completeExceptionally(e);
+        }
+        return promise;
+    }
+
+    /**
+     * Nombre d'aplatissements planifiés ou en cours.
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private PdfRevision flattenAndCommit(String workflowId, int masterRevision) throws Exception {
+        WorkflowDocument document = documentRepository.findByWorkflowId(workflowId)
+                .orElseThrow(() -> new IllegalStateException("Document introuvable pour le workflow " + workflowId));
+
+        PdfRevision master = document.getMaster();
+        PdfRevision previous = document.getFlattened();
+        if (master.getRevision() != masterRevision) {
+            log.debug("Aplatissement de workflowId={} r{} obsolète (master en r{}).",
+                    workflowId, masterRevision, master.getRevision());
+            return previous;
+        }
+        if (!document.isFlattenedStale() && previous != null && previous.getRevision() == masterRevision) {
+            return previous;
+        }
+
+        long start = System.currentTimeMillis();
+        PdfRevision flattened = flatten(workflowId, master, previous);
+        if (!documentRepository.replaceFlattened(workflowId, masterRevision, previous, flattened)) {
+            // Le master a avancé pendant l'aplatissement : ce snapshot ne sera jamais servi
+            pdfRevisionStore.deleteQuietly(flattened);
+            return previous;
+        }
+        pdfRevisionStore.deleteQuietly(previous);
+        pageRenderService.prerenderFirstPage(workflowId, flattened);
+        log.info("PDF aplati r{} prêt pour workflowId={} ({} ms).",
+                masterRevision, workflowId, System.currentTimeMillis() - start);
+        return flattened;
+    }
+}
@@ -0,0 +1,77 @@
+package com.pdfforms.service;
+
+import com.pdfforms.model.PdfSegment;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Reçoit la sortie complète d'un saveIncremental et ne transmet que l'incrément ajouté.
+ * Les octets déjà stockés (les segments de la révision précédente) sont écartés après
+ * vérification de leur SHA-256 segment par segment : une sortie qui ne prolonge pas
+ * exactement la révision précédente est refusée.
+ */
+class IncrementOutputStream extends FilterOutputStream {
+
+    private final List<PdfSegment> prefix;
+    private final MessageDigest digest;
+    private int segment;
+    private long segmentRemaining;
+
+    IncrementOutputStream(OutputStream out, List<PdfSegment> prefix) {
+        super(out);
+        this.prefix = prefix;
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+        this.segmentRemaining = prefix.isEmpty() ? 0 : prefix.get(0).getLength();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0 && segment < prefix.size()) {
+            int n = (int) Math.min(len, segmentRemaining);
+            digest.update(b, off, n);
+            off += n;
+            len -= n;
+            segmentRemaining -= n;
+            if (segmentRemaining == 0) {
+                verifySegment();
+            }
+        }
+        if (len > 0) {
+            out.write(b, off, len);
+        }
+    }
+
+    /**
+     * Vérifie que toute la révision précédente a bien été reçue.
+     */
+    void finish() throws IOException {
+        if (segment < prefix.size()) {
+            throw new IOException("La sortie est plus courte que la révision précédente.");
+        }
+    }
+
+    private void verifySegment() throws IOException {
+        String sha256 = HexFormat.of().formatHex(digest.digest());
+        if (!sha256.equals(prefix.get(segment).getSha256())) {
+            throw new IOException("La sortie ne prolonge pas la révision précédente (segment %d modifié)."
+                    .formatted(segment));
+        }
+        segment++;
+        segmentRemaining = segment < prefix.size() ? prefix.get(segment).getLength() : 0;
+    }
+}
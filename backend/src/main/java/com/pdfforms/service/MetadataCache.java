@@ -0,0 +1,140 @@
+package com.pdfforms.service;
+
+import com.pdfforms.model.Workflow;
+import com.pdfforms.model.WorkflowField;
+import com.pdfforms.repository.CacheInvalidationBus;
+import com.pdfforms.repository.CacheInvalidationBus.Invalidation;
+import com.pdfforms.repository.FieldRepository;
+import com.pdfforms.repository.WorkflowRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache des métadonnées lues à chaque requête d'un signataire : le workflow (tour, signataires)
+ * et les champs de chaque signataire. LRU borné en entrées, avec TTL ; chaque lecture reçoit
+ * sa propre copie de l'instantané mis en cache.
+ * <p>
+ * Les écritures (création, signature) invalident les entrées concernées sur ce nœud puis sur les
+ * autres via {@link CacheInvalidationBus}. Le TTL borne la péremption si une invalidation est perdue.
+ * fillAndSign ne lit pas le workflow dans ce cache : le tour y est vérifié sur MongoDB.
+ */
+@Slf4j
+@Component
+public class MetadataCache {
+
+    public enum Region {
+        WORKFLOW, SIGNER_FIELDS;
+
+        public String key() {
+            return name().toLowerCase(Locale.ROOT).replace('_', '-');
+        }
+    }
+
+    private final WorkflowRepository workflowRepository;
+    private final FieldRepository fieldRepository;
+    private final FieldMigration fieldMigration;
+    private final CacheInvalidationBus invalidationBus;
+
+    private final TtlLruCache<String, Workflow> workflows;
+    /** Clé : workflowId + '|' + signerId. */
+    private final TtlLruCache<String, List<WorkflowField>> signerFields;
+
+    public MetadataCache(WorkflowRepository workflowRepository,
+                         FieldRepository fieldRepository,
+                         FieldMigration fieldMigration,
+                         CacheInvalidationBus invalidationBus,
+                         @Value("${pdf-forms.metadata-cache.max-entries:10000}") int maxEntries,
+                         @Value("${pdf-forms.metadata-cache.ttl-seconds:30}") long ttlSeconds) {
+        this.workflowRepository = workflowRepository;
+        this.fieldRepository = fieldRepository;
+        this.fieldMigration = fieldMigration;
+        this.invalidationBus = invalidationBus;
+        this.workflows = new TtlLruCache<>(maxEntries, ttlSeconds, TimeUnit.SECONDS, MetadataCache::copy);
+        this.signerFields = new TtlLruCache<>(maxEntries, ttlSeconds, TimeUnit.SECONDS,
+                fields -> new ArrayList<>(fields.stream().map(MetadataCache::copy).toList()));
+        invalidationBus.subscribe(this::evict);
+    }
+
+    public Optional<Workflow> findWorkflow(String workflowId) {
+        return Optional.ofNullable(workflows.get(workflowId,
+                () -> workflowRepository.findById(workflowId).orElse(null)));
+    }
+
+    /**
+     * Champs assignés à {@code signerId}. Tant que la migration des champs embarqués n'est pas
+     * terminée, ceux du workflow sont d'abord migrés s'il y a lieu.
+     */
+    public List<WorkflowField> findSignerFields(String workflowId, String signerId) {
+        return signerFields.get(workflowId + '|' + signerId, () -> {
+            fieldMigration.ensureMigrated(workflowId);
+            return fieldRepository.findByWorkflowIdAndDefinitionAssignedTo(workflowId, signerId);
+        });
+    }
+
+    /**
+     * Invalide le workflow et les champs du signataire {@code signerId} (de tous ses signataires si
+     * null), sur ce nœud et sur les autres.
+     */
+    public void invalidate(String workflowId, String signerId) {
+        Invalidation invalidation = new Invalidation(workflowId, signerId);
+        evict(invalidation);
+        try {
+            invalidationBus.publish(invalidation);
+        } catch (RuntimeException e) {
+            // Les autres nœuds retrouveront l'état à jour à l'expiration du TTL
+            log.warn("Invalidation du workflow {} non diffusée : {}", workflowId, e.getMessage());
+        }
+    }
+
+    public long hits(Region region) {
+        return cache(region).hits();
+    }
+
+    public long misses(Region region) {
+        return cache(region).misses();
+    }
+
+    public int size(Region region) {
+        return cache(region).size();
+    }
+
+    private void evict(Invalidation invalidation) {
+        if (invalidation.workflowId() == null) {
+            workflows.clear();
+            signerFields.clear();
+            return;
+        }
+        workflows.invalidate(invalidation.workflowId());
+        if (invalidation.signerId() != null) {
+            signerFields.invalidate(invalidation.workflowId() + '|' + invalidation.signerId());
+        } else {
+            String prefix = invalidation.workflowId() + '|';
+            signerFields.invalidateIf(key -> key.startsWith(prefix));
+        }
+    }
+
+    private TtlLruCache<String, ?> cache(Region region) {
+        return region == Region.WORKFLOW ? workflows : signerFields;
+    }
+
+    private static Workflow copy(Workflow workflow) {
+        return workflow.toBuilder()
+                .signers(workflow.getSigners() != null
+                        ? new ArrayList<>(workflow.getSigners().stream().map(s -> s.toBuilder().build()).toList())
+                        : null)
+                .build();
+    }
+
+    private static WorkflowField copy(WorkflowField field) {
+        return field.toBuilder()
+                .definition(field.getDefinition() != null ? field.getDefinition().toBuilder().build() : null)
+                .build();
+    }
+}
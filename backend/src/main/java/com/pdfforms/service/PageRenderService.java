@@ -0,0 +1,175 @@
+package com.pdfforms.service;
+
+import com.pdfforms.model.PdfRevision;
+import com.pdfforms.service.AdmissionControl.Operation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Rendu serveur des pages du PDF aplati (PDFBox PDFRenderer) en PNG.
+ * Les rendus sont mis en cache par (workflow, révision, page, dpi) dans le RenderCache.
+ * Le rendu de toutes les pages d'une révision est réparti sur le pool de rendu :
+ * chaque tâche charge le document une fois et rend une tranche de pages.
+ * Un rendu à la demande (page absente du cache) passe par le contrôle d'admission
+ * ({@link Operation#RENDER}) : une rafale d'ouvertures de tableaux de bord ne sature pas le CPU.
+ * <p>
+ * Le WebP n'étant pas supporté par ImageIO sans dépendance supplémentaire, seul le PNG est produit.
+ */
+@Slf4j
+@Service
+public class PageRenderService {
+
+    private final PdfBoxService pdfBoxService;
+    private final PdfRevisionStore pdfRevisionStore;
+    private final RenderCache renderCache;
+    private final AdmissionControl admissionControl;
+    private final ThreadPoolTaskExecutor renderExecutor;
+    private final Set<Integer> dpiLevels;
+    private final int thumbnailDpi;
+
+    /** Pré-rendus en cours, par "{workflowId}@{révision}@{dpi}" (single-flight). */
+    private final Set<String> prerendering = ConcurrentHashMap.newKeySet();
+
+    public PageRenderService(PdfBoxService pdfBoxService,
+                             PdfRevisionStore pdfRevisionStore,
+                             RenderCache renderCache,
+                             AdmissionControl admissionControl,
+                             @Qualifier("renderExecutor") ThreadPoolTaskExecutor renderExecutor,
+                             @Value("${pdf-forms.render.dpi-levels:72,108,144}") Set<Integer> dpiLevels,
+                             @Value("${pdf-forms.render.thumbnail-dpi:24}") int thumbnailDpi) {
+        this.pdfBoxService = pdfBoxService;
+        this.pdfRevisionStore = pdfRevisionStore;
+        this.renderCache = renderCache;
+        this.admissionControl = admissionControl;
+        this.renderExecutor = renderExecutor;
+        this.dpiLevels = dpiLevels;
+        this.thumbnailDpi = thumbnailDpi;
+    }
+
+    /**
+     * Retourne la page {@code page} (0-based) de la révision aplatie {@code pdf} en PNG.
+     * En cas d'absence du cache, la page est rendue sur le thread appelant, sous contrôle
+     * d'admission (429 si la file est pleine), et le pré-rendu des autres pages à ce niveau
+     * de zoom est lancé en arrière-plan.
+     */
+    public byte[] renderPage(String workflowId, PdfRevision pdf, int page, int dpi) throws Exception {
+        if (dpi != thumbnailDpi && !dpiLevels.contains(dpi)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Résolution non supportée : %d dpi (valeurs possibles : %s).".formatted(dpi, dpiLevels));
+        }
+
+        var cached = renderCache.get(workflowId, pdf.getRevision(), page, dpi);
+        if (cached.isPresent()) return cached.get();
+
+        byte[][] rendered = new byte[1][];
+        int pageCount = admissionControl.call(Operation.RENDER, () -> {
+            // rendue entre-temps par une requête admise avant celle-ci
+            Optional<byte[]> ready = renderCache.get(workflowId, pdf.getRevision(), page, dpi);
+            if (ready.isPresent()) {
+                rendered[0] = ready.get();
+                return -1;
+            }
+            try (InputStream in = pdfRevisionStore.open(pdf)) {
+                return pdfBoxService.renderPages(in, List.of(page), dpi, (p, png) -> {
+                    renderCache.put(workflowId, pdf.getRevision(), p, dpi, png);
+                    rendered[0] = png;
+                });
+            }
+        });
+        if (pageCount < 0) return rendered[0];
+        if (rendered[0] == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND,
+                    "Page %d inexistante (le document en compte %d).".formatted(page, pageCount));
+        }
+        if (dpi != thumbnailDpi) {
+            prerender(workflowId, pdf, dpi, pageCount);
+        }
+        return rendered[0];
+    }
+
+    public byte[] renderThumbnail(String workflowId, PdfRevision pdf) throws Exception {
+        return renderPage(workflowId, pdf, 0, thumbnailDpi);
+    }
+
+    /**
+     * Pré-rend en arrière-plan la première page d'une nouvelle révision aplatie (niveau de zoom
+     * par défaut et vignette), pour que le signataire la voie immédiatement, et purge les rendus
+     * des révisions précédentes.
+     */
+    public void prerenderFirstPage(String workflowId, PdfRevision pdf) {
+        renderCache.evictOlderRevisions(workflowId, pdf.getRevision());
+        int defaultDpi = dpiLevels.stream().min(Integer::compare).orElse(72);
+        submitEach(workflowId, pdf, List.of(0), defaultDpi, thumbnailDpi);
+    }
+
+    /**
+     * Pré-rend toutes les pages d'une révision à un niveau de zoom, réparties en tranches
+     * sur le pool de rendu. Sans effet si ce pré-rendu est déjà en cours.
+     */
+    private void prerender(String workflowId, PdfRevision pdf, int dpi, int pageCount) {
+        String key = workflowId + "@" + pdf.getRevision() + "@" + dpi;
+        if (!prerendering.add(key)) return;
+
+        List<Integer> missing = IntStream.range(0, pageCount)
+                .filter(p -> renderCache.get(workflowId, pdf.getRevision(), p, dpi).isEmpty())
+                .boxed()
+                .collect(Collectors.toList());
+        int slices = Math.max(1, Math.min(renderExecutor.getMaxPoolSize(), missing.size()));
+        List<List<Integer>> chunks = new ArrayList<>();
+        for (int i = 0; i < slices; i++) chunks.add(new ArrayList<>());
+        for (int i = 0; i < missing.size(); i++) chunks.get(i % slices).add(missing.get(i));
+
+        AtomicInteger pending = new AtomicInteger(chunks.size());
+        for (List<Integer> chunk : chunks) {
+            boolean submitted = submit(workflowId, pdf, chunk, dpi, () -> {
+                if (pending.decrementAndGet() == 0) prerendering.remove(key);
+            });
+            if (!submitted && pending.decrementAndGet() == 0) prerendering.remove(key);
+        }
+    }
+
+    private void submitEach(String workflowId, PdfRevision pdf, List<Integer> pages, int... dpis) {
+        for (int dpi : dpis) {
+            submit(workflowId, pdf, pages, dpi, () -> { });
+        }
+    }
+
+    private boolean submit(String workflowId, PdfRevision pdf, List<Integer> pages, int dpi, Runnable onDone) {
+        if (pages.isEmpty()) {
+            onDone.run();
+            return true;
+        }
+        try {
+            renderExecutor.execute(() -> {
+                try (InputStream in = pdfRevisionStore.open(pdf)) {
+                    pdfBoxService.renderPages(in, pages, dpi,
+                            (p, png) -> renderCache.put(workflowId, pdf.getRevision(), p, dpi, png));
+                } catch (Exception e) {
+                    log.warn("Pré-rendu de workflowId={} r{} impossible : {}", workflowId, pdf.getRevision(), e.getMessage());
+                } finally {
+                    onDone.run();
+                }
+            });
+            return true;
+        } catch (TaskRejectedException e) {
+            log.debug("File de rendu pleine, pré-rendu de workflowId={} ignoré.", workflowId);
+            return false;
+        }
+    }
+}
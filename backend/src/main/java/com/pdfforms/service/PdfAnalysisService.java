@@ -0,0 +1,144 @@
+package com.pdfforms.service;
+
+import com.pdfforms.dto.AnalyzePdfResponse;
+import com.pdfforms.model.AnalyzedPdf;
+import com.pdfforms.repository.AnalyzedPdfRepository;
+import com.pdfforms.service.AdmissionControl.Operation;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * Analyse des PDFs uploadés, mise en cache par SHA-256 du contenu.
+ * <p>
+ * Le hash est calculé pendant la lecture du flux pour PDFBox : en cas de hit, ni
+ * Loader.loadPDF ni le parcours de l'arbre des champs n'ont lieu. Le cache est un LRU borné
+ * en nombre d'entrées, optionnellement adossé à la collection analyzed_pdfs. Ses hits et misses
+ * sont exposés par les compteurs {@code pdfforms.cache.gets{cache="analyze-pdf"}}.
+ */
+@Slf4j
+@Service
+public class PdfAnalysisService {
+
+    private final PdfBoxService pdfBoxService;
+    private final PdfMemoryBudget memoryBudget;
+    private final AdmissionControl admissionControl;
+    private final AnalyzedPdfRepository analyzedPdfRepository;
+    private final boolean persistent;
+
+    /**
+     * Résultats par SHA-256 du contenu. Un contenu donné a toujours la même analyse : pas d'expiration,
+     * et les résultats, jamais modifiés par les appelants, sont partagés sans copie.
+     */
+    private final TtlLruCache<String, AnalyzePdfResponse> cache;
+
+    public PdfAnalysisService(PdfBoxService pdfBoxService,
+                              PdfMemoryBudget memoryBudget,
+                              AdmissionControl admissionControl,
+                              AnalyzedPdfRepository analyzedPdfRepository,
+                              @Value("${pdf-forms.analyze-cache.max-entries:500}") int maxEntries,
+                              @Value("${pdf-forms.analyze-cache.persistent:false}") boolean persistent) {
+        this.pdfBoxService = pdfBoxService;
+        this.memoryBudget = memoryBudget;
+        this.admissionControl = admissionControl;
+        this.analyzedPdfRepository = analyzedPdfRepository;
+        this.persistent = persistent;
+        this.cache = new TtlLruCache<>(maxEntries, Long.MAX_VALUE, TimeUnit.NANOSECONDS, UnaryOperator.identity());
+    }
+
+    /**
+     * Retourne les champs AcroForm du PDF, depuis le cache si ce contenu a déjà été analysé.
+     */
+    public AnalyzePdfResponse analyze(InputStream pdf) throws IOException {
+        MessageDigest digest = sha256();
+        RandomAccessRead source = memoryBudget.spool(new DigestInputStream(pdf, digest));
+        String sha256 = HexFormat.of().formatHex(digest.digest());
+
+        AnalyzePdfResponse cached = cache.get(sha256, () -> findPersisted(sha256));
+        if (cached != null) {
+            source.close();
+            log.debug("Analyse du PDF {} servie depuis le cache.", sha256);
+            return cached;
+        }
+        return store(sha256, extract(source));
+    }
+
+    private AnalyzePdfResponse store(String sha256, AnalyzePdfResponse result) {
+        cache.put(sha256, result);
+        if (persistent) {
+            analyzedPdfRepository.save(AnalyzedPdf.builder()
+                    .sha256(sha256)
+                    .result(result)
+                    .createdAt(LocalDateTime.now())
+                    .build());
+        }
+        return result;
+    }
+
+    /**
+     * Variante pour un fichier déjà sur disque dont le SHA-256 est connu (upload par morceaux) :
+     * en cas de miss, PDFBox lit le fichier sans le copier en mémoire.
+     */
+    public AnalyzePdfResponse analyze(String sha256, Path pdf) throws IOException {
+        AnalyzePdfResponse cached = cache.get(sha256, () -> findPersisted(sha256));
+        if (cached != null) {
+            return cached;
+        }
+        return store(sha256, extract(memoryBudget.open(pdf)));
+    }
+
+    /**
+     * Analyse soumise au contrôle d'admission ; la source est fermée même si l'analyse est refusée.
+     */
+    private AnalyzePdfResponse extract(RandomAccessRead source) throws IOException {
+        try {
+            return admissionControl.call(Operation.ANALYZE, () -> pdfBoxService.extractFields(source));
+        } catch (IOException | RuntimeException e) {
+            source.close();
+            throw e;
+        } catch (Exception e) {
+            source.close();
+            throw new IOException(e);
+        }
+    }
+
+    public long hits() {
+        return cache.hits();
+    }
+
+    public long misses() {
+        return cache.misses();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * Résultat stocké dans analyzed_pdfs (cache persistant), ou null. Un résultat trouvé est remis
+     * en mémoire par le cache ; la lecture compte tout de même comme un miss du cache mémoire.
+     */
+    private AnalyzePdfResponse findPersisted(String sha256) {
+        if (!persistent) return null;
+        return analyzedPdfRepository.findById(sha256).map(AnalyzedPdf::getResult).orElse(null);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (Exception e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+    }
+}
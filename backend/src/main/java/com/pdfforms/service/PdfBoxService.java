@@ -4,57 +4,71 @@ import com.pdfforms.dto.AnalyzePdfResponse;
 import com.pdfforms.dto.DetectedFieldDto;
 import com.pdfforms.dto.FieldRequest;
 import com.pdfforms.model.*;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.pdfbox.Loader;
 import org.apache.pdfbox.cos.COSArray;
 import org.apache.pdfbox.cos.COSDictionary;
 import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.cos.COSString;
-import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.io.RandomAccessRead;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
 import org.apache.pdfbox.pdmodel.PDResources;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.font.PDType1Font;
 import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
 import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotation;
 import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationWidget;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAppearanceStream;
 import org.apache.pdfbox.pdmodel.interactive.digitalsignature.PDSignature;
 import org.apache.pdfbox.pdmodel.interactive.digitalsignature.SignatureOptions;
 import org.apache.pdfbox.pdmodel.interactive.form.*;
-import org.bouncycastle.cert.jcajce.JcaCertStore;
-import org.bouncycastle.cms.CMSProcessableByteArray;
-import org.bouncycastle.cms.CMSSignedData;
-import org.bouncycastle.cms.CMSSignedDataGenerator;
-import org.bouncycastle.cms.jcajce.JcaSignerInfoGeneratorBuilder;
-import org.bouncycastle.operator.ContentSigner;
-import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
-import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.apache.pdfbox.util.Matrix;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 import org.springframework.web.server.ResponseStatusException;
 
+import javax.imageio.ImageIO;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.security.PrivateKey;
-import java.security.cert.X509Certificate;
+import java.io.OutputStream;
 import java.util.*;
+import java.util.function.BiConsumer;
 
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class PdfBoxService {
 
+    private final CmsSigner cmsSigner;
+    private final PdfMemoryBudget memoryBudget;
+    private final PdfMetrics metrics;
+
     /**
      * Extrait les champs AcroForm d'un PDF existant.
      * Retourne une liste de DetectedFieldDto avec les coordonnées PDF (origine bas-gauche).
      *
-     * @param pdfBytes bytes du PDF à analyser
+     * @param pdf flux du PDF à analyser
      * @return AnalyzePdfResponse contenant la liste des champs détectés
      */
-    public AnalyzePdfResponse extractFields(byte[] pdfBytes) throws IOException {
-        try (PDDocument doc = Loader.loadPDF(new RandomAccessReadBuffer(pdfBytes))) {
+    public AnalyzePdfResponse extractFields(InputStream pdf) throws IOException {
+        return extractFields(metrics.time("analyze", "read", () -> memoryBudget.spool(pdf)));
+    }
+
+    /**
+     * Variante de {@link #extractFields(InputStream)} sur une source ouverte par {@link PdfMemoryBudget}.
+     */
+    public AnalyzePdfResponse extractFields(RandomAccessRead pdf) throws IOException {
+        try (PDDocument doc = load("analyze", pdf)) {
             PDAcroForm acroForm = doc.getDocumentCatalog().getAcroForm();
             if (acroForm == null) {
                 log.debug("PDF sans AcroForm — aucun champ à extraire.");
@@ -108,6 +122,7 @@ public class PdfBoxService {
                 }
             }
 
+            metrics.fields("analyze", result.size());
             log.info("PDF analysé : {} champ(s) AcroForm détecté(s).", result.size());
             return new AnalyzePdfResponse(result);
         }
@@ -124,12 +139,12 @@ public class PdfBoxService {
      * Crée le PDF master avec les champs AcroForm positionnés.
      * Chaque champ reçoit une annotation /Assign dans son COSObject.
      *
-     * @param originalPdfBytes bytes du PDF original uploadé
-     * @param fields           liste des champs à créer
-     * @return bytes du PDF master avec les champs AcroForm
+     * @param originalPdf flux du PDF original uploadé
+     * @param fields      liste des champs à créer
+     * @param out         destination du PDF master avec les champs AcroForm
      */
-    public byte[] createMasterPdf(byte[] originalPdfBytes, List<FieldRequest> fields) throws IOException {
-        try (PDDocument doc = Loader.loadPDF(new RandomAccessReadBuffer(originalPdfBytes))) {
+    public void createMasterPdf(InputStream originalPdf, List<FieldRequest> fields, OutputStream out) throws IOException {
+        try (PDDocument doc = load("create", originalPdf)) {
 
             // Supprimer les annotations widget de l'AcroForm original pour éviter les widgets
             // orphelins qui invalident la signature (le /Parent référence un champ supprimé).
@@ -201,11 +216,10 @@ public class PdfBoxService {
             }
 
             acroForm.setFields(acroFields);
+            metrics.fields("create", fields.size());
 
-            ByteArrayOutputStream bos = new ByteArrayOutputStream();
-            doc.save(bos);
+            metrics.save("create", out, doc::save);
             log.info("PDF master créé avec {} champs AcroForm.", fields.size());
-            return bos.toByteArray();
         }
     }
 
@@ -214,22 +228,147 @@ public class PdfBoxService {
      * Les champs AcroForm sont rendus visuellement et supprimés du formulaire.
      * Le résultat est un PDF non-interactif montrant les valeurs actuelles.
      *
-     * @param masterPdfBytes bytes du PDF master
-     * @return bytes du PDF aplati
+     * @param masterPdf flux du PDF master
+     * @param out       destination du PDF aplati
      */
-    public byte[] flattenPdf(byte[] masterPdfBytes) throws IOException {
-        try (PDDocument doc = Loader.loadPDF(new RandomAccessReadBuffer(masterPdfBytes))) {
+    public void flattenPdf(InputStream masterPdf, OutputStream out) throws IOException {
+        try (PDDocument doc = load("flatten", masterPdf)) {
             PDAcroForm acroForm = doc.getDocumentCatalog().getAcroForm();
             if (acroForm != null) {
-                // NeedAppearances(true) déclenche generateAppearances() dans flatten(),
-                // ce qui est nécessaire pour rendre correctement les cases à cocher.
-                acroForm.setNeedAppearances(true);
-                acroForm.flatten();
+                // Les champs remplis ont déjà un /AP généré par applyFieldValues : on le réutilise.
+                // Seuls les champs ayant une valeur mais pas d'apparence sont (re)générés ;
+                // les champs vides sans apparence n'ont rien à rendre et sont simplement retirés.
+                List<PDField> missingAppearances = new ArrayList<>();
+                for (PDField field : acroForm.getFieldTree()) {
+                    if (field instanceof PDTerminalField terminal
+                            && !terminal.getValueAsString().isEmpty()
+                            && terminal.getWidgets().stream().anyMatch(w -> w.getNormalAppearanceStream() == null)) {
+                        missingAppearances.add(field);
+                    }
+                }
+                if (!missingAppearances.isEmpty()) {
+                    acroForm.refreshAppearances(missingAppearances);
+                }
+                acroForm.setNeedAppearances(false);
+                metrics.time("flatten", "flatten", () -> acroForm.flatten());
+                log.debug("Aplatissement complet : {} apparence(s) générée(s).", missingAppearances.size());
+            }
+            metrics.save("flatten", out, doc::save);
+            log.debug("PDF aplati généré.");
+        }
+    }
+
+    /**
+     * Génère le PDF aplati d'une nouvelle révision à partir du snapshot aplati précédent,
+     * en n'y apposant que les champs modifiés par cette révision.
+     * Les streams d'apparence de ces champs sont repris tels que générés par applyFieldValues
+     * lors de la signature (générés ici uniquement s'ils sont absents) ; les autres champs
+     * ne sont ni relus ni re-rendus.
+     * Hypothèse : un champ n'est rempli qu'une fois (il est verrouillé par la signature de son
+     * propriétaire), il était donc vide dans le snapshot précédent.
+     *
+     * @param previousFlattened flux du PDF aplati de la révision précédente du master
+     * @param masterPdf         flux de la nouvelle révision du master
+     * @param changedFields     noms des champs modifiés par cette révision
+     * @param out               destination du nouveau PDF aplati
+     */
+    public void flattenIncremental(InputStream previousFlattened, InputStream masterPdf,
+                                   Collection<String> changedFields, OutputStream out) throws IOException {
+        try (PDDocument master = load("flatten-incremental", masterPdf);
+             PDDocument flattened = load("flatten-incremental", previousFlattened)) {
+            PDAcroForm acroForm = master.getDocumentCatalog().getAcroForm();
+            if (acroForm == null) {
+                throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                        "Aucun AcroForm dans le PDF master.");
             }
-            ByteArrayOutputStream bos = new ByteArrayOutputStream();
-            doc.save(bos);
-            log.debug("PDF aplati généré ({} bytes).", bos.size());
-            return bos.toByteArray();
+
+            // La copie reprend le stream d'apparence et ses ressources (polices…) dans le snapshot
+            CosObjectCopier copier = new CosObjectCopier(flattened);
+            Map<PDPage, Integer> pageIndex = new HashMap<>();
+            int idx = 0;
+            for (PDPage page : master.getPages()) pageIndex.put(page, idx++);
+
+            int stamped = 0;
+            for (PDField field : acroForm.getFieldTree()) {
+                if (!(field instanceof PDTerminalField terminal)
+                        || !changedFields.contains(field.getFullyQualifiedName())) {
+                    continue;
+                }
+                for (PDAnnotationWidget widget : terminal.getWidgets()) {
+                    if (widget.getNormalAppearanceStream() == null && !terminal.getValueAsString().isEmpty()) {
+                        acroForm.refreshAppearances(List.of(field));
+                    }
+                    PDAppearanceStream appearance = widget.getNormalAppearanceStream();
+                    Integer page = pageIndex.get(widget.getPage());
+                    if (appearance == null || page == null || widget.isHidden() || widget.isNoView()) {
+                        continue;
+                    }
+                    stampAppearance(flattened, flattened.getPage(page), widget.getRectangle(),
+                            appearance, copier);
+                    stamped++;
+                }
+            }
+
+            metrics.fields("flatten-incremental", changedFields.size());
+            metrics.save("flatten-incremental", out, flattened::save);
+            log.debug("Aplatissement incrémental : {} widget(s) apposé(s) pour {} champ(s).",
+                    stamped, changedFields.size());
+        }
+    }
+
+    /**
+     * Dessine un stream d'apparence à l'emplacement du widget, comme le fait PDAcroForm.flatten().
+     */
+    private void stampAppearance(PDDocument target, PDPage page, PDRectangle rect,
+                                 PDAppearanceStream appearance, CosObjectCopier copier) throws IOException {
+        PDFormXObject form = new PDFormXObject(copier.copy(appearance.getCOSObject()));
+        PDRectangle bbox = form.getBBox();
+        if (rect == null || bbox == null || bbox.getWidth() == 0 || bbox.getHeight() == 0) {
+            return;
+        }
+
+        Rectangle2D box = bbox.transform(form.getMatrix()).getBounds2D();
+        Matrix transform = new Matrix();
+        transform.translate((float) (rect.getLowerLeftX() - box.getX()), (float) (rect.getLowerLeftY() - box.getY()));
+        transform.scale((float) (rect.getWidth() / box.getWidth()), (float) (rect.getHeight() / box.getHeight()));
+
+        try (PDPageContentStream cs = new PDPageContentStream(
+                target, page, PDPageContentStream.AppendMode.APPEND, true, true)) {
+            cs.saveGraphicsState();
+            cs.transform(transform);
+            cs.drawForm(form);
+            cs.restoreGraphicsState();
+        }
+    }
+
+    /**
+     * Rend des pages du PDF en images PNG.
+     * Le document est chargé une seule fois pour l'ensemble des pages demandées ;
+     * un PDFRenderer n'étant pas thread-safe, chaque appel doit avoir son propre flux.
+     *
+     * @param pdf   flux du PDF à rendre
+     * @param pages index des pages à rendre (0-based) ; les index hors document sont ignorés
+     * @param dpi   résolution de rendu
+     * @param sink  reçoit (index de page, PNG) pour chaque page rendue
+     * @return nombre de pages du document
+     */
+    public int renderPages(InputStream pdf, Collection<Integer> pages, int dpi,
+                           BiConsumer<Integer, byte[]> sink) throws IOException {
+        try (PDDocument doc = load("render", pdf)) {
+            PDFRenderer renderer = new PDFRenderer(doc);
+            int pageCount = doc.getNumberOfPages();
+            for (int page : pages) {
+                if (page < 0 || page >= pageCount) continue;
+                int index = page;
+                BufferedImage image = metrics.time("render", "render",
+                        () -> renderer.renderImageWithDPI(index, dpi, ImageType.RGB));
+                ByteArrayOutputStream png = new ByteArrayOutputStream();
+                metrics.time("render", "encode", () -> ImageIO.write(image, "png", png));
+                metrics.bytesOut("render", png.size());
+                sink.accept(page, png.toByteArray());
+            }
+            log.debug("{} page(s) rendue(s) à {} dpi.", pages.size(), dpi);
+            return pageCount;
         }
     }
 
@@ -249,11 +388,25 @@ public class PdfBoxService {
                     "Aucun AcroForm dans le PDF master.");
         }
 
+        // Une seule traversée de l'arbre, arrêtée dès que tous les champs demandés sont trouvés
+        // (acroForm.getField(name) reparcourt l'arbre à chaque appel)
+        Set<String> wanted = new HashSet<>();
+        fields.forEach(fieldDef -> wanted.add(fieldDef.getFieldName()));
+        Map<String, PDField> fieldsByName = new HashMap<>();
+        for (PDField field : acroForm.getFieldTree()) {
+            if (wanted.contains(field.getFullyQualifiedName())) {
+                fieldsByName.put(field.getFullyQualifiedName(), field);
+                if (fieldsByName.size() == wanted.size()) {
+                    break;
+                }
+            }
+        }
+
         for (FieldDefinition fieldDef : fields) {
             String fieldName = fieldDef.getFieldName();
             String value = fieldDef.getCurrentValue();
 
-            PDField field = acroForm.getField(fieldName);
+            PDField field = fieldsByName.get(fieldName);
             if (field == null) {
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
                         "Champ introuvable : " + fieldName);
@@ -286,15 +439,18 @@ public class PdfBoxService {
      * Si {@code fields} est vide ou null, seule la signature est ajoutée.
      * Utilise PDFBox + BouncyCastle pour générer une signature PKCS#7 détachée.
      *
-     * @param masterPdfBytes bytes du PDF master
-     * @param signature      informations de signature (type, clé, certificat)
-     * @param fields         champs à remplir avant de signer (peut être null ou vide)
-     * @return bytes du PDF mis à jour et signé (incrément PDF)
+     * @param masterPdf flux du PDF master
+     * @param signature informations de signature (type, clé, certificat)
+     * @param fields    champs à remplir avant de signer (peut être null ou vide)
+     * @param out       destination du PDF mis à jour et signé (master + incrément PDF)
      */
-    public byte[] signPdf(byte[] masterPdfBytes, Signature signature, List<FieldDefinition> fields) throws Exception {
-        try (PDDocument doc = Loader.loadPDF(new RandomAccessReadBuffer(masterPdfBytes))) {
+    public void signPdf(InputStream masterPdf, Signature signature, List<FieldDefinition> fields,
+                        OutputStream out) throws Exception {
+        String operation = signature instanceof CertificationSignature ? "certify" : "sign";
+        try (PDDocument doc = load(operation, masterPdf)) {
             if (!CollectionUtils.isEmpty(fields)) {
-                applyFieldValues(doc, fields);
+                metrics.time(operation, "apply-fields", () -> applyFieldValues(doc, fields));
+                metrics.fields(operation, fields.size());
             }
 
             PDSignature pdSignature = new PDSignature();
@@ -323,16 +479,41 @@ public class PdfBoxService {
 
             doc.addSignature(pdSignature, (InputStream content) -> {
                 try {
-                    return createCmsSignature(content, signature.getPrivateKey(), signature.getCertificate());
+                    return metrics.time(operation, "cms",
+                            () -> cmsSigner.sign(content, signature.getPrivateKey(), signature.getCertificate()));
                 } catch (Exception e) {
                     throw new IOException("Échec de la génération de la pdSignature CMS", e);
                 }
             }, options);
 
-            ByteArrayOutputStream bos = new ByteArrayOutputStream();
-            doc.saveIncremental(bos);
-            log.info("PDF signé avec saveIncremental ({} bytes).", bos.size());
-            return bos.toByteArray();
+            // La phase save inclut la phase cms : PDFBox appelle le signataire pendant saveIncremental
+            metrics.save(operation, out, doc::saveIncremental);
+            log.info("PDF signé avec saveIncremental.");
+        }
+    }
+
+    /**
+     * Ouvre un PDDocument à partir d'un flux.
+     * PDFBox a besoin d'un accès aléatoire : le flux est lu en mémoire ou, s'il est volumineux,
+     * dans un fichier temporaire (voir {@link PdfMemoryBudget}).
+     */
+    private PDDocument load(String operation, InputStream pdf) throws IOException {
+        return load(operation, metrics.time(operation, "read", () -> memoryBudget.spool(pdf)));
+    }
+
+    /**
+     * Ouvre un PDDocument sur une source réservée : la réservation est rendue à la fermeture
+     * du document, ou immédiatement si le PDF est illisible.
+     */
+    private PDDocument load(String operation, RandomAccessRead source) throws IOException {
+        try {
+            metrics.bytesIn(operation, source.length());
+            PDDocument doc = metrics.time(operation, "load", () -> Loader.loadPDF(source, memoryBudget.streamCache()));
+            metrics.pages(operation, doc.getNumberOfPages());
+            return doc;
+        } catch (IOException | RuntimeException e) {
+            source.close();
+            throw e;
         }
     }
 
@@ -373,32 +554,4 @@ public class PdfBoxService {
 
         signature.getCOSObject().setItem(COSName.getPDFName("Reference"), referenceArray);
     }
-
-    /**
-     * Génère une signature CMS/PKCS#7 détachée sur le contenu fourni.
-     */
-    private byte[] createCmsSignature(InputStream content,
-                                      PrivateKey privateKey,
-                                      X509Certificate certificate) throws Exception {
-        byte[] data = content.readAllBytes();
-
-        List<X509Certificate> certList = Collections.singletonList(certificate);
-        JcaCertStore certStore = new JcaCertStore(certList);
-
-        ContentSigner contentSigner = new JcaContentSignerBuilder("SHA256withRSA")
-                .setProvider("BC")
-                .build(privateKey);
-
-        CMSSignedDataGenerator gen = new CMSSignedDataGenerator();
-        gen.addSignerInfoGenerator(
-                new JcaSignerInfoGeneratorBuilder(
-                        new JcaDigestCalculatorProviderBuilder().setProvider("BC").build()
-                ).build(contentSigner, certificate)
-        );
-        gen.addCertificates(certStore);
-
-        CMSProcessableByteArray processable = new CMSProcessableByteArray(data);
-        CMSSignedData signedData = gen.generate(processable, false); // false = signature détachée
-        return signedData.getEncoded();
-    }
 }
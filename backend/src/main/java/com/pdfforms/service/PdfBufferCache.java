@@ -0,0 +1,150 @@
+package com.pdfforms.service;
+
+import com.pdfforms.model.PdfRevision;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache hors tas des PDFs servis plusieurs fois de suite (snapshot aplati relu par le signataire,
+ * PDF final téléchargé juste après la complétion), indexé par l'empreinte SHA-256 de la révision.
+ * <p>
+ * La clé est l'empreinte seule, sans le workflowId : une révision est immuable et son empreinte est
+ * calculée sur son contenu (chaînée sur les segments pour un journal), si bien que deux révisions de
+ * même empreinte ont les mêmes octets. Aucune entrée n'a donc à être invalidée, et les workflows issus
+ * d'un même template partagent la même entrée tant qu'ils n'ont pas été signés.
+ * <p>
+ * Le contenu est gardé dans un ByteBuffer direct, en dehors du tas géré par le GC. LRU borné en octets
+ * ({@code pdf-forms.pdf-cache.max-bytes}, à couvrir par -XX:MaxDirectMemorySize) ; un PDF plus gros que
+ * {@code max-entry-bytes} n'est pas mis en cache. Un défaut de cache ne retarde pas la requête : elle
+ * est servie en flux depuis le blob store pendant que la révision est chargée en arrière-plan
+ * ({@code pdfCacheExecutor}) pour les requêtes suivantes. Une entrée évincée est libérée par le GC dès
+ * que plus aucune réponse en cours ne la lit.
+ */
+@Slf4j
+@Component
+public class PdfBufferCache {
+
+    private final PdfRevisionStore pdfRevisionStore;
+    private final TaskExecutor pdfCacheExecutor;
+    private final long maxBytes;
+    private final long maxEntryBytes;
+
+    /** LRU : accessOrder = true, l'entrée la moins récemment lue est en tête. */
+    private final LinkedHashMap<String, ByteBuffer> buffers = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes;
+    /** Révisions en cours de chargement : une seule lecture du blob store par révision. */
+    private final Set<String> loading = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public PdfBufferCache(PdfRevisionStore pdfRevisionStore,
+                          @Qualifier("pdfCacheExecutor") TaskExecutor pdfCacheExecutor,
+                          @Value("${pdf-forms.pdf-cache.max-bytes:134217728}") long maxBytes,
+                          @Value("${pdf-forms.pdf-cache.max-entry-bytes:16777216}") long maxEntryBytes) {
+        this.pdfRevisionStore = pdfRevisionStore;
+        this.pdfCacheExecutor = pdfCacheExecutor;
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = Math.min(maxEntryBytes, maxBytes);
+    }
+
+    /**
+     * Contenu de la révision (buffer en lecture seule, propre à l'appelant) s'il est en cache.
+     * Sinon, vide : la révision est chargée en arrière-plan si elle est éligible (taille, cache activé).
+     */
+    public Optional<ByteBuffer> get(PdfRevision revision) {
+        String key = revision.getSha256();
+        if (key == null || revision.getLength() <= 0 || revision.getLength() > maxEntryBytes) {
+            return Optional.empty();
+        }
+        synchronized (buffers) {
+            ByteBuffer cached = buffers.get(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return Optional.of(cached.duplicate());
+            }
+        }
+        misses.incrementAndGet();
+        loadAsync(key, revision);
+        return Optional.empty();
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    public long bytes() {
+        synchronized (buffers) {
+            return bytes;
+        }
+    }
+
+    private void loadAsync(String key, PdfRevision revision) {
+        if (!loading.add(key)) {
+            return;
+        }
+        try {
+            pdfCacheExecutor.execute(() -> {
+                try {
+                    put(key, load(revision));
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Révision r{} ({}) non mise en cache : {}", revision.getRevision(), key, e.getMessage());
+                } finally {
+                    loading.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            loading.remove(key);
+            log.debug("File de chargement du cache pleine : {} non mis en cache.", key);
+        }
+    }
+
+    private ByteBuffer load(PdfRevision revision) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(Math.toIntExact(revision.getLength()));
+        try (ReadableByteChannel in = Channels.newChannel(pdfRevisionStore.open(revision))) {
+            while (buffer.hasRemaining() && in.read(buffer) >= 0) {
+                // lecture jusqu'à la taille annoncée par la révision
+            }
+        }
+        if (buffer.hasRemaining()) {
+            throw new IOException("Révision r%d incomplète : %d octets lus sur %d."
+                    .formatted(revision.getRevision(), buffer.position(), revision.getLength()));
+        }
+        return buffer.flip().asReadOnlyBuffer();
+    }
+
+    private void put(String key, ByteBuffer buffer) {
+        synchronized (buffers) {
+            if (buffers.putIfAbsent(key, buffer) != null) {
+                return;
+            }
+            bytes += buffer.capacity();
+            Iterator<Map.Entry<String, ByteBuffer>> eldest = buffers.entrySet().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                bytes -= eldest.next().getValue().capacity();
+                eldest.remove();
+            }
+        }
+        log.debug("PDF {} mis en cache hors tas ({} octets).", key, buffer.capacity());
+    }
+}
@@ -0,0 +1,225 @@
+package com.pdfforms.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
+import org.apache.pdfbox.io.RandomAccessStreamCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Budget mémoire des documents ouverts par PDFBox, partagé par tout le processus.
+ * <p>
+ * Chaque document ouvert réserve sur le budget la mémoire de sa source (le PDF lu en mémoire,
+ * ou le cache de pages du fichier s'il a débordé sur disque) et celle de son cache de streams
+ * (mode mixte : au-delà de {@code scratch-main-memory}, PDFBox écrit dans un fichier scratch).
+ * La réservation est rendue à la fermeture du document. Si le budget est épuisé, l'ouverture
+ * attend au plus {@code budget-wait-ms} puis échoue en 503.
+ * <p>
+ * Le graphe d'objets COS du document n'est pas compté : le budget borne les buffers, pas le parsing.
+ */
+@Slf4j
+@Component
+public class PdfMemoryBudget {
+
+    /** Cache de pages de RandomAccessReadBufferedFile : au plus 1000 pages de 4 Ko. */
+    private static final long FILE_PAGE_CACHE_BYTES = 1000L * 4096;
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    private final int inMemoryThreshold;
+    private final long scratchMainMemory;
+    private final long waitMs;
+    private final Path scratchDirectory;
+    private final RandomAccessStreamCache.StreamCacheCreateFunction streamCache;
+
+    /** Budget en Kio (les permis d'un Semaphore sont des int). Équitable : un gros document n'est pas affamé. */
+    private final int budgetKib;
+    private final Semaphore budget;
+
+    public PdfMemoryBudget(@Value("${pdf-forms.pdfbox.max-main-memory-per-document:16777216}") long maxMainMemoryPerDocument,
+                           @Value("${pdf-forms.pdfbox.scratch-main-memory:4194304}") long scratchMainMemory,
+                           @Value("${pdf-forms.pdfbox.memory-budget-bytes:268435456}") long budgetBytes,
+                           @Value("${pdf-forms.pdfbox.budget-wait-ms:10000}") long waitMs,
+                           @Value("${pdf-forms.pdfbox.scratch-dir:./data/scratch}") Path scratchDirectory) throws IOException {
+        if (maxMainMemoryPerDocument <= scratchMainMemory) {
+            throw new IllegalArgumentException("max-main-memory-per-document doit dépasser scratch-main-memory.");
+        }
+        this.inMemoryThreshold = (int) Math.min(maxMainMemoryPerDocument - scratchMainMemory, Integer.MAX_VALUE - 8);
+        this.scratchMainMemory = scratchMainMemory;
+        this.waitMs = waitMs;
+        this.scratchDirectory = Files.createDirectories(scratchDirectory).toAbsolutePath();
+        this.streamCache = MemoryUsageSetting.setupMixed(scratchMainMemory)
+                .setTempDir(this.scratchDirectory.toFile())
+                .streamCache;
+        this.budgetKib = kib(budgetBytes);
+        this.budget = new Semaphore(budgetKib, true);
+        log.info("Budget mémoire PDFBox : {} octets, {} octets en mémoire par document.",
+                budgetBytes, maxMainMemoryPerDocument);
+    }
+
+    /**
+     * Lit le flux pour PDFBox : en mémoire jusqu'à {@code max-main-memory-per-document}
+     * (moins la part du cache de streams), au-delà dans un fichier temporaire.
+     * La source retournée rend sa réservation (et supprime son fichier) à la fermeture.
+     */
+    public RandomAccessRead spool(InputStream in) throws IOException {
+        Reservation reservation = reserve(Math.max(inMemoryThreshold, FILE_PAGE_CACHE_BYTES) + scratchMainMemory);
+        try {
+            byte[] buffer = new byte[Math.min(INITIAL_BUFFER_SIZE, inMemoryThreshold)];
+            int length = 0;
+            int n;
+            while ((n = in.read(buffer, length, buffer.length - length)) != -1) {
+                length += n;
+                if (length < buffer.length) continue;
+                if (buffer.length == inMemoryThreshold) {
+                    int next = in.read();
+                    if (next == -1) break;
+                    return spill(buffer, next, in, reservation);
+                }
+                buffer = Arrays.copyOf(buffer, (int) Math.min(2L * buffer.length, inMemoryThreshold));
+            }
+            reservation.shrinkTo(buffer.length + scratchMainMemory);
+            return new MemorySource(ByteBuffer.wrap(buffer, 0, length), reservation);
+        } catch (IOException | RuntimeException e) {
+            reservation.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Ouvre un fichier déjà sur disque : seul son cache de pages est compté.
+     */
+    public RandomAccessRead open(Path file) throws IOException {
+        Reservation reservation = reserve(FILE_PAGE_CACHE_BYTES + scratchMainMemory);
+        try {
+            return new FileSource(file, false, reservation);
+        } catch (IOException | RuntimeException e) {
+            reservation.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Cache de streams des documents ouverts : mixte, débordant dans le répertoire scratch.
+     */
+    public RandomAccessStreamCache.StreamCacheCreateFunction streamCache() {
+        return streamCache;
+    }
+
+    /** Octets actuellement réservés par les documents ouverts. */
+    public long reservedBytes() {
+        return (long) (budgetKib - budget.availablePermits()) * 1024;
+    }
+
+    private RandomAccessRead spill(byte[] head, int next, InputStream rest, Reservation reservation) throws IOException {
+        Path file = Files.createTempFile(scratchDirectory, "spool-", ".pdf");
+        try {
+            try (OutputStream out = Files.newOutputStream(file)) {
+                out.write(head);
+                out.write(next);
+                rest.transferTo(out);
+            }
+            log.debug("PDF de plus de {} octets : lu depuis {}.", inMemoryThreshold, file);
+            reservation.shrinkTo(FILE_PAGE_CACHE_BYTES + scratchMainMemory);
+            return new FileSource(file, true, reservation);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    private Reservation reserve(long bytes) throws IOException {
+        int permits = Math.min(kib(bytes), budgetKib);
+        try {
+            if (!budget.tryAcquire(permits, waitMs, TimeUnit.MILLISECONDS)) {
+                log.warn("Budget mémoire PDFBox épuisé : {} octets réservés.", reservedBytes());
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "Serveur saturé : trop de documents en cours de traitement, réessayez plus tard.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Attente du budget mémoire interrompue.", e);
+        }
+        return new Reservation(permits);
+    }
+
+    private static int kib(long bytes) {
+        return (int) Math.min((bytes + 1023) / 1024, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Part du budget détenue par un document ; rendue une seule fois.
+     */
+    private final class Reservation {
+        private final AtomicInteger permits;
+
+        Reservation(int permits) {
+            this.permits = new AtomicInteger(permits);
+        }
+
+        void shrinkTo(long bytes) {
+            int target = Math.min(kib(bytes), permits.get());
+            budget.release(permits.getAndSet(target) - target);
+        }
+
+        void release() {
+            budget.release(permits.getAndSet(0));
+        }
+    }
+
+    private static final class MemorySource extends RandomAccessReadBuffer {
+        private final Reservation reservation;
+
+        MemorySource(ByteBuffer buffer, Reservation reservation) {
+            super(buffer);
+            this.reservation = reservation;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                reservation.release();
+            }
+        }
+    }
+
+    private static final class FileSource extends RandomAccessReadBufferedFile {
+        private final Path file;
+        private final boolean temporary;
+        private final Reservation reservation;
+
+        FileSource(Path file, boolean temporary, Reservation reservation) throws IOException {
+            super(file);
+            this.file = file;
+            this.temporary = temporary;
+            this.reservation = reservation;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                reservation.release();
+                if (temporary) Files.deleteIfExists(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.pdfforms.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Métriques des traitements PDF, toutes étiquetées par {@code operation}.
+ * <ul>
+ *   <li>{@code pdfforms.phase} : durée de chaque phase (load, apply-fields, cms, save, mongo-find…), tag {@code phase} ;</li>
+ *   <li>{@code pdfforms.pdf.bytes} : taille des PDFs lus et écrits, tag {@code direction} (in / out) ;</li>
+ *   <li>{@code pdfforms.pdf.pages} et {@code pdfforms.pdf.fields} : pages et champs des documents traités ;</li>
+ *   <li>{@code pdfforms.admission.rejected} : opérations refusées en 429 par le contrôle d'admission.</li>
+ * </ul>
+ * Les timers et distributions publient un histogramme (buckets Prometheus).
+ * Les jauges (files, opérations en cours) sont déclarées dans MetricsConfig.
+ */
+@Component
+@RequiredArgsConstructor
+public class PdfMetrics {
+
+    private final MeterRegistry registry;
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+    @FunctionalInterface
+    public interface TimedCall<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    @FunctionalInterface
+    public interface TimedRun<E extends Exception> {
+        void run() throws E;
+    }
+
+    @FunctionalInterface
+    public interface TimedWrite<E extends Exception> {
+        void writeTo(OutputStream out) throws E;
+    }
+
+    /**
+     * Exécute {@code call} en mesurant sa durée comme la phase {@code phase} de {@code operation}.
+     * Les échecs sont mesurés aussi.
+     */
+    public <T, E extends Exception> T time(String operation, String phase, TimedCall<T, E> call) throws E {
+        long start = System.nanoTime();
+        try {
+            return call.call();
+        } finally {
+            record(operation, phase, System.nanoTime() - start);
+        }
+    }
+
+    public <E extends Exception> void time(String operation, String phase, TimedRun<E> run) throws E {
+        long start = System.nanoTime();
+        try {
+            run.run();
+        } finally {
+            record(operation, phase, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Phase "save" : mesure l'écriture de {@code write} dans {@code out} et la taille produite.
+     */
+    public <E extends Exception> void save(String operation, OutputStream out,
+                                           TimedWrite<E> write) throws E {
+        CountingOutputStream counted = new CountingOutputStream(out);
+        time(operation, "save", () -> write.writeTo(counted));
+        bytesOut(operation, counted.count);
+    }
+
+    public void record(String operation, String phase, long nanos) {
+        timers.computeIfAbsent(operation + '|' + phase, key -> Timer.builder("pdfforms.phase")
+                        .description("Durée des phases de traitement PDF")
+                        .tag("operation", operation)
+                        .tag("phase", phase)
+                        .publishPercentileHistogram()
+                        .register(registry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void rejected(String operation) {
+        registry.counter("pdfforms.admission.rejected", "operation", operation).increment();
+    }
+
+    public void bytesIn(String operation, long bytes) {
+        summary("pdfforms.pdf.bytes", "bytes", operation, "in").record(bytes);
+    }
+
+    public void bytesOut(String operation, long bytes) {
+        summary("pdfforms.pdf.bytes", "bytes", operation, "out").record(bytes);
+    }
+
+    public void pages(String operation, int pages) {
+        summary("pdfforms.pdf.pages", "pages", operation, null).record(pages);
+    }
+
+    public void fields(String operation, int fields) {
+        summary("pdfforms.pdf.fields", "fields", operation, null).record(fields);
+    }
+
+    private DistributionSummary summary(String name, String unit, String operation, String direction) {
+        return summaries.computeIfAbsent(name + '|' + operation + '|' + direction, key -> {
+            DistributionSummary.Builder builder = DistributionSummary.builder(name)
+                    .baseUnit(unit)
+                    .tag("operation", operation)
+                    .publishPercentileHistogram();
+            if (direction != null) {
+                builder.tag("direction", direction);
+            }
+            return builder.register(registry);
+        });
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.pdfforms.service;
+
+import com.pdfforms.model.PdfRevision;
+import com.pdfforms.model.PdfSegment;
+import com.pdfforms.model.StoredBlob;
+import com.pdfforms.repository.BlobStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Lecture et écriture des révisions de PDF d'un workflow dans le blob store.
+ * <p>
+ * Le master est un journal en ajout seul : un blob de base puis un segment par incrément
+ * (saveIncremental ne fait qu'ajouter des octets en fin de fichier). Chaque signature n'écrit
+ * que son incrément ; la lecture enchaîne les segments en flux, sans reconstituer le fichier.
+ * Sendfile ne transmet qu'un fichier par réponse : seule une révision en un seul blob local
+ * en bénéficie ({@link #localFile}). Un master signé, fait de plusieurs segments, est servi
+ * depuis le cache hors tas ou copié par blocs, segment après segment ({@link #copyRange}).
+ * Les blobs marqués partagés (templates) ne sont jamais supprimés.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PdfRevisionStore {
+
+    private final BlobStore blobStore;
+
+    /**
+     * Écrit une révision de PDF dans le blob store, nommée "{workflowId}/{kind}-r{revision}.pdf".
+     */
+    public PdfRevision store(String workflowId, String kind, int revision,
+                             BlobStore.BlobWriter writer) throws Exception {
+        StoredBlob blob = blobStore.store(
+                "%s/%s-r%d.pdf".formatted(workflowId, kind, revision),
+                Map.of("workflowId", workflowId, "kind", kind, "revision", revision),
+                writer);
+        return PdfRevision.builder()
+                .revision(revision)
+                .blobId(blob.getBlobId())
+                .length(blob.getLength())
+                .sha256(blob.getSha256())
+                .build();
+    }
+
+    /**
+     * Ajoute un incrément à la révision {@code previous}. {@code writer} produit le fichier complet
+     * (sortie d'un saveIncremental) : le préfixe déjà stocké est vérifié puis écarté, seul
+     * l'incrément est écrit, dans un blob "{workflowId}/{kind}-increment-r{revision}.pdf".
+     */
+    public PdfRevision append(String workflowId, String kind, PdfRevision previous, int revision,
+                              BlobStore.BlobWriter writer) throws Exception {
+        List<PdfSegment> prefix = segmentsOf(previous);
+        StoredBlob blob = blobStore.store(
+                "%s/%s-increment-r%d.pdf".formatted(workflowId, kind, revision),
+                Map.of("workflowId", workflowId, "kind", kind + "-increment", "revision", revision,
+                        "offset", previous.getLength()),
+                out -> {
+                    IncrementOutputStream increment = new IncrementOutputStream(out, prefix);
+                    writer.writeTo(increment);
+                    increment.finish();
+                });
+        if (blob.getLength() == 0) {
+            blobStore.delete(blob.getBlobId());
+            throw new IllegalStateException("Révision %d : aucun incrément produit.".formatted(revision));
+        }
+
+        List<PdfSegment> segments = new ArrayList<>(prefix);
+        segments.add(PdfSegment.builder()
+                .blobId(blob.getBlobId())
+                .offset(previous.getLength())
+                .length(blob.getLength())
+                .sha256(blob.getSha256())
+                .build());
+        return PdfRevision.builder()
+                .revision(revision)
+                .length(previous.getLength() + blob.getLength())
+                .sha256(chain(previous.getSha256(), blob.getSha256()))
+                .segments(segments)
+                .voidedRevisions(previous.getVoidedRevisions())
+                .build();
+    }
+
+    /**
+     * Ouvre la révision en flux : les segments sont ouverts l'un après l'autre, à la demande.
+     */
+    public InputStream open(PdfRevision revision) throws IOException {
+        if (revision.getSegments() == null || revision.getSegments().isEmpty()) {
+            return blobStore.open(revision.getBlobId());
+        }
+        Iterator<PdfSegment> segments = revision.getSegments().iterator();
+        return new SequenceInputStream(new Enumeration<>() {
+            @Override
+            public boolean hasMoreElements() {
+                return segments.hasNext();
+            }
+
+            @Override
+            public InputStream nextElement() {
+                try {
+                    return blobStore.open(segments.next().getBlobId());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Copie les octets [offset, offset + length[ de la révision, à cheval sur plusieurs segments si besoin.
+     * Chaque segment est lu par blocs puis écrit dans {@code out} : une copie, pas un transfert zero-copy.
+     */
+    public void copyRange(PdfRevision revision, long offset, long length, OutputStream out) throws IOException {
+        long end = offset + length;
+        for (PdfSegment segment : segmentsOf(revision)) {
+            long segmentEnd = segment.getOffset() + segment.getLength();
+            if (segmentEnd <= offset) continue;
+            if (segment.getOffset() >= end) break;
+            long from = Math.max(offset, segment.getOffset());
+            long to = Math.min(end, segmentEnd);
+            blobStore.copyRange(segment.getBlobId(), from - segment.getOffset(), to - from, out);
+        }
+    }
+
+    /**
+     * Fichier local de la révision, uniquement si elle tient dans un seul blob stocké sur disque.
+     * Un journal de plusieurs segments n'est pas un fichier contigu : il n'est jamais transmis par sendfile.
+     */
+    public Optional<Path> localFile(PdfRevision revision) {
+        List<PdfSegment> segments = segmentsOf(revision);
+        return segments.size() == 1 ? blobStore.localFile(segments.get(0).getBlobId()) : Optional.empty();
+    }
+
+    /**
+     * Copie de la révision dont tous les blobs sont marqués partagés : aucun workflow qui la
+     * référence (ou la prolonge par {@link #append}) ne les supprimera.
+     */
+    public PdfRevision share(PdfRevision revision) {
+        return revision.toBuilder()
+                .shared(true)
+                .segments(revision.getSegments() == null ? null : revision.getSegments().stream()
+                        .map(segment -> segment.toBuilder().shared(true).build())
+                        .toList())
+                .build();
+    }
+
+    /**
+     * Supprime les blobs d'une révision remplacée. Un échec ne laisse qu'un blob orphelin : on le logue.
+     */
+    public void deleteQuietly(PdfRevision revision) {
+        if (revision == null) return;
+        segmentsOf(revision).stream()
+                .filter(segment -> !segment.isShared())
+                .forEach(segment -> deleteBlobQuietly(segment.getBlobId()));
+    }
+
+    /**
+     * Supprime les blobs de {@code previous} qui ne sont plus référencés par {@code current}.
+     * Pour un journal prolongé par {@link #append}, aucun : tous les segments sont partagés.
+     */
+    public void deleteSupersededQuietly(PdfRevision previous, PdfRevision current) {
+        if (previous == null) return;
+        Set<String> kept = segmentsOf(current).stream()
+                .map(PdfSegment::getBlobId)
+                .collect(Collectors.toSet());
+        segmentsOf(previous).stream()
+                .filter(segment -> !segment.isShared())
+                .map(PdfSegment::getBlobId)
+                .filter(blobId -> !kept.contains(blobId))
+                .forEach(this::deleteBlobQuietly);
+    }
+
+    private void deleteBlobQuietly(String blobId) {
+        try {
+            blobStore.delete(blobId);
+        } catch (Exception e) {
+            log.warn("Impossible de supprimer le blob {} : {}", blobId, e.getMessage());
+        }
+    }
+
+    /**
+     * Segments d'une révision ; une révision en blob unique est vue comme un journal d'un seul segment.
+     */
+    private static List<PdfSegment> segmentsOf(PdfRevision revision) {
+        if (revision.getSegments() != null && !revision.getSegments().isEmpty()) {
+            return revision.getSegments();
+        }
+        return List.of(PdfSegment.builder()
+                .blobId(revision.getBlobId())
+                .offset(0)
+                .length(revision.getLength())
+                .sha256(revision.getSha256())
+                .shared(revision.isShared())
+                .build());
+    }
+
+    /**
+     * Empreinte chaînée : SHA-256 de l'empreinte précédente suivie de celle du nouveau segment.
+     */
+    private static String chain(String previousSha256, String segmentSha256) throws Exception {
+        byte[] hash = MessageDigest.getInstance("SHA-256")
+                .digest((previousSha256 + segmentSha256).getBytes(StandardCharsets.US_ASCII));
+        return HexFormat.of().formatHex(hash);
+    }
+}
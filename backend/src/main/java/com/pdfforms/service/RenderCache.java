@@ -0,0 +1,237 @@
+package com.pdfforms.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Cache à deux niveaux des pages rendues, indexé par (workflow, révision, page, dpi) :
+ * un LRU en mémoire borné en octets, adossé à un cache disque.
+ * Une révision étant immuable, une entrée n'est jamais invalidée ; seules les révisions
+ * antérieures d'un workflow sont purgées lorsqu'une nouvelle révision est rendue.
+ * <p>
+ * Les workflows terminés ou supprimés ne rendent plus de nouvelle révision : une purge périodique
+ * ({@link #sweep()}) borne donc le cache disque en âge ({@code pdf-forms.render.disk-max-age-hours})
+ * et en taille ({@code disk-max-bytes}), en supprimant d'abord les fichiers les moins récemment
+ * écrits ou relus depuis le disque.
+ */
+@Slf4j
+@Component
+public class RenderCache {
+
+    /** Délai avant de supprimer un répertoire de workflow vide. */
+    private static final long DIRECTORY_GRACE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final Pattern FILE_NAME = Pattern.compile("r(\\d+)-p\\d+-\\d+\\.png");
+
+    private final long maxMemoryBytes;
+    private final Path directory;
+    private final long maxDiskBytes;
+    private final long maxDiskAgeMillis;
+
+    /** LRU : accessOrder = true, l'entrée la moins récemment lue est en tête. */
+    private final LinkedHashMap<String, byte[]> memory = new LinkedHashMap<>(256, 0.75f, true);
+    private long memoryBytes;
+
+    public RenderCache(@Value("${pdf-forms.render.memory-max-bytes:67108864}") long maxMemoryBytes,
+                       @Value("${pdf-forms.render.cache-dir:./data/renders}") Path directory,
+                       @Value("${pdf-forms.render.disk-max-bytes:1073741824}") long maxDiskBytes,
+                       @Value("${pdf-forms.render.disk-max-age-hours:168}") long maxDiskAgeHours) throws IOException {
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.directory = Files.createDirectories(directory).toAbsolutePath();
+        this.maxDiskBytes = maxDiskBytes;
+        this.maxDiskAgeMillis = TimeUnit.HOURS.toMillis(maxDiskAgeHours);
+    }
+
+    public Optional<byte[]> get(String workflowId, int revision, int page, int dpi) {
+        String key = key(workflowId, revision, page, dpi);
+        synchronized (memory) {
+            byte[] png = memory.get(key);
+            if (png != null) return Optional.of(png);
+        }
+        try {
+            Path file = directory.resolve(key);
+            byte[] png = Files.readAllBytes(file);
+            putInMemory(key, png);
+            touch(file);
+            return Optional.of(png);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            log.warn("Lecture du cache de rendu impossible ({}) : {}", key, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    public void put(String workflowId, int revision, int page, int dpi, byte[] png) {
+        String key = key(workflowId, revision, page, dpi);
+        putInMemory(key, png);
+        try {
+            Path file = directory.resolve(key);
+            Files.createDirectories(file.getParent());
+            Path tmp = Files.createTempFile(file.getParent(), "render-", ".tmp");
+            Files.write(tmp, png);
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.warn("Écriture du cache de rendu impossible ({}) : {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * Purge les rendus des révisions antérieures à {@code revision} pour ce workflow.
+     */
+    public void evictOlderRevisions(String workflowId, int revision) {
+        String prefix = workflowId + "/";
+        synchronized (memory) {
+            Iterator<Map.Entry<String, byte[]>> it = memory.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, byte[]> entry = it.next();
+                if (entry.getKey().startsWith(prefix) && revisionOf(entry.getKey().substring(prefix.length())) < revision) {
+                    memoryBytes -= entry.getValue().length;
+                    it.remove();
+                }
+            }
+        }
+        Path workflowDir = directory.resolve(workflowId);
+        if (!Files.isDirectory(workflowDir)) return;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(workflowDir)) {
+            for (Path file : files) {
+                if (revisionOf(file.getFileName().toString()) < revision) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Purge du cache de rendu impossible pour {} : {}", workflowId, e.getMessage());
+        }
+    }
+
+    /**
+     * Purge globale du cache disque : supprime les rendus plus anciens que l'âge maximal, puis les
+     * plus anciens jusqu'à repasser sous la taille maximale, et enfin les répertoires de workflow vides
+     * (ceux vidés par cette purge le sont à la suivante).
+     */
+    @Scheduled(initialDelayString = "${pdf-forms.render.sweep-interval-ms:600000}",
+            fixedDelayString = "${pdf-forms.render.sweep-interval-ms:600000}")
+    public void sweep() {
+        long started = System.currentTimeMillis();
+        long cutoff = started - maxDiskAgeMillis;
+        List<CachedFile> kept = new ArrayList<>();
+        long keptBytes = 0;
+        int deleted = 0;
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                } catch (NoSuchFileException e) {
+                    continue; // purgé entre-temps par evictOlderRevisions
+                }
+                if (!attributes.isRegularFile()) continue;
+                long lastModified = attributes.lastModifiedTime().toMillis();
+                if (lastModified < cutoff) {
+                    if (deleteQuietly(file)) deleted++;
+                } else {
+                    kept.add(new CachedFile(file, lastModified, attributes.size()));
+                    keptBytes += attributes.size();
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Parcours du cache de rendu impossible : {}", e.getMessage());
+            return;
+        }
+
+        kept.sort(Comparator.comparingLong(CachedFile::lastModified));
+        for (Iterator<CachedFile> it = kept.iterator(); keptBytes > maxDiskBytes && it.hasNext(); ) {
+            CachedFile file = it.next();
+            if (deleteQuietly(file.path())) {
+                deleted++;
+                keptBytes -= file.size();
+            }
+        }
+        deleteEmptyDirectories(started);
+        if (deleted > 0) {
+            log.info("Cache de rendu : {} fichiers purgés, {} octets conservés.", deleted, keptBytes);
+        }
+    }
+
+    private void deleteEmptyDirectories(long sweepStarted) {
+        try (DirectoryStream<Path> workflowDirs = Files.newDirectoryStream(directory, Files::isDirectory)) {
+            for (Path workflowDir : workflowDirs) {
+                // modifié récemment (y compris par cette purge) : peut être en train de recevoir un rendu
+                if (Files.getLastModifiedTime(workflowDir).toMillis() >= sweepStarted - DIRECTORY_GRACE_MILLIS) continue;
+                try {
+                    Files.delete(workflowDir);
+                } catch (DirectoryNotEmptyException | NoSuchFileException e) {
+                    // encore utilisé, ou déjà supprimé
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Purge des répertoires du cache de rendu impossible : {}", e.getMessage());
+        }
+    }
+
+    private boolean deleteQuietly(Path file) {
+        try {
+            return Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Suppression de {} impossible : {}", file, e.getMessage());
+            return false;
+        }
+    }
+
+    /** Un rendu relu depuis le disque est daté de sa dernière lecture, pour la purge par taille. */
+    private static void touch(Path file) {
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // sans conséquence : le fichier sera seulement purgé plus tôt
+        }
+    }
+
+    private record CachedFile(Path path, long lastModified, long size) {
+    }
+
+    private void putInMemory(String key, byte[] png) {
+        if (png.length > maxMemoryBytes) return;
+        synchronized (memory) {
+            byte[] previous = memory.put(key, png);
+            memoryBytes += png.length - (previous != null ? previous.length : 0);
+            Iterator<byte[]> it = memory.values().iterator();
+            while (memoryBytes > maxMemoryBytes && it.hasNext()) {
+                memoryBytes -= it.next().length;
+                it.remove();
+            }
+        }
+    }
+
+    private static int revisionOf(String fileName) {
+        Matcher m = FILE_NAME.matcher(fileName);
+        return m.matches() ? Integer.parseInt(m.group(1)) : Integer.MAX_VALUE;
+    }
+
+    private static String key(String workflowId, int revision, int page, int dpi) {
+        return "%s/r%d-p%d-%d.png".formatted(workflowId, revision, page, dpi);
+    }
+}
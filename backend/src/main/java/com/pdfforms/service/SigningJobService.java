@@ -0,0 +1,267 @@
+package com.pdfforms.service;
+
+import com.pdfforms.dto.FillAndSignRequest;
+import com.pdfforms.dto.SigningJobResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * File des signatures (fill-and-sign).
+ * <p>
+ * Les signatures d'un même workflow sont exécutées l'une après l'autre, dans l'ordre d'arrivée :
+ * chaque révision incrémentale s'appuie sur la précédente. Les workflows distincts sont traités
+ * en parallèle sur le pool {@code signingExecutor}. Une tâche du pool ne traite qu'un job puis
+ * se replanifie si d'autres attendent pour le même workflow, pour ne pas monopoliser un thread.
+ * <p>
+ * La profondeur des files est bornée, globalement et par workflow : au-delà, 429 avec Retry-After.
+ * Si le pool refuse de planifier le traitement d'un workflow (arrêt en cours), les jobs en attente
+ * pour ce workflow échouent en 503 plutôt que de rester bloqués en file.
+ */
+@Slf4j
+@Service
+public class SigningJobService {
+
+    public enum Status { QUEUED, RUNNING, SUCCEEDED, FAILED }
+
+    private final WorkflowService workflowService;
+    private final ThreadPoolTaskExecutor signingExecutor;
+    private final int maxPending;
+    private final int maxPendingPerWorkflow;
+    private final Duration retention;
+
+    /** Jobs en attente par workflow. Une entrée présente signifie qu'une tâche de traitement est planifiée. */
+    private final Map<String, Deque<Job>> queues = new ConcurrentHashMap<>();
+    /** Tous les jobs connus, terminés compris (conservés {@code retention} pour le polling). */
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    public SigningJobService(WorkflowService workflowService,
+                             @Qualifier("signingExecutor") ThreadPoolTaskExecutor signingExecutor,
+                             @Value("${pdf-forms.signing.max-pending:200}") int maxPending,
+                             @Value("${pdf-forms.signing.max-pending-per-workflow:20}") int maxPendingPerWorkflow,
+                             @Value("${pdf-forms.signing.job-retention-minutes:15}") long retentionMinutes) {
+        this.workflowService = workflowService;
+        this.signingExecutor = signingExecutor;
+        this.maxPending = maxPending;
+        this.maxPendingPerWorkflow = maxPendingPerWorkflow;
+        this.retention = Duration.ofMinutes(retentionMinutes);
+    }
+
+    /**
+     * Place une signature dans la file du workflow et retourne immédiatement son état (QUEUED).
+     * Lève 429 si la file globale ou celle du workflow est pleine.
+     */
+    public SigningJobResponse submit(String workflowId, FillAndSignRequest request) {
+        return toResponse(enqueue(workflowId, request));
+    }
+
+    /**
+     * Place une signature dans la file du workflow et attend son résultat sur le thread appelant.
+     * Les erreurs métier (ResponseStatusException) sont relancées telles quelles.
+     */
+    public Map<String, Object> submitAndWait(String workflowId, FillAndSignRequest request) throws Exception {
+        Job job = enqueue(workflowId, request);
+        try {
+            return job.future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) throw cause;
+            throw e;
+        } finally {
+            jobs.remove(job.id);
+        }
+    }
+
+    /**
+     * Place une signature dans la file du workflow sans attendre : le future porte le résultat.
+     * L'état du job n'est pas conservé pour le polling.
+     */
+    public CompletableFuture<Map<String, Object>> submitAsync(String workflowId, FillAndSignRequest request) {
+        Job job = enqueue(workflowId, request);
+        return job.future.whenComplete((result, error) -> jobs.remove(job.id));
+    }
+
+    public SigningJobResponse getJob(String jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Job introuvable : " + jobId);
+        }
+        return toResponse(job);
+    }
+
+    /**
+     * Nombre de signatures en attente ou en cours, tous workflows confondus.
+     */
+    public int pendingCount() {
+        return pending.get();
+    }
+
+    private Job enqueue(String workflowId, FillAndSignRequest request) {
+        purgeExpired();
+        if (pending.incrementAndGet() > maxPending) {
+            pending.decrementAndGet();
+            throw new TooManyRequestsException("Trop de signatures en attente, réessayez dans quelques instants.",
+                    maxPending / Math.max(1, signingExecutor.getMaxPoolSize()));
+        }
+
+        Job job = new Job(new ObjectId().toHexString(), workflowId, request);
+        boolean[] start = new boolean[1];
+        try {
+            queues.compute(workflowId, (k, queue) -> {
+                if (queue == null) {
+                    queue = new ConcurrentLinkedDeque<>();
+                    start[0] = true;
+                } else if (queue.size() >= maxPendingPerWorkflow) {
+                    throw new TooManyRequestsException("Trop de signatures en attente pour ce workflow.",
+                            queue.size());
+                }
+                queue.add(job);
+                return queue;
+            });
+        } catch (ResponseStatusException e) {
+            pending.decrementAndGet();
+            throw e;
+        }
+        jobs.put(job.id, job);
+
+        if (start[0] && !schedule(workflowId)) {
+            jobs.remove(job.id);
+            throw unavailable();
+        }
+        log.debug("Signature {} en file pour workflowId={}.", job.id, workflowId);
+        return job;
+    }
+
+    /**
+     * Exécute le prochain job du workflow puis se replanifie s'il en reste ;
+     * sinon retire la file, ce qui permet au prochain submit de replanifier un traitement.
+     * La file du pool ne peut déborder : il y a au plus une tâche planifiée par job en attente,
+     * et sa capacité est dérivée de {@code pdf-forms.signing.max-pending} (voir ExecutorConfig).
+     */
+    private void runNext(String workflowId) {
+        Job job = queues.get(workflowId).peek();
+        job.status = Status.RUNNING;
+        try {
+            job.future.complete(workflowService.fillAndSign(workflowId, job.request));
+            job.status = Status.SUCCEEDED;
+        } catch (Throwable e) {
+            if (!(e instanceof ResponseStatusException)) {
+                log.error("Échec de la signature {} pour workflowId={}.", job.id, workflowId, e);
+            }
+            job.status = Status.FAILED;
+            job.future.completeExceptionally(e);
+        } finally {
+            job.finishedAt = LocalDateTime.now();
+            job.request = null;
+            pending.decrementAndGet();
+        }
+
+        Deque<Job> remaining = queues.computeIfPresent(workflowId, (k, queue) -> {
+            queue.poll();
+            return queue.isEmpty() ? null : queue;
+        });
+        if (remaining != null) {
+            schedule(workflowId);
+        }
+    }
+
+    /**
+     * Planifie le traitement du workflow. En cas de refus du pool, la file du workflow est retirée
+     * et ses jobs échouent en 503 ; sans cela, l'entrée resterait présente sans tâche pour la vider
+     * et toute signature ultérieure du workflow resterait en attente indéfiniment.
+     *
+     * @return false si le pool a refusé la tâche
+     */
+    private boolean schedule(String workflowId) {
+        try {
+            signingExecutor.execute(() -> runNext(workflowId));
+            return true;
+        } catch (RejectedExecutionException e) {
+            log.warn("Traitement des signatures refusé par le pool pour workflowId={} : {}", workflowId, e.getMessage());
+            Deque<Job> abandoned = queues.remove(workflowId);
+            if (abandoned != null) {
+                for (Job job : abandoned) {
+                    job.status = Status.FAILED;
+                    job.finishedAt = LocalDateTime.now();
+                    job.request = null;
+                    job.future.completeExceptionally(unavailable());
+                    pending.decrementAndGet();
+                }
+            }
+            return false;
+        }
+    }
+
+    private static ResponseStatusException unavailable() {
+        return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                "Service de signature indisponible, réessayez dans quelques instants.");
+    }
+
+    private void purgeExpired() {
+        LocalDateTime limit = LocalDateTime.now().minus(retention);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(limit));
+    }
+
+    private SigningJobResponse toResponse(Job job) {
+        SigningJobResponse.SigningJobResponseBuilder response = SigningJobResponse.builder()
+                .jobId(job.id)
+                .workflowId(job.workflowId)
+                .status(job.status.name())
+                .createdAt(job.createdAt)
+                .finishedAt(job.finishedAt);
+
+        if (job.status == Status.QUEUED) {
+            Deque<Job> queue = queues.get(job.workflowId);
+            if (queue != null) {
+                int position = 0;
+                for (Job queued : queue) {
+                    if (queued == job) break;
+                    position++;
+                }
+                response.position(position);
+            }
+        } else if (job.status == Status.SUCCEEDED) {
+            response.result(job.future.getNow(null));
+        } else if (job.status == Status.FAILED) {
+            Throwable error = job.future.handle((r, e) -> e).join();
+            if (error instanceof ResponseStatusException rse) {
+                response.errorStatus(rse.getStatusCode().value()).error(rse.getReason());
+            } else {
+                response.errorStatus(HttpStatus.INTERNAL_SERVER_ERROR.value()).error("Erreur lors de la signature.");
+            }
+        }
+        return response.build();
+    }
+
+    private static final class Job {
+        final String id;
+        final String workflowId;
+        final LocalDateTime createdAt = LocalDateTime.now();
+        final CompletableFuture<Map<String, Object>> future = new CompletableFuture<>();
+        volatile FillAndSignRequest request;
+        volatile Status status = Status.QUEUED;
+        volatile LocalDateTime finishedAt;
+
+        Job(String id, String workflowId, FillAndSignRequest request) {
+            this.id = id;
+            this.workflowId = workflowId;
+            this.request = request;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.pdfforms.service;
+
+import com.pdfforms.dto.TemplateInstantiateRequest;
+import com.pdfforms.dto.TemplateSummaryDto;
+import com.pdfforms.dto.WorkflowCreateRequest;
+import com.pdfforms.dto.WorkflowCreateResponse;
+import com.pdfforms.model.FieldDefinition;
+import com.pdfforms.model.Signer;
+import com.pdfforms.model.SignerStatus;
+import com.pdfforms.model.TemplateRole;
+import com.pdfforms.model.WorkflowTemplate;
+import com.pdfforms.repository.TemplateRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Templates de workflow : le master certifié et le PDF aplati initial sont préparés une seule fois
+ * à la création du template. Un workflow créé depuis un template référence ces blobs partagés
+ * (jamais supprimés par le workflow) et ne persiste que ses signataires et ses champs :
+ * aucun traitement PDF n'a lieu à l'instanciation.
+ * <p>
+ * Les champs d'un template sont assignés à ses rôles. À l'instanciation, chaque signataire reçoit,
+ * comme pour un workflow créé directement, le slug de son nom comme signerId, et les champs de son
+ * rôle lui sont réassignés : le rôle n'est que la clé d'assignation du template.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TemplateService {
+
+    private final TemplateRepository templateRepository;
+    private final WorkflowService workflowService;
+    private final PdfRevisionStore pdfRevisionStore;
+
+    /**
+     * Crée un template à partir d'un PDF : {@code request.signers} décrit les rôles.
+     */
+    public TemplateSummaryDto createTemplate(InputStream originalPdf,
+                                             WorkflowCreateRequest request,
+                                             String pdfOriginalName) throws Exception {
+        log.info("Création du template '{}' avec {} rôles et {} champs.",
+                request.getName(), request.getSigners().size(), request.getFields().size());
+
+        List<TemplateRole> roles = request.getSigners().stream()
+                .map(sr -> TemplateRole.builder()
+                        .roleId(WorkflowService.slugify(sr.getName()))
+                        .name(sr.getName())
+                        .order(sr.getOrder())
+                        .build())
+                .sorted(Comparator.comparingInt(TemplateRole::getOrder))
+                .collect(Collectors.toList());
+
+        String templateId = new ObjectId().toHexString();
+        WorkflowService.PreparedDocument prepared =
+                workflowService.prepareDocument("templates/" + templateId, originalPdf, request.getFields());
+
+        WorkflowTemplate template = templateRepository.save(WorkflowTemplate.builder()
+                .id(templateId)
+                .name(request.getName())
+                .pdfOriginalName(pdfOriginalName)
+                .roles(roles)
+                .fields(prepared.fields())
+                .master(pdfRevisionStore.share(prepared.master()))
+                .flattened(pdfRevisionStore.share(prepared.flattened()))
+                .createdAt(LocalDateTime.now())
+                .build());
+
+        log.info("Template '{}' créé avec id={}.", template.getName(), template.getId());
+        return toSummaryDto(template);
+    }
+
+    public List<TemplateSummaryDto> listTemplates() {
+        return templateRepository.findAll().stream()
+                .map(this::toSummaryDto)
+                .sorted(Comparator.comparing(TemplateSummaryDto::getCreatedAt).reversed())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Crée un workflow depuis un template : chaque rôle reçoit un signataire (par défaut, le nom du rôle).
+     */
+    public WorkflowCreateResponse instantiate(String templateId, TemplateInstantiateRequest request) {
+        WorkflowTemplate template = templateRepository.findById(templateId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                        "Template introuvable : " + templateId));
+
+        Map<String, TemplateInstantiateRequest.Assignee> assignees = request.getSigners().stream()
+                .collect(Collectors.toMap(TemplateInstantiateRequest.Assignee::getRoleId, Function.identity(),
+                        (a, b) -> {
+                            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                                    "Rôle attribué plusieurs fois : " + a.getRoleId());
+                        }));
+        assignees.keySet().stream()
+                .filter(roleId -> template.getRoles().stream().noneMatch(r -> r.getRoleId().equals(roleId)))
+                .findFirst()
+                .ifPresent(roleId -> {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Rôle inconnu : " + roleId);
+                });
+
+        Map<String, String> signerIdsByRole = new HashMap<>();
+        List<Signer> signers = template.getRoles().stream()
+                .map(role -> {
+                    TemplateInstantiateRequest.Assignee assignee = assignees.get(role.getRoleId());
+                    String signerName = assignee != null && assignee.getName() != null && !assignee.getName().isBlank()
+                            ? assignee.getName()
+                            : role.getName();
+                    String signerId = WorkflowService.slugify(signerName);
+                    if (signerIdsByRole.containsValue(signerId)) {
+                        throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                                "Plusieurs signataires ont le même nom : " + signerName);
+                    }
+                    signerIdsByRole.put(role.getRoleId(), signerId);
+                    return Signer.builder()
+                            .signerId(signerId)
+                            .name(signerName)
+                            .order(role.getOrder())
+                            .status(SignerStatus.PENDING)
+                            .build();
+                })
+                .collect(Collectors.toList());
+
+        // Champs du rôle réassignés à son signataire
+        List<FieldDefinition> fields = template.getFields().stream()
+                .map(field -> field.toBuilder()
+                        .assignedTo(signerIdsByRole.getOrDefault(field.getAssignedTo(), field.getAssignedTo()))
+                        .build())
+                .collect(Collectors.toList());
+
+        String name = request.getName() != null ? request.getName() : template.getName();
+        log.info("Instanciation du template {} : workflow '{}'.", templateId, name);
+        return workflowService.persistWorkflow(new ObjectId().toHexString(), name, template.getPdfOriginalName(),
+                signers, new WorkflowService.PreparedDocument(template.getMaster(), template.getFlattened(), fields));
+    }
+
+    private TemplateSummaryDto toSummaryDto(WorkflowTemplate template) {
+        return TemplateSummaryDto.builder()
+                .id(template.getId())
+                .name(template.getName())
+                .pdfOriginalName(template.getPdfOriginalName())
+                .roles(template.getRoles())
+                .fieldCount(template.getFields().size())
+                .createdAt(template.getCreatedAt())
+                .build();
+    }
+}
@@ -0,0 +1,111 @@
+package com.pdfforms.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Cache LRU borné en nombre d'entrées, dont chaque entrée expire après un TTL.
+ * <p>
+ * Les valeurs sont des instantanés : {@code copy} est appliqué à l'insertion et à chaque lecture,
+ * si bien que les appelants peuvent modifier l'objet reçu sans altérer le cache ni les autres lecteurs.
+ * Une invalidation survenue pendant un chargement empêche d'insérer la valeur chargée, qui peut
+ * être antérieure à l'écriture invalidante.
+ */
+final class TtlLruCache<K, V> {
+
+    private record CachedValue<V>(V value, long expiresAt) {
+    }
+
+    private final long ttlNanos;
+    private final UnaryOperator<V> copy;
+    private final int maxEntries;
+    /** LRU : accessOrder = true, l'entrée la moins récemment lue est évincée en premier. */
+    private final Map<K, CachedValue<V>> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private long invalidations;
+
+    TtlLruCache(int maxEntries, long ttl, TimeUnit unit, UnaryOperator<V> copy) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.copy = copy;
+        this.entries = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, CachedValue<V>> eldest) {
+                return size() > TtlLruCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Valeur en cache pour {@code key}, ou chargée par {@code loader} (hors verrou) et mise en cache.
+     * Une valeur null n'est pas mise en cache.
+     */
+    V get(K key, Supplier<V> loader) {
+        long generation;
+        synchronized (this) {
+            CachedValue<V> entry = entries.get(key);
+            if (entry != null && entry.expiresAt() - System.nanoTime() > 0) {
+                hits.incrementAndGet();
+                return copy.apply(entry.value());
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+            generation = invalidations;
+        }
+        misses.incrementAndGet();
+        V loaded = loader.get();
+        if (loaded == null) {
+            return null;
+        }
+        V snapshot = copy.apply(loaded);
+        synchronized (this) {
+            if (generation == invalidations) {
+                entries.put(key, new CachedValue<>(snapshot, System.nanoTime() + ttlNanos));
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Insère une valeur calculée par l'appelant, hors de {@link #get} (chargement qui ne tient pas
+     * dans un Supplier, par exemple parce qu'il lève des exceptions vérifiées).
+     */
+    synchronized void put(K key, V value) {
+        entries.put(key, new CachedValue<>(copy.apply(value), System.nanoTime() + ttlNanos));
+    }
+
+    synchronized void invalidate(K key) {
+        invalidations++;
+        entries.remove(key);
+    }
+
+    synchronized void invalidateIf(Predicate<K> matches) {
+        invalidations++;
+        entries.keySet().removeIf(matches);
+    }
+
+    synchronized void clear() {
+        invalidations++;
+        entries.clear();
+    }
+
+    long hits() {
+        return hits.get();
+    }
+
+    long misses() {
+        return misses.get();
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+}
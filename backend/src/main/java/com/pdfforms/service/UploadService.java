@@ -0,0 +1,271 @@
+package com.pdfforms.service;
+
+import com.pdfforms.dto.UploadCreateRequest;
+import com.pdfforms.dto.UploadStatusResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Uploads par morceaux, reprenables.
+ * <p>
+ * Chaque morceau est écrit directement dans un fichier temporaire, à la suite du précédent,
+ * et le SHA-256 est calculé au fil de l'eau : le fichier n'est jamais chargé en mémoire.
+ * Après une coupure, le client relit l'offset reçu et reprend à partir de là.
+ * Les uploads inactifs depuis {@code expire-minutes} sont supprimés par une purge périodique
+ * ({@code purge-interval-ms}), y compris quand plus aucun upload n'est créé.
+ */
+@Slf4j
+@Service
+public class UploadService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path directory;
+    private final long maxLength;
+    private final Duration expiry;
+
+    private final Map<String, Upload> uploads = new ConcurrentHashMap<>();
+
+    /**
+     * Upload terminé, prêt à être lu.
+     */
+    public record CompletedUpload(String uploadId, String fileName, Path file, long length, String sha256) {
+    }
+
+    public UploadService(@Value("${pdf-forms.uploads.directory:./data/uploads}") Path directory,
+                         @Value("${pdf-forms.uploads.max-length:209715200}") long maxLength,
+                         @Value("${pdf-forms.uploads.expire-minutes:60}") long expireMinutes) throws IOException {
+        this.directory = Files.createDirectories(directory).toAbsolutePath();
+        this.maxLength = maxLength;
+        this.expiry = Duration.ofMinutes(expireMinutes);
+
+        // Les sessions ne survivent pas à un redémarrage : leurs fichiers sont orphelins
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(this.directory, "*.part")) {
+            for (Path file : files) Files.deleteIfExists(file);
+        }
+    }
+
+    public UploadStatusResponse create(UploadCreateRequest request) throws IOException {
+        if (request.getLength() <= 0 || request.getLength() > maxLength) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Taille de fichier invalide (maximum %d octets).".formatted(maxLength));
+        }
+
+        String uploadId = new ObjectId().toHexString();
+        Path file = Files.createFile(directory.resolve(uploadId + ".part"));
+        Upload upload = new Upload(uploadId, request.getFileName(), request.getLength(), file);
+        uploads.put(uploadId, upload);
+        log.info("Upload {} créé : {} ({} octets).", uploadId, request.getFileName(), request.getLength());
+        return upload.status();
+    }
+
+    public UploadStatusResponse status(String uploadId) {
+        Upload upload = get(uploadId);
+        synchronized (upload) {
+            return upload.status();
+        }
+    }
+
+    /**
+     * Ajoute un morceau commençant à {@code start} (et finissant à {@code end} inclus, si connu).
+     * Un morceau qui ne commence pas à l'offset courant est refusé (409) : le client doit reprendre
+     * à l'offset retourné par {@link #status}. Un seul morceau est reçu à la fois par upload : un
+     * second envoi concurrent est refusé (409) au lieu d'attendre. Le verrou de l'upload n'est tenu que
+     * pour la mise à jour de l'offset, jamais pendant la lecture du réseau : {@link #status} répond
+     * même si la connexion d'un envoi précédent n'a pas encore expiré.
+     * Si la connexion est coupée en cours de morceau, les octets déjà reçus sont conservés. Un morceau
+     * qui dépasse la taille annoncée est refusé (400) en entier, sans terminer l'upload.
+     */
+    public UploadStatusResponse append(String uploadId, long start, Long end, InputStream chunk) throws IOException {
+        Upload upload = get(uploadId);
+        MessageDigest digestBefore;
+        synchronized (upload) {
+            if (upload.complete()) {
+                return upload.status();
+            }
+            if (end != null && end >= upload.length) {
+                throw excessBytes(upload);
+            }
+            if (upload.writing) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Un morceau est déjà en cours de réception pour cet upload (offset %d)."
+                                .formatted(upload.offset));
+            }
+            if (start != upload.offset) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Le morceau doit commencer à l'octet %d.".formatted(upload.offset));
+            }
+            upload.writing = true;
+            upload.lastActivity = Instant.now();
+            digestBefore = cloneDigest(upload.digest);
+        }
+
+        try (FileChannel channel = FileChannel.open(upload.file, StandardOpenOption.WRITE)) {
+            // Seul l'envoi actif (writing) lit et écrit la position et le digest hors verrou
+            long position = start;
+            channel.position(position);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int n;
+            while ((n = chunk.read(buffer, 0, (int) Math.min(buffer.length, upload.length - position))) > 0) {
+                channel.write(ByteBuffer.wrap(buffer, 0, n));
+                upload.digest.update(buffer, 0, n);
+                position += n;
+                synchronized (upload) {
+                    upload.offset = position;
+                    upload.lastActivity = Instant.now();
+                }
+            }
+
+            if (position == upload.length) {
+                if (chunk.read() != -1) {
+                    // Taille annoncée dépassée : le morceau est annulé, l'upload reste incomplet
+                    channel.truncate(start);
+                    synchronized (upload) {
+                        upload.offset = start;
+                        upload.digest = digestBefore;
+                    }
+                    throw excessBytes(upload);
+                }
+                String sha256 = HexFormat.of().formatHex(upload.digest.digest());
+                synchronized (upload) {
+                    upload.sha256 = sha256;
+                }
+                log.info("Upload {} terminé ({} octets, sha256={}).", uploadId, upload.length, sha256);
+            }
+        } finally {
+            synchronized (upload) {
+                upload.writing = false;
+                upload.lastActivity = Instant.now();
+            }
+        }
+        synchronized (upload) {
+            return upload.status();
+        }
+    }
+
+    /**
+     * Retourne un upload terminé. 404 s'il est inconnu ou expiré, 409 s'il est incomplet.
+     */
+    public CompletedUpload completed(String uploadId) {
+        Upload upload = get(uploadId);
+        synchronized (upload) {
+            if (!upload.complete()) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Upload incomplet : %d/%d octets reçus.".formatted(upload.offset, upload.length));
+            }
+            upload.lastActivity = Instant.now();
+            return new CompletedUpload(upload.id, upload.fileName, upload.file, upload.length, upload.sha256);
+        }
+    }
+
+    public void delete(String uploadId) {
+        Upload upload = uploads.remove(uploadId);
+        if (upload == null) return;
+        synchronized (upload) {
+            deleteFile(upload);
+        }
+    }
+
+    private Upload get(String uploadId) {
+        Upload upload = uploads.get(uploadId);
+        if (upload == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Upload introuvable ou expiré : " + uploadId);
+        }
+        return upload;
+    }
+
+    /**
+     * Supprime les uploads inactifs depuis plus de {@code expire-minutes} et leurs fichiers.
+     */
+    @Scheduled(initialDelayString = "${pdf-forms.uploads.purge-interval-ms:60000}",
+            fixedDelayString = "${pdf-forms.uploads.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        Instant limit = Instant.now().minus(expiry);
+        uploads.values().removeIf(upload -> {
+            if (upload.lastActivity.isAfter(limit)) return false;
+            log.debug("Upload {} expiré.", upload.id);
+            deleteFile(upload);
+            return true;
+        });
+    }
+
+    private static ResponseStatusException excessBytes(Upload upload) {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "Le morceau dépasse la taille annoncée du fichier (%d octets).".formatted(upload.length));
+    }
+
+    private static MessageDigest cloneDigest(MessageDigest digest) {
+        try {
+            return (MessageDigest) digest.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("SHA-256 non clonable", e);
+        }
+    }
+
+    private static void deleteFile(Upload upload) {
+        try {
+            Files.deleteIfExists(upload.file);
+        } catch (IOException e) {
+            log.warn("Impossible de supprimer {} : {}", upload.file, e.getMessage());
+        }
+    }
+
+    private static final class Upload {
+        final String id;
+        final String fileName;
+        final long length;
+        final Path file;
+        MessageDigest digest;
+        long offset;
+        String sha256;       // non null une fois l'upload terminé
+        boolean writing;     // un morceau est en cours de réception
+        volatile Instant lastActivity = Instant.now();
+
+        Upload(String id, String fileName, long length, Path file) {
+            this.id = id;
+            this.fileName = fileName;
+            this.length = length;
+            this.file = file;
+            try {
+                this.digest = MessageDigest.getInstance("SHA-256");
+            } catch (Exception e) {
+                throw new IllegalStateException("SHA-256 indisponible", e);
+            }
+        }
+
+        boolean complete() {
+            return sha256 != null;
+        }
+
+        UploadStatusResponse status() {
+            return UploadStatusResponse.builder()
+                    .uploadId(id)
+                    .fileName(fileName)
+                    .length(length)
+                    .offset(offset)
+                    .complete(complete())
+                    .sha256(sha256)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package com.pdfforms.service;
+
+import com.pdfforms.dto.WorkflowSummaryDto;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bus d'événements des workflows, diffusé en Server-Sent Events au tableau de bord.
+ * <p>
+ * Chaque changement (création, signature) publie le résumé du workflow. Un unique thread de diffusion
+ * fixe l'ordre des événements et les dépose dans la file bornée de chaque abonné, sans jamais écrire
+ * lui-même dans une connexion. Les écritures, bloquantes avec SseEmitter, sont faites sur le pool
+ * {@code eventsExecutor}, une seule à la fois par abonné : un client lent ne retarde que lui-même.
+ * Un abonné dont la file déborde ({@code pdf-forms.events.max-pending}) ou dont une écriture dépasse
+ * {@code write-timeout-seconds} est déconnecté ; son navigateur se reconnecte avec Last-Event-ID.
+ * <p>
+ * Les derniers événements sont conservés dans un tampon circulaire : un client qui se reconnecte avec
+ * Last-Event-ID reçoit ceux qu'il a manqués. Si ce n'est plus possible (tampon dépassé, ou identifiant
+ * d'un autre démarrage du serveur), il reçoit un événement {@code reset} et recharge la liste.
+ * Le bus est local au processus : chaque instance ne diffuse que ses propres changements.
+ */
+@Slf4j
+@Component
+public class WorkflowEventBus {
+
+    static final String WORKFLOW_EVENT = "workflow";
+    static final String RESET_EVENT = "reset";
+
+    /** Préfixe des identifiants d'événements, propre à ce démarrage du serveur. */
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final int replayCapacity;
+    private final long timeoutMs;
+    private final int maxPending;
+    private final long writeTimeoutNanos;
+    private final TaskExecutor eventsExecutor;
+
+    private final Deque<Event> replay = new ArrayDeque<>();
+    private long sequence;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "workflow-events");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private record Event(long sequence, String id, WorkflowSummaryDto summary) {
+    }
+
+    /**
+     * Émetteur et file des messages à lui écrire. {@code lastSent} n'est lu et écrit que par le thread
+     * de diffusion ; la file est vidée par une seule tâche d'écriture à la fois ({@code draining}).
+     */
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final Deque<SseEmitter.SseEventBuilder> pending = new ArrayDeque<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        /** Début de l'écriture en cours (System.nanoTime), 0 hors écriture. */
+        private volatile long writeStarted;
+        private volatile boolean closed;
+        private long lastSent;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+
+    public WorkflowEventBus(@Qualifier("eventsExecutor") TaskExecutor eventsExecutor,
+                            @Value("${pdf-forms.events.replay-capacity:1000}") int replayCapacity,
+                            @Value("${pdf-forms.events.timeout-minutes:30}") long timeoutMinutes,
+                            @Value("${pdf-forms.events.heartbeat-seconds:20}") long heartbeatSeconds,
+                            @Value("${pdf-forms.events.max-pending:256}") int maxPending,
+                            @Value("${pdf-forms.events.write-timeout-seconds:10}") long writeTimeoutSeconds) {
+        this.eventsExecutor = eventsExecutor;
+        this.replayCapacity = replayCapacity;
+        this.timeoutMs = TimeUnit.MINUTES.toMillis(timeoutMinutes);
+        this.maxPending = maxPending;
+        this.writeTimeoutNanos = TimeUnit.SECONDS.toNanos(writeTimeoutSeconds);
+        // Commentaire périodique : garde la connexion ouverte derrière les proxies et détecte les clients partis
+        dispatcher.scheduleAtFixedRate(this::heartbeat, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Publie le nouvel état d'un workflow. Ne bloque pas : la diffusion est faite par le thread dédié.
+     */
+    public void publish(WorkflowSummaryDto summary) {
+        Event event;
+        synchronized (replay) {
+            long next = ++sequence;
+            event = new Event(next, epoch + "-" + next, summary);
+            replay.addLast(event);
+            if (replay.size() > replayCapacity) {
+                replay.removeFirst();
+            }
+        }
+        dispatcher.execute(() -> {
+            for (Subscriber subscriber : subscribers) {
+                send(subscriber, event);
+            }
+        });
+    }
+
+    /**
+     * Ouvre un flux d'événements. Avec {@code lastEventId}, les événements manqués depuis sont
+     * renvoyés avant les nouveaux. À l'expiration du flux, le navigateur se reconnecte seul
+     * (EventSource) en renvoyant Last-Event-ID.
+     */
+    public SseEmitter subscribe(String lastEventId) {
+        return register(new SseEmitter(timeoutMs), lastEventId);
+    }
+
+    SseEmitter register(SseEmitter emitter, String lastEventId) {
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> close(subscriber));
+        emitter.onTimeout(() -> close(subscriber));
+        emitter.onError(e -> close(subscriber));
+
+        // Rattrapage puis abonnement sur le thread de diffusion : aucun événement n'est perdu ni doublé
+        dispatcher.execute(() -> {
+            List<Event> missed = lastEventId != null && !lastEventId.isBlank() ? missedSince(lastEventId) : null;
+            if (missed != null) {
+                missed.forEach(event -> send(subscriber, event));
+            } else {
+                if (lastEventId != null && !lastEventId.isBlank()) {
+                    enqueue(subscriber, SseEmitter.event().name(RESET_EVENT).data(""));
+                }
+                // La liste chargée par le client reflète déjà les événements publiés jusqu'ici
+                synchronized (replay) {
+                    subscriber.lastSent = sequence;
+                }
+            }
+            if (!subscriber.closed) {
+                subscribers.add(subscriber);
+            }
+        });
+        return emitter;
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        dispatcher.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.closed = true;
+            if (subscriber.writeStarted == 0) {
+                subscriber.emitter.complete();
+            }
+        }
+    }
+
+    /**
+     * Événements postérieurs à {@code lastEventId}, ou null s'ils ne sont plus tous dans le tampon.
+     */
+    private List<Event> missedSince(String lastEventId) {
+        int separator = lastEventId.lastIndexOf('-');
+        if (separator < 0 || !lastEventId.substring(0, separator).equals(epoch)) {
+            return null;
+        }
+        long last;
+        try {
+            last = Long.parseLong(lastEventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        synchronized (replay) {
+            if (last > sequence) {
+                return null;
+            }
+            long oldest = replay.isEmpty() ? sequence + 1 : replay.peekFirst().sequence();
+            if (last + 1 < oldest) {
+                return null;
+            }
+            List<Event> missed = new ArrayList<>();
+            for (Event event : replay) {
+                if (event.sequence() > last) {
+                    missed.add(event);
+                }
+            }
+            return missed;
+        }
+    }
+
+    /** Thread de diffusion uniquement. */
+    private void send(Subscriber subscriber, Event event) {
+        if (event.sequence() <= subscriber.lastSent) {
+            return;
+        }
+        subscriber.lastSent = event.sequence();
+        enqueue(subscriber, SseEmitter.event()
+                .id(event.id())
+                .name(WORKFLOW_EVENT)
+                .data(event.summary(), MediaType.APPLICATION_JSON));
+    }
+
+    private void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            enqueue(subscriber, SseEmitter.event().comment("ping"));
+        }
+    }
+
+    /**
+     * Dépose un message dans la file de l'abonné et lance son écriture. Ne bloque jamais : l'abonné
+     * est déconnecté si sa file est pleine ou si son écriture en cours a dépassé le délai.
+     */
+    private void enqueue(Subscriber subscriber, SseEmitter.SseEventBuilder message) {
+        if (subscriber.closed) {
+            return;
+        }
+        long writeStarted = subscriber.writeStarted;
+        if (writeStarted != 0 && System.nanoTime() - writeStarted > writeTimeoutNanos) {
+            drop(subscriber, "écriture bloquée depuis plus de %d s"
+                    .formatted(TimeUnit.NANOSECONDS.toSeconds(writeTimeoutNanos)));
+            return;
+        }
+        synchronized (subscriber.pending) {
+            if (subscriber.pending.size() >= maxPending) {
+                subscriber.pending.clear();
+                drop(subscriber, "%d événements en attente".formatted(maxPending));
+                return;
+            }
+            subscriber.pending.addLast(message);
+        }
+        scheduleDrain(subscriber);
+    }
+
+    private void scheduleDrain(Subscriber subscriber) {
+        if (!subscriber.draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            eventsExecutor.execute(() -> drain(subscriber));
+        } catch (RejectedExecutionException e) {
+            // pool saturé : la file de l'abonné sera reprise au prochain événement ou battement
+            subscriber.draining.set(false);
+        }
+    }
+
+    /**
+     * Écrit la file de l'abonné dans l'ordre, sur le pool d'écriture.
+     */
+    private void drain(Subscriber subscriber) {
+        boolean failed = false;
+        while (true) {
+            SseEmitter.SseEventBuilder message;
+            synchronized (subscriber.pending) {
+                message = subscriber.pending.pollFirst();
+                if (message == null) {
+                    subscriber.draining.set(false);
+                    break;
+                }
+            }
+            if (subscriber.closed) {
+                continue;
+            }
+            subscriber.writeStarted = System.nanoTime();
+            try {
+                subscriber.emitter.send(message);
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Abonné aux événements déconnecté : {}", e.getMessage());
+                close(subscriber);
+                subscriber.emitter.completeWithError(e);
+                failed = true;
+            } finally {
+                subscriber.writeStarted = 0;
+            }
+        }
+        if (subscriber.closed) {
+            if (!failed) {
+                // déconnecté pendant une écriture : l'émetteur n'est terminé qu'une fois l'écriture rendue
+                subscriber.emitter.complete();
+            }
+            return;
+        }
+        // message déposé entre la file vide et la libération de draining
+        boolean refilled;
+        synchronized (subscriber.pending) {
+            refilled = !subscriber.pending.isEmpty();
+        }
+        if (refilled) {
+            scheduleDrain(subscriber);
+        }
+    }
+
+    /**
+     * Déconnecte un abonné trop lent. Le thread de diffusion ne touche pas à l'émetteur (ses méthodes
+     * sont synchronisées avec l'écriture bloquée) : c'est la tâche d'écriture qui le termine.
+     */
+    private void drop(Subscriber subscriber, String reason) {
+        log.info("Abonné aux événements trop lent déconnecté : {}.", reason);
+        close(subscriber);
+        if (subscriber.draining.compareAndSet(false, true)) {
+            // aucune écriture en cours : rien ne tient le verrou de l'émetteur
+            subscriber.emitter.complete();
+        }
+    }
+
+    private void close(Subscriber subscriber) {
+        subscriber.closed = true;
+        subscribers.remove(subscriber);
+    }
+}
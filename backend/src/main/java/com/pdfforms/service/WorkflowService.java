@@ -3,20 +3,29 @@ package com.pdfforms.service;
 import com.pdfforms.dto.*;
 import com.pdfforms.model.*;
 import com.pdfforms.repository.DocumentRepository;
+import com.pdfforms.repository.FieldRepository;
 import com.pdfforms.repository.WorkflowRepository;
+import com.pdfforms.service.AdmissionControl.Operation;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.io.IOException;
-import java.io.OutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.security.KeyPair;
 import java.security.cert.X509Certificate;
 import java.text.Normalizer;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -26,10 +35,26 @@ public class WorkflowService {
 
     private final WorkflowRepository workflowRepository;
     private final DocumentRepository documentRepository;
+    private final FieldRepository fieldRepository;
+    private final MetadataCache metadataCache;
     private final PdfBoxService pdfBoxService;
+    private final PdfRevisionStore pdfRevisionStore;
+    private final FlattenPipeline flattenPipeline;
+    private final AdmissionControl admissionControl;
+    private final PdfMetrics metrics;
+    private final WorkflowEventBus eventBus;
     private final KeyPair signingKeyPair;
     private final X509Certificate signingCertificate;
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+
+    /**
+     * Durée pendant laquelle une lecture attend un aplatissement en cours avant de répondre PREPARING.
+     */
+    @Value("${pdf-forms.flatten.read-wait-ms:2000}")
+    private long flattenReadWaitMs;
+
     /**
      * Convertit un nom en slug URL-safe.
      * Ex : "Jean Dupont" → "jean-dupont", "Signataire A" → "signataire-a"
@@ -46,17 +71,84 @@ public class WorkflowService {
     }
 
     /**
-     * Crée un nouveau workflow :
-     * 1. Slugifie les noms des signataires
-     * 2. Génère le PDF master avec les champs AcroForm
-     * 3. Génère le PDF aplati initial
-     * 4. Persiste le workflow et son document en base MongoDB
+     * Page de la liste des workflows, du plus récemment modifié au plus ancien.
+     * {@code cursor} est le nextCursor de la page précédente (null pour la première page) : la page
+     * est lue sur l'index (updatedAt, _id) à partir de cette position, sans skip. Le total et les
+     * compteurs par statut ne sont calculés que pour la première page.
+     *
+     * @param signer signerId ou nom du signataire (slugifié)
      */
-    public List<WorkflowSummaryDto> listWorkflows() {
-        return workflowRepository.findAll().stream()
-                .map(this::toSummaryDto)
-                .sorted(Comparator.comparing(WorkflowSummaryDto::getUpdatedAt).reversed())
-                .collect(Collectors.toList());
+    public WorkflowPageDto listWorkflows(String status, String signer, String namePrefix, String cursor, Integer size) {
+        WorkflowFilter filter = WorkflowFilter.builder()
+                .status(parseStatus(status))
+                .signerId(signer != null && !signer.isBlank() ? slugify(signer) : null)
+                .namePrefix(namePrefix != null && !namePrefix.isBlank() ? namePrefix.strip() : null)
+                .build();
+        int limit = size != null ? Math.max(1, Math.min(size, MAX_PAGE_SIZE)) : DEFAULT_PAGE_SIZE;
+
+        LocalDateTime afterUpdatedAt = null;
+        String afterId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] position = decodeCursor(cursor);
+            afterUpdatedAt = LocalDateTime.parse(position[0]);
+            afterId = position[1];
+        }
+
+        // Une entrée de plus que la page : indique s'il existe une page suivante
+        List<Workflow> workflows = workflowRepository.findPage(filter, afterUpdatedAt, afterId, limit + 1);
+        boolean hasNext = workflows.size() > limit;
+        if (hasNext) {
+            workflows = workflows.subList(0, limit);
+        }
+
+        WorkflowPageDto page = WorkflowPageDto.builder()
+                .items(workflows.stream().map(this::toSummaryDto).collect(Collectors.toList()))
+                .nextCursor(hasNext ? encodeCursor(workflows.get(limit - 1)) : null)
+                .build();
+        if (afterUpdatedAt == null) {
+            Map<WorkflowStatus, Long> byStatus = workflowRepository.countByStatus(filter);
+            Map<String, Long> counts = new LinkedHashMap<>();
+            for (WorkflowStatus s : WorkflowStatus.values()) {
+                counts.put(s.name(), byStatus.getOrDefault(s, 0L));
+            }
+            page.setCounts(counts);
+            page.setTotal(filter.getStatus() != null
+                    ? counts.get(filter.getStatus().name())
+                    : counts.values().stream().mapToLong(Long::longValue).sum());
+        }
+        return page;
+    }
+
+    private static WorkflowStatus parseStatus(String status) {
+        if (status == null || status.isBlank()) {
+            return null;
+        }
+        try {
+            return WorkflowStatus.valueOf(status);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Statut inconnu : " + status);
+        }
+    }
+
+    /**
+     * Curseur opaque : position (updatedAt, id) du dernier workflow de la page, encodée en base64url.
+     */
+    private static String encodeCursor(Workflow last) {
+        String position = last.getUpdatedAt() + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String[] position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            if (position.length != 2 || !ObjectId.isValid(position[1])) {
+                throw new IllegalArgumentException();
+            }
+            LocalDateTime.parse(position[0]);
+            return position;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Curseur de pagination invalide.");
+        }
     }
 
     private WorkflowSummaryDto toSummaryDto(Workflow workflow) {
@@ -87,10 +179,18 @@ public class WorkflowService {
                 .createdAt(workflow.getCreatedAt())
                 .updatedAt(workflow.getUpdatedAt())
                 .signers(signerSummaries)
+                .thumbnailUrl("/api/workflows/%s/thumbnail".formatted(workflow.getId()))
                 .build();
     }
 
-    public WorkflowCreateResponse createWorkflow(byte[] originalPdfBytes,
+    /**
+     * Crée un nouveau workflow :
+     * 1. Slugifie les noms des signataires
+     * 2. Génère le PDF master avec les champs AcroForm
+     * 3. Génère le PDF aplati initial
+     * 4. Persiste le workflow, son document et ses champs en base MongoDB
+     */
+    public WorkflowCreateResponse createWorkflow(InputStream originalPdf,
                                                  WorkflowCreateRequest request,
                                                  String pdfOriginalName) throws Exception {
         log.info("Création du workflow '{}' avec {} signataires et {} champs.",
@@ -104,39 +204,50 @@ public class WorkflowService {
                         .order(sr.getOrder())
                         .status(SignerStatus.PENDING)
                         .build())
-                .sorted(Comparator.comparingInt(Signer::getOrder))
                 .collect(Collectors.toList());
 
-        int firstOrder = signers.stream().mapToInt(Signer::getOrder).min().orElse(1);
+        // L'id est attribué avant la génération des PDFs pour nommer les blobs
+        String workflowId = new ObjectId().toHexString();
 
-        // 2. Créer le PDF master avec les champs AcroForm
-        byte[] masterPdf = pdfBoxService.createMasterPdf(originalPdfBytes, request.getFields());
+        // 2-3. Master certifié et PDF aplati initial
+        PreparedDocument prepared = prepareDocument(workflowId, originalPdf, request.getFields());
+
+        // 4-5. Persister le workflow et son document
+        return persistWorkflow(workflowId, request.getName(), pdfOriginalName, signers, prepared);
+    }
 
+    /**
+     * PDFs et champs d'un document prêt à être signé.
+     */
+    record PreparedDocument(PdfRevision master, PdfRevision flattened, List<FieldDefinition> fields) {
+    }
+
+    /**
+     * Prépare le document d'un workflow ou d'un template : crée le PDF master avec les champs AcroForm
+     * (blob de base du journal), le certifie (la certification n'ajoute qu'un incrément), puis génère
+     * le PDF aplati initial (champs vides rendus visuellement). Les blobs sont nommés sous {@code ownerId}.
+     */
+    PreparedDocument prepareDocument(String ownerId, InputStream originalPdf, List<FieldRequest> fields) throws Exception {
         var certificationSignature = CertificationSignature.builder()
                 .privateKey(signingKeyPair.getPrivate())
                 .certificate(signingCertificate)
                 .signerName("coc_platform")
                 .permissionLevel(SignaturePermissionLevel.FORM_FILL)
                 .build();
-        masterPdf = pdfBoxService.signPdf(masterPdf, certificationSignature, null);
 
-        // 3. Générer le PDF aplati initial (champs vides rendus visuellement)
-        byte[] flattenedPdf = pdfBoxService.flattenPdf(masterPdf);
+        PdfRevision master = admissionControl.call(Operation.CREATE, () -> {
+            PdfRevision unsignedMaster = pdfRevisionStore.store(ownerId, "master-base", 0,
+                    out -> pdfBoxService.createMasterPdf(originalPdf, fields, out));
+            return pdfRevisionStore.append(ownerId, "master", unsignedMaster, 0, out -> {
+                try (InputStream in = pdfRevisionStore.open(unsignedMaster)) {
+                    pdfBoxService.signPdf(in, certificationSignature, null, out);
+                }
+            });
+        });
 
-        // 4. Persister le workflow
-        Workflow workflow = Workflow.builder()
-                .name(request.getName())
-                .pdfOriginalName(pdfOriginalName)
-                .status(WorkflowStatus.IN_PROGRESS)
-                .signers(signers)
-                .currentSignerOrder(firstOrder)
-                .createdAt(LocalDateTime.now())
-                .updatedAt(LocalDateTime.now())
-                .build();
-        workflow = workflowRepository.save(workflow);
+        PdfRevision flattened = flattenPipeline.flatten(ownerId, master);
 
-        // 5. Persister le document
-        List<FieldDefinition> fieldDefs = request.getFields().stream()
+        List<FieldDefinition> fieldDefs = fields.stream()
                 .map(fr -> FieldDefinition.builder()
                         .fieldName(fr.getFieldName())
                         .label(fr.getLabel())
@@ -152,14 +263,44 @@ public class WorkflowService {
                         .build())
                 .collect(Collectors.toList());
 
+        return new PreparedDocument(master, flattened, fieldDefs);
+    }
+
+    /**
+     * Persiste un workflow et son document, puis retourne la réponse avec les URLs des signataires.
+     */
+    WorkflowCreateResponse persistWorkflow(String workflowId, String name, String pdfOriginalName,
+                                           List<Signer> signers, PreparedDocument prepared) {
+        signers.sort(Comparator.comparingInt(Signer::getOrder));
+        int firstOrder = signers.stream().mapToInt(Signer::getOrder).min().orElse(1);
+        // Même instant pour les deux dates : le tableau de bord reconnaît ainsi un workflow jamais modifié
+        LocalDateTime now = LocalDateTime.now();
+
+        Workflow workflow = Workflow.builder()
+                .id(workflowId)
+                .name(name)
+                .pdfOriginalName(pdfOriginalName)
+                .status(WorkflowStatus.IN_PROGRESS)
+                .signers(signers)
+                .currentSignerOrder(firstOrder)
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+        workflow = workflowRepository.save(workflow);
+
         WorkflowDocument document = WorkflowDocument.builder()
                 .workflowId(workflow.getId())
-                .masterPdf(masterPdf)
-                .flattenedPdf(flattenedPdf)
-                .fields(fieldDefs)
+                .master(prepared.master())
+                .flattened(prepared.flattened())
                 .flattenedStale(false)
                 .build();
         documentRepository.save(document);
+        fieldRepository.insert(prepared.fields().stream()
+                .map(field -> WorkflowField.builder().workflowId(workflowId).definition(field).build())
+                .toList());
+        // Écarte une lecture concurrente de l'état incomplet (workflow sans champs)
+        metadataCache.invalidate(workflowId, null);
+        eventBus.publish(toSummaryDto(workflow));
 
         log.info("Workflow '{}' créé avec id={}.", workflow.getName(), workflow.getId());
 
@@ -182,46 +323,29 @@ public class WorkflowService {
     /**
      * Retourne le document pour le signataire si c'est bien son tour.
      * Récupère directement le workflow par workflowId (O(1) vs scan complet).
-     * Régénère le flattenedPdf si flattenedStale == true.
+     * Si flattenedStale == true, aucun aplatissement n'est fait ici : la lecture attend brièvement
+     * celui du pipeline d'arrière-plan, puis répond documentStatus=PREPARING s'il n'est pas terminé.
      * Retourne 403 avec un message explicite sinon.
      */
     public SignerDocumentResponse getDocumentForSigner(String workflowId, String signerId) throws Exception {
         log.info("Recherche du document pour workflowId='{}', signerId='{}'.", workflowId, signerId);
 
-        Workflow workflow = workflowRepository.findById(workflowId)
+        Workflow workflow = metadataCache.findWorkflow(workflowId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
                         "Workflow introuvable : " + workflowId));
 
-        Signer signer = workflow.getSigners().stream()
-                .filter(s -> s.getSignerId().equals(signerId))
-                .findFirst()
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.FORBIDDEN,
-                        "Signataire inconnu dans ce workflow."));
+        Signer signer = requireSignerTurn(workflow, signerId);
 
-        if (signer.getStatus() == SignerStatus.SIGNED) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN,
-                    "Vous avez déjà signé ce document.");
-        }
-
-        if (signer.getOrder() != workflow.getCurrentSignerOrder()) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN,
-                    "Ce n'est pas encore votre tour. Veuillez patienter que les signataires précédents aient signé.");
-        }
-
-        WorkflowDocument document = documentRepository.findByWorkflowId(workflowId)
+        WorkflowDocument document = documentRepository.findFlattenedByWorkflowId(workflowId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
                         "Document introuvable pour le workflow " + workflowId));
 
-        if (document.isFlattenedStale()) {
-            log.info("Régénération du flattenedPdf pour workflowId={}.", workflowId);
-            byte[] freshFlattened = pdfBoxService.flattenPdf(document.getMasterPdf());
-            document.setFlattenedPdf(freshFlattened);
-            document.setFlattenedStale(false);
-            documentRepository.save(document);
-        }
+        PdfRevision flattened = document.isFlattenedStale()
+                ? awaitFlattened(workflowId, document.getMaster().getRevision())
+                : document.getFlattened();
 
-        List<FieldDto> signerFields = document.getFields().stream()
-                .filter(f -> f.getAssignedTo().equals(signerId))
+        List<FieldDto> signerFields = metadataCache.findSignerFields(workflowId, signerId).stream()
+                .map(WorkflowField::getDefinition)
                 .map(f -> FieldDto.builder()
                         .fieldName(f.getFieldName())
                         .label(f.getLabel())
@@ -236,7 +360,9 @@ public class WorkflowService {
                         .build())
                 .collect(Collectors.toList());
 
-        String pdfBase64 = Base64.getEncoder().encodeToString(document.getFlattenedPdf());
+        String pdfUrl = flattened != null
+                ? "/api/workflows/%s/signer/%s/pdf?rev=%d".formatted(workflowId, signerId, flattened.getRevision())
+                : null;
 
         int maxOrder = workflow.getSigners().stream().mapToInt(Signer::getOrder).max().orElse(0);
         boolean isLastSigner = signer.getOrder() == maxOrder;
@@ -265,22 +391,112 @@ public class WorkflowService {
                 .workflowName(workflow.getName())
                 .signerName(signer.getName())
                 .signerId(signer.getSignerId())
-                .pdfBase64(pdfBase64)
+                .documentStatus(flattened != null ? "READY" : "PREPARING")
+                .pdfUrl(pdfUrl)
+                .pdfRevision(document.getMaster().getRevision())
                 .fields(signerFields)
                 .lastSigner(isLastSigner)
                 .signers(signerContexts)
                 .build();
     }
 
+    /**
+     * Attend au plus flattenReadWaitMs l'aplatissement de la révision {@code masterRevision}.
+     * Les lectures concurrentes partagent le même aplatissement (single-flight du pipeline).
+     *
+     * @return le PDF aplati de cette révision, ou null s'il est encore en préparation
+     */
+    private PdfRevision awaitFlattened(String workflowId, int masterRevision) {
+        CompletableFuture<PdfRevision> pending = flattenPipeline.schedule(workflowId, masterRevision);
+        try {
+            PdfRevision flattened = pending.get(flattenReadWaitMs, TimeUnit.MILLISECONDS);
+            return flattened != null && flattened.getRevision() == masterRevision ? flattened : null;
+        } catch (TimeoutException | ExecutionException e) {
+            log.debug("PDF aplati r{} en préparation pour workflowId={}.", masterRevision, workflowId);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Retourne la révision {@code revision} du PDF aplati pour le signataire courant.
+     * Une révision remplacée depuis n'est plus servie (404) : l'URL qui la porte est donc
+     * immuable et peut être mise en cache sans limite.
+     */
+    public PdfDownload getFlattenedPdfForSigner(String workflowId, String signerId, int revision) {
+        Workflow workflow = metadataCache.findWorkflow(workflowId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                        "Workflow introuvable : " + workflowId));
+
+        requireSignerTurn(workflow, signerId);
+
+        WorkflowDocument document = documentRepository.findFlattenedByWorkflowId(workflowId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                        "Document introuvable pour le workflow " + workflowId));
+
+        PdfRevision flattened = document.getFlattened();
+        if (flattened == null || flattened.getRevision() != revision) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND,
+                    "Révision %d du document indisponible.".formatted(revision));
+        }
+
+        return PdfDownload.builder()
+                .fileName("%s-r%d.pdf".formatted(workflow.getName(), revision))
+                .revision(flattened)
+                .build();
+    }
+
+    /**
+     * Retourne le snapshot aplati courant d'un workflow, source de sa vignette.
+     */
+    public PdfRevision getThumbnailSource(String workflowId) {
+        WorkflowDocument document = documentRepository.findFlattenedByWorkflowId(workflowId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                        "Workflow introuvable : " + workflowId));
+        if (document.getFlattened() == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Aucun aperçu disponible.");
+        }
+        return document.getFlattened();
+    }
+
+    /**
+     * Vérifie que {@code signerId} appartient au workflow, n'a pas encore signé et que c'est son tour.
+     * Lève 403 avec un message explicite sinon.
+     */
+    private Signer requireSignerTurn(Workflow workflow, String signerId) {
+        Signer signer = workflow.getSigners().stream()
+                .filter(s -> s.getSignerId().equals(signerId))
+                .findFirst()
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.FORBIDDEN,
+                        "Signataire inconnu dans ce workflow."));
+
+        if (signer.getStatus() == SignerStatus.SIGNED) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN,
+                    "Vous avez déjà signé ce document.");
+        }
+
+        if (signer.getOrder() != workflow.getCurrentSignerOrder()) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN,
+                    "Ce n'est pas encore votre tour. Veuillez patienter que les signataires précédents aient signé.");
+        }
+        return signer;
+    }
+
     /**
      * Remplit les champs du signataire et signe le PDF master en une seule passe saveIncremental.
-     * Charge Workflow et WorkflowDocument une seule fois, effectue une seule sauvegarde de chacun.
+     * Charge Workflow et WorkflowDocument une seule fois ; les écritures sont des mises à jour ciblées,
+     * dans cet ordre : nouveau segment du master, puis statut du signataire et tour, chacun conditionné
+     * à l'état lu, puis valeurs des champs remplis une fois la signature acquise. Une signature
+     * concurrente de la même révision reçoit 409 ; si le tour n'a pas pu être passé, le contenu
+     * précédent du master est restauré sous un nouveau numéro de révision.
      */
     public Map<String, Object> fillAndSign(String workflowId, FillAndSignRequest request) throws Exception {
         String signerId = slugify(request.getSignerName());
         log.info("fillAndSign: signerId='{}', workflowId='{}'.", signerId, workflowId);
 
-        Workflow workflow = workflowRepository.findById(workflowId)
+        Workflow workflow = metrics.time("fill-and-sign", "mongo-find-workflow", () -> workflowRepository.findById(workflowId))
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
                         "Workflow introuvable : " + workflowId));
 
@@ -300,18 +516,30 @@ public class WorkflowService {
                     "Ce n'est pas votre tour de signer.");
         }
 
-        WorkflowDocument document = documentRepository.findByWorkflowId(workflowId)
+        WorkflowDocument document = metrics.time("fill-and-sign", "mongo-find-document",
+                        () -> documentRepository.findMasterByWorkflowId(workflowId))
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
                         "Document introuvable."));
 
+        // Hors révisions annulées, le master compte une révision par signature : un écart signifie que
+        // le workflow et le document ont été lus de part et d'autre d'une signature concurrente
+        long signedCount = workflow.getSigners().stream().filter(s -> s.getStatus() == SignerStatus.SIGNED).count();
+        PdfRevision previousMaster = document.getMaster();
+        if (previousMaster.getRevision() - previousMaster.getVoidedRevisions() != signedCount) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Le document a été signé entre-temps. Veuillez recharger la page.");
+        }
+
         Map<String, String> fieldValues = request.getFields() != null ? request.getFields() : Map.of();
 
-        List<FieldDefinition> updatedFields = document.getFields().stream()
-                .filter(field -> signerId.equals(field.getAssignedTo()))
-                .filter(field -> fieldValues.containsKey(field.getFieldName()))
+        // Seuls les champs du signataire sont lus (cache, ou index workflowId + assignedTo)
+        List<WorkflowField> signerFields = metrics.time("fill-and-sign", "find-fields",
+                () -> metadataCache.findSignerFields(workflowId, signerId));
+        List<WorkflowField> changedFields = signerFields.stream()
+                .filter(field -> fieldValues.containsKey(field.getDefinition().getFieldName()))
                 .toList();
-
-        updatedFields.forEach(field -> field.setCurrentValue(fieldValues.get(field.getFieldName())));
+        changedFields.forEach(field -> field.getDefinition().setCurrentValue(fieldValues.get(field.getDefinition().getFieldName())));
+        List<FieldDefinition> updatedFields = changedFields.stream().map(WorkflowField::getDefinition).toList();
         log.info("Update {} fields for {} in request", updatedFields.size(), fieldValues.size());
 
         List<String> fieldsToLock = updatedFields.stream().map(FieldDefinition::getFieldName).toList();
@@ -322,44 +550,96 @@ public class WorkflowService {
                 .fieldToLock(fieldsToLock)
                 .build();
 
-        byte[] signedPdf = pdfBoxService.signPdf(document.getMasterPdf(), approvalSignature, updatedFields);
-
-        document.setMasterPdf(signedPdf);
-        document.setFlattenedStale(true);
-        documentRepository.save(document);
-
-        // Marquer le signataire comme SIGNED
-        signer.setStatus(SignerStatus.SIGNED);
+        PdfRevision signedMaster = metrics.time("fill-and-sign", "store-increment", () ->
+                pdfRevisionStore.append(workflowId, "master", previousMaster, previousMaster.getRevision() + 1, out -> {
+                    try (InputStream in = pdfRevisionStore.open(previousMaster)) {
+                        admissionControl.run(Operation.SIGN, () -> pdfBoxService.signPdf(in, approvalSignature, updatedFields, out));
+                    }
+                }));
+        signedMaster.setChangedFields(fieldsToLock);
+
+        // Compare-and-set sur la révision du master : de deux signatures concurrentes de la même
+        // révision, une seule est enregistrée ; l'incrément de l'autre est supprimé.
+        boolean appended = metrics.time("fill-and-sign", "mongo-update-document",
+                () -> documentRepository.appendMaster(workflowId, previousMaster, signedMaster));
+        if (!appended) {
+            pdfRevisionStore.deleteSupersededQuietly(signedMaster, previousMaster);
+            metadataCache.invalidate(workflowId, null);
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Le document a été signé entre-temps. Veuillez recharger la page.");
+        }
 
         // Déterminer le prochain signataire
         int nextOrder = workflow.getCurrentSignerOrder() + 1;
         boolean isLast = workflow.getSigners().stream()
                 .noneMatch(s -> s.getOrder() == nextOrder);
 
+        // Signataire SIGNED et tour suivant, conditionnés au tour attendu
+        Workflow advanced = metrics.time("fill-and-sign", "mongo-update-workflow",
+                () -> workflowRepository.advanceSigner(workflowId, signerId, workflow.getCurrentSignerOrder(),
+                        nextOrder, isLast, LocalDateTime.now()));
+        if (advanced == null) {
+            // Le tour a changé depuis la lecture : la signature enregistrée dans le master est annulée
+            restoreMaster(workflowId, signedMaster, previousMaster);
+            metadataCache.invalidate(workflowId, null);
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Ce n'est plus votre tour de signer.");
+        }
+        pdfRevisionStore.deleteSupersededQuietly(previousMaster, signedMaster);
+        metrics.time("fill-and-sign", "mongo-update-fields", () -> fieldRepository.updateValues(changedFields));
+        metadataCache.invalidate(workflowId, signerId);
+        eventBus.publish(toSummaryDto(advanced));
+
         if (isLast) {
-            workflow.setStatus(WorkflowStatus.COMPLETED);
-            workflow.setCurrentSignerOrder(nextOrder);
             log.info("Workflow {} COMPLETED après signature de '{}'.", workflowId, signerId);
         } else {
-            workflow.setCurrentSignerOrder(nextOrder);
             log.info("Tour passé au signataire d'ordre {}.", nextOrder);
         }
 
-        workflow.setUpdatedAt(LocalDateTime.now());
-        workflowRepository.save(workflow);
+        if (!isLast) {
+            // Aplatissement anticipé pour le prochain signataire, hors du thread de requête
+            flattenPipeline.schedule(workflowId, signedMaster.getRevision());
+        }
 
         Map<String, Object> result = new HashMap<>();
         result.put("success", true);
-        result.put("workflowStatus", workflow.getStatus().name());
+        result.put("workflowStatus", advanced.getStatus().name());
         result.put("completed", isLast);
         return result;
     }
 
     /**
-     * Retourne le PDF master final, disponible uniquement si status == COMPLETED.
+     * Remet le contenu de {@code previousMaster} après un {@code appendMaster} dont le tour n'a pas pu
+     * être passé, puis supprime l'incrément. La restauration prend le numéro suivant celui de
+     * {@code signedMaster} : un numéro déjà publié (URL {@code ?rev=}, cache de rendu, aplatissement
+     * en cours) ne désigne jamais deux contenus. Les champs modifiés sont inconnus par rapport au
+     * dernier aplatissement, qui a pu porter sur l'incrément annulé : le prochain sera complet.
+     * Si le master a encore avancé entre-temps, l'incrément est référencé par la révision suivante :
+     * il est conservé et l'incohérence est loguée.
      */
-    public String downloadFinalPdf(String workflowId, OutputStream outputStream) throws IOException {
-        Workflow workflow = workflowRepository.findById(workflowId)
+    private void restoreMaster(String workflowId, PdfRevision signedMaster, PdfRevision previousMaster) {
+        PdfRevision restored = previousMaster.toBuilder()
+                .revision(signedMaster.getRevision() + 1)
+                .voidedRevisions(previousMaster.getVoidedRevisions() + 2)
+                .changedFields(null)
+                .build();
+        if (documentRepository.restoreMaster(workflowId, signedMaster, restored)) {
+            pdfRevisionStore.deleteSupersededQuietly(signedMaster, previousMaster);
+            flattenPipeline.schedule(workflowId, restored.getRevision());
+            log.warn("Workflow {} : tour déjà passé, contenu de r{} restauré en r{}.",
+                    workflowId, previousMaster.getRevision(), restored.getRevision());
+        } else {
+            log.error("Workflow {} : impossible de restaurer le master r{}, il a avancé au-delà de r{}.",
+                    workflowId, previousMaster.getRevision(), signedMaster.getRevision());
+        }
+    }
+
+    /**
+     * Retourne la révision finale du PDF master, disponible uniquement si status == COMPLETED.
+     * Seule la référence est chargée : les octets sont transmis en flux par le contrôleur.
+     */
+    public PdfDownload downloadFinalPdf(String workflowId) {
+        Workflow workflow = metadataCache.findWorkflow(workflowId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
                         "Workflow introuvable : " + workflowId));
 
@@ -368,12 +648,13 @@ public class WorkflowService {
                     "Le workflow n'est pas encore complété (statut : " + workflow.getStatus() + ").");
         }
 
-        WorkflowDocument document = documentRepository.findByWorkflowId(workflowId)
+        WorkflowDocument document = documentRepository.findMasterByWorkflowId(workflowId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
                         "Document introuvable."));
 
-        outputStream.write(document.getMasterPdf());
-
-        return workflow.getName() + ".pdf";
+        return PdfDownload.builder()
+                .fileName(workflow.getName() + ".pdf")
+                .revision(document.getMaster())
+                .build();
     }
 }
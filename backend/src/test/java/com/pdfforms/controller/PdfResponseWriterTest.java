@@ -0,0 +1,173 @@
+package com.pdfforms.controller;
+
+import com.pdfforms.model.PdfRevision;
+import com.pdfforms.service.PdfBufferCache;
+import com.pdfforms.service.PdfRevisionStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Sémantique HTTP de l'envoi d'un PDF (ETag, 304, Range, If-Range, 416), identique que la révision
+ * soit servie depuis le cache hors tas ou copiée en flux depuis le blob store.
+ */
+class PdfResponseWriterTest {
+
+    private static final byte[] CONTENT = "%PDF-1.7 contenu de test %%EOF".getBytes(StandardCharsets.US_ASCII);
+    private static final String ETAG = "\"abc123\"";
+
+    private final PdfRevision pdf = PdfRevision.builder()
+            .revision(2).blobId("blob").length(CONTENT.length).sha256("abc123").build();
+    private PdfRevisionStore store;
+    private PdfBufferCache cache;
+    private PdfResponseWriter writer;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        store = mock(PdfRevisionStore.class);
+        cache = mock(PdfBufferCache.class);
+        writer = new PdfResponseWriter(store, cache);
+        when(store.localFile(any())).thenReturn(Optional.empty());
+        doAnswer(invocation -> {
+            int offset = Math.toIntExact(invocation.<Long>getArgument(1));
+            int length = Math.toIntExact(invocation.<Long>getArgument(2));
+            invocation.<OutputStream>getArgument(3).write(CONTENT, offset, length);
+            return null;
+        }).when(store).copyRange(any(), anyLong(), anyLong(), any());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void fullDocumentCarriesStrongEtag(boolean cached) throws Exception {
+        MockHttpServletResponse response = write(get(), cached);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo(ETAG);
+        assertThat(response.getHeader(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+        assertThat(response.getContentLengthLong()).isEqualTo(CONTENT.length);
+        assertThat(response.getContentAsByteArray()).isEqualTo(CONTENT);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void matchingIfNoneMatchReturns304WithoutBody(boolean cached) throws Exception {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, ETAG);
+
+        MockHttpServletResponse response = write(request, cached);
+
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void singleRangeReturns206WithContentRange(boolean cached) throws Exception {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=5-10");
+
+        MockHttpServletResponse response = write(request, cached);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 5-10/" + CONTENT.length);
+        assertThat(response.getContentLengthLong()).isEqualTo(6);
+        assertThat(response.getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(CONTENT, 5, 11));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void suffixRangeReturnsTail(boolean cached) throws Exception {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=-5");
+
+        MockHttpServletResponse response = write(request, cached);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentAsByteArray())
+                .isEqualTo(Arrays.copyOfRange(CONTENT, CONTENT.length - 5, CONTENT.length));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void staleIfRangeReturnsWholeDocument(boolean cached) throws Exception {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=5-10");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"ancienne-revision\"");
+
+        MockHttpServletResponse response = write(request, cached);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isNull();
+        assertThat(response.getContentAsByteArray()).isEqualTo(CONTENT);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void matchingIfRangeHonoursRange(boolean cached) throws Exception {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-3");
+        request.addHeader(HttpHeaders.IF_RANGE, ETAG);
+
+        MockHttpServletResponse response = write(request, cached);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(CONTENT, 0, 4));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void unsatisfiableRangeReturns416(boolean cached) throws Exception {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=" + CONTENT.length + "-");
+
+        MockHttpServletResponse response = write(request, cached);
+
+        assertThat(response.getStatus()).isEqualTo(416);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */" + CONTENT.length);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void headSendsHeadersOnly(boolean cached) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("HEAD", "/pdf");
+
+        MockHttpServletResponse response = write(request, cached);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentLengthLong()).isEqualTo(CONTENT.length);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    private static MockHttpServletRequest get() {
+        return new MockHttpServletRequest("GET", "/pdf");
+    }
+
+    private MockHttpServletResponse write(MockHttpServletRequest request, boolean cached) throws Exception {
+        when(cache.get(pdf)).thenReturn(cached
+                ? Optional.of(ByteBuffer.wrap(CONTENT).asReadOnlyBuffer())
+                : Optional.empty());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        writer.write(request, response, pdf, ContentDisposition.inline().filename("doc.pdf").build(),
+                CacheControl.noCache());
+        return response;
+    }
+}
@@ -0,0 +1,138 @@
+package com.pdfforms.repository;
+
+import com.pdfforms.model.PdfRevision;
+import com.pdfforms.model.Signer;
+import com.pdfforms.model.SignerStatus;
+import com.pdfforms.model.Workflow;
+import com.pdfforms.model.WorkflowDocument;
+import com.pdfforms.model.WorkflowStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compare-and-set des dépôts en mémoire (profil inmemory, test de charge) : de plusieurs écritures
+ * concurrentes conditionnées au même état, une seule doit être appliquée.
+ */
+class InMemoryCompareAndSetTest {
+
+    private static final int THREADS = 16;
+
+    @Test
+    void onlyOneConcurrentAppendMasterWins() throws Exception {
+        InMemoryDocumentRepository documents = new InMemoryDocumentRepository();
+        PdfRevision r0 = revision(0, "h0");
+        documents.insert(WorkflowDocument.builder().workflowId("wf").master(r0).build());
+
+        List<Boolean> results = race(i -> documents.appendMaster("wf", r0, revision(1, "h1-" + i)));
+
+        assertThat(results).containsOnlyOnce(true);
+        WorkflowDocument stored = documents.findByWorkflowId("wf").orElseThrow();
+        assertThat(stored.getMaster().getRevision()).isEqualTo(1);
+        assertThat(stored.isFlattenedStale()).isTrue();
+    }
+
+    @Test
+    void restoreMasterOnlyUndoesTheExpectedRevision() {
+        InMemoryDocumentRepository documents = new InMemoryDocumentRepository();
+        PdfRevision r0 = revision(0, "h0");
+        PdfRevision r1 = revision(1, "h1");
+        PdfRevision r2 = revision(2, "h2");
+        documents.insert(WorkflowDocument.builder().workflowId("wf").master(r0).build());
+        assertThat(documents.appendMaster("wf", r0, r1)).isTrue();
+        assertThat(documents.appendMaster("wf", r1, r2)).isTrue();
+
+        // r1 n'est plus le master courant : la restauration ne doit pas écraser r2
+        assertThat(documents.restoreMaster("wf", r1, r0)).isFalse();
+        assertThat(documents.findByWorkflowId("wf").orElseThrow().getMaster().getSha256()).isEqualTo("h2");
+
+        assertThat(documents.restoreMaster("wf", r2, r1)).isTrue();
+        assertThat(documents.findByWorkflowId("wf").orElseThrow().getMaster().getSha256()).isEqualTo("h1");
+    }
+
+    @Test
+    void onlyOneConcurrentAdvanceSignerWins() throws Exception {
+        InMemoryWorkflowRepository workflows = new InMemoryWorkflowRepository();
+        Workflow workflow = workflows.insert(Workflow.builder()
+                .name("Contrat")
+                .status(WorkflowStatus.IN_PROGRESS)
+                .currentSignerOrder(1)
+                .signers(List.of(
+                        Signer.builder().signerId("alice").name("Alice").order(1).status(SignerStatus.PENDING).build(),
+                        Signer.builder().signerId("bob").name("Bob").order(2).status(SignerStatus.PENDING).build()))
+                .updatedAt(LocalDateTime.now())
+                .build());
+
+        List<Workflow> results = race(i -> workflows.advanceSigner(workflow.getId(), "alice", 1, 2, false,
+                LocalDateTime.now()));
+
+        assertThat(results).filteredOn(result -> result != null).hasSize(1);
+        Workflow stored = workflows.findById(workflow.getId()).orElseThrow();
+        assertThat(stored.getCurrentSignerOrder()).isEqualTo(2);
+        assertThat(stored.getSigners().get(0).getStatus()).isEqualTo(SignerStatus.SIGNED);
+        assertThat(stored.getSigners().get(1).getStatus()).isEqualTo(SignerStatus.PENDING);
+    }
+
+    @Test
+    void advanceSignerRejectsWrongTurnAndSignedSigner() {
+        InMemoryWorkflowRepository workflows = new InMemoryWorkflowRepository();
+        Workflow workflow = workflows.insert(Workflow.builder()
+                .status(WorkflowStatus.IN_PROGRESS)
+                .currentSignerOrder(1)
+                .signers(List.of(
+                        Signer.builder().signerId("alice").order(1).status(SignerStatus.PENDING).build(),
+                        Signer.builder().signerId("bob").order(2).status(SignerStatus.PENDING).build()))
+                .build());
+
+        assertThat(workflows.advanceSigner(workflow.getId(), "bob", 2, 3, true, LocalDateTime.now())).isNull();
+        assertThat(workflows.advanceSigner(workflow.getId(), "alice", 1, 2, false, LocalDateTime.now())).isNotNull();
+        assertThat(workflows.advanceSigner(workflow.getId(), "alice", 2, 3, true, LocalDateTime.now())).isNull();
+
+        Workflow completed = workflows.advanceSigner(workflow.getId(), "bob", 2, 3, true, LocalDateTime.now());
+        assertThat(completed.getStatus()).isEqualTo(WorkflowStatus.COMPLETED);
+    }
+
+    private interface Attempt<T> {
+        T run(int attempt) throws Exception;
+    }
+
+    /**
+     * Lance {@link #THREADS} tentatives simultanées (départ commun) et retourne leurs résultats.
+     */
+    private static <T> List<T> race(Attempt<T> attempt) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                int index = i;
+                Callable<T> task = () -> {
+                    start.await();
+                    return attempt.run(index);
+                };
+                futures.add(executor.submit(task));
+            }
+            start.countDown();
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static PdfRevision revision(int revision, String sha256) {
+        return PdfRevision.builder().revision(revision).blobId("blob-" + sha256).length(10).sha256(sha256).build();
+    }
+}
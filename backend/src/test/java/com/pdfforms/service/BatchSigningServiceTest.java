@@ -0,0 +1,156 @@
+package com.pdfforms.service;
+
+import com.pdfforms.dto.BatchSignItemResult;
+import com.pdfforms.dto.BatchSignRequest;
+import com.pdfforms.model.Signer;
+import com.pdfforms.model.SignerStatus;
+import com.pdfforms.model.Workflow;
+import com.pdfforms.model.WorkflowStatus;
+import com.pdfforms.repository.InMemoryWorkflowRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Vérification du tour de parole d'un lot : mêmes codes HTTP qu'un fill-and-sign unitaire.
+ */
+class BatchSigningServiceTest {
+
+    private final InMemoryWorkflowRepository workflows = new InMemoryWorkflowRepository();
+    private final SigningJobService signingJobService = mock(SigningJobService.class);
+    private BatchSigningService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new BatchSigningService(workflows, signingJobService, new SyncTaskExecutor(), 500, 2);
+        workflows.save(workflow("a-signer", signer("alice", 1, SignerStatus.PENDING), signer("bob", 2, SignerStatus.PENDING)));
+        workflows.save(workflow("pas-son-tour", signer("bob", 1, SignerStatus.PENDING), signer("alice", 2, SignerStatus.PENDING)));
+        workflows.save(workflow("deja-signe", signer("alice", 1, SignerStatus.SIGNED), signer("bob", 2, SignerStatus.PENDING)));
+        workflows.save(workflow("sans-alice", signer("bob", 1, SignerStatus.PENDING)));
+        when(signingJobService.submitAsync(eq("a-signer"), any()))
+                .thenReturn(CompletableFuture.completedFuture(Map.of("workflowStatus", "IN_PROGRESS", "completed", false)));
+    }
+
+    @Test
+    void rejectionsCarryTheUnitaryStatusCodes() {
+        Map<String, BatchSignItemResult> results = signAll("a-signer", "pas-son-tour", "deja-signe", "sans-alice", "inexistant");
+
+        assertThat(results.get("a-signer").getHttpStatus()).isEqualTo(200);
+        assertThat(results.get("pas-son-tour").getHttpStatus()).isEqualTo(403);
+        assertThat(results.get("deja-signe").getHttpStatus()).isEqualTo(403);
+        assertThat(results.get("sans-alice").getHttpStatus()).isEqualTo(403);
+        assertThat(results.get("inexistant").getHttpStatus()).isEqualTo(404);
+        assertThat(results.get("inexistant").getStatus()).isEqualTo("REJECTED");
+        assertThat(results.get("inexistant").getError()).contains("introuvable");
+    }
+
+    @Test
+    void duplicateWorkflowRejectsTheWholeBatch() {
+        assertThatThrownBy(() -> signAll("a-signer", "pas-son-tour", "a-signer"))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode().value()).isEqualTo(400));
+        verifyNoInteractions(signingJobService);
+    }
+
+    @Test
+    void stalledClientDoesNotHoldSigningThreads() throws Exception {
+        List<String> ids = IntStream.range(0, 4).mapToObj(i -> "lot-" + i).toList();
+        ids.forEach(id -> workflows.save(workflow(id, signer("alice", 1, SignerStatus.PENDING))));
+        when(signingJobService.submitAsync(argThat(ids::contains), any()))
+                .thenReturn(CompletableFuture.completedFuture(Map.of("workflowStatus", "COMPLETED", "completed", true)));
+        service = new BatchSigningService(workflows, signingJobService, new SimpleAsyncTaskExecutor("lot-"), 500, 1);
+        CountDownLatch stalled = new CountDownLatch(1);
+        CountDownLatch written = new CountDownLatch(ids.size());
+
+        service.signAll(request(ids.toArray(String[]::new)), result -> {
+            await(stalled);
+            written.countDown();
+        }, () -> { });
+
+        // Toutes les signatures sont lancées bien que le client n'ait encore rien reçu
+        verify(signingJobService, times(ids.size())).submitAsync(argThat(ids::contains), any());
+        assertThat(written.getCount()).isEqualTo(ids.size());
+        stalled.countDown();
+        assertThat(written.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void immediatelyCompletedSignaturesDoNotGrowTheStack() {
+        List<String> ids = IntStream.range(0, 5000).mapToObj(i -> "lot-" + i).toList();
+        ids.forEach(id -> workflows.save(workflow(id, signer("alice", 1, SignerStatus.PENDING))));
+        when(signingJobService.submitAsync(argThat(ids::contains), any()))
+                .thenReturn(CompletableFuture.completedFuture(Map.of("workflowStatus", "COMPLETED", "completed", true)));
+        service = new BatchSigningService(workflows, signingJobService, new SyncTaskExecutor(), 10_000, 1);
+        AtomicInteger completions = new AtomicInteger();
+        List<BatchSignItemResult> results = new ArrayList<>();
+
+        service.signAll(request(ids.toArray(String[]::new)), results::add, completions::incrementAndGet);
+
+        assertThat(results).hasSize(ids.size()).allMatch(result -> result.getHttpStatus() == 200);
+        assertThat(completions).hasValue(1);
+    }
+
+    private Map<String, BatchSignItemResult> signAll(String... workflowIds) {
+        BatchSignRequest request = request(workflowIds);
+        List<BatchSignItemResult> results = new ArrayList<>();
+        service.signAll(request, results::add, () -> { });
+        return results.stream().collect(Collectors.toMap(BatchSignItemResult::getWorkflowId, Function.identity()));
+    }
+
+    private static BatchSignRequest request(String... workflowIds) {
+        BatchSignRequest request = new BatchSignRequest();
+        request.setSignerName("Alice");
+        for (String workflowId : workflowIds) {
+            BatchSignRequest.Item item = new BatchSignRequest.Item();
+            item.setWorkflowId(workflowId);
+            request.getItems().add(item);
+        }
+        return request;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Workflow workflow(String id, Signer... signers) {
+        return Workflow.builder()
+                .id(id)
+                .name(id)
+                .status(WorkflowStatus.IN_PROGRESS)
+                .signers(List.of(signers))
+                .currentSignerOrder(1)
+                .build();
+    }
+
+    private static Signer signer(String signerId, int order, SignerStatus status) {
+        return Signer.builder().signerId(signerId).name(signerId).order(order).status(status).build();
+    }
+}
@@ -0,0 +1,71 @@
+package com.pdfforms.service;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CosObjectCopierTest {
+
+    @Test
+    void appearanceIsCopiedWithItsResourcesAndSurvivesTheSourceDocument() throws Exception {
+        ByteArrayOutputStream saved = new ByteArrayOutputStream();
+        try (PDDocument target = new PDDocument()) {
+            target.addPage(new PDPage());
+            CosObjectCopier copier = new CosObjectCopier(target);
+            COSStream first;
+            COSStream second;
+            try (PDDocument source = new PDDocument()) {
+                PDPage page = new PDPage();
+                source.addPage(page);
+                PDResources resources = new PDResources();
+                resources.put(COSName.getPDFName("Helv"), new PDType1Font(Standard14Fonts.FontName.HELVETICA));
+                PDFormXObject form = new PDFormXObject(source);
+                form.setBBox(new PDRectangle(100, 20));
+                form.setResources(resources);
+                form.getCOSObject().setItem(COSName.P, page.getCOSObject());
+                try (OutputStream out = form.getContentStream().createOutputStream(COSName.FLATE_DECODE)) {
+                    out.write("BT /Helv 12 Tf (Alice) Tj ET".getBytes(StandardCharsets.US_ASCII));
+                }
+                PDFormXObject other = new PDFormXObject(source);
+                other.setResources(resources);
+
+                first = copier.copy(form.getCOSObject());
+                second = copier.copy(other.getCOSObject());
+            }
+
+            // Ressources partagées copiées une seule fois ; lien vers la page source non suivi
+            assertThat(second.getDictionaryObject(COSName.RESOURCES))
+                    .isSameAs(first.getDictionaryObject(COSName.RESOURCES));
+            assertThat(first.containsKey(COSName.P)).isFalse();
+
+            try (PDPageContentStream cs = new PDPageContentStream(target, target.getPage(0))) {
+                cs.drawForm(new PDFormXObject(first));
+            }
+            target.save(saved);
+        }
+
+        try (PDDocument reloaded = Loader.loadPDF(saved.toByteArray())) {
+            PDResources pageResources = reloaded.getPage(0).getResources();
+            PDFormXObject form = (PDFormXObject) pageResources.getXObject(pageResources.getXObjectNames().iterator().next());
+            try (var in = form.getContentStream().createInputStream()) {
+                assertThat(new String(in.readAllBytes(), StandardCharsets.US_ASCII)).contains("(Alice) Tj");
+            }
+            assertThat(form.getResources().getFont(COSName.getPDFName("Helv")).getName()).isEqualTo("Helvetica");
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.pdfforms.service;
+
+import com.pdfforms.model.FieldDefinition;
+import com.pdfforms.model.PdfRevision;
+import com.pdfforms.model.WorkflowDocument;
+import com.pdfforms.model.WorkflowField;
+import com.pdfforms.repository.InMemoryDocumentRepository;
+import com.pdfforms.repository.InMemoryFieldRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SyncTaskExecutor;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Migration des champs embarqués : aucun champ perdu, ni dupliqué, ni écrasé quand elle est rejouée.
+ */
+class FieldMigrationTest {
+
+    private final AtomicInteger unavailableScans = new AtomicInteger();
+    private InMemoryDocumentRepository documents;
+    private InMemoryFieldRepository fields;
+    private FieldMigration migration;
+
+    @BeforeEach
+    void setUp() {
+        documents = new InMemoryDocumentRepository() {
+            @Override
+            public Stream<WorkflowDocument> streamWithEmbeddedFields() {
+                if (unavailableScans.getAndDecrement() > 0) {
+                    throw new IllegalStateException("MongoDB indisponible");
+                }
+                return super.streamWithEmbeddedFields();
+            }
+        };
+        fields = new InMemoryFieldRepository();
+        migration = new FieldMigration(documents, fields, new SyncTaskExecutor());
+        documents.insert(WorkflowDocument.builder()
+                .workflowId("wf")
+                .master(PdfRevision.builder().revision(0).blobId("base").sha256("h0").build())
+                .fields(List.of(field("nom", "alice"), field("date", "alice"), field("visa", "bob")))
+                .build());
+    }
+
+    @Test
+    void signerFieldsAreReadableAfterOnDemandMigration() {
+        assertThat(fields.findByWorkflowIdAndDefinitionAssignedTo("wf", "alice")).isEmpty();
+
+        migration.ensureMigrated("wf");
+
+        assertThat(fields.findByWorkflowIdAndDefinitionAssignedTo("wf", "alice"))
+                .extracting(field -> field.getDefinition().getFieldName())
+                .containsExactlyInAnyOrder("nom", "date");
+        assertThat(fields.findByWorkflowIdAndDefinitionAssignedTo("wf", "bob")).hasSize(1);
+        assertThat(documents.findEmbeddedFieldsByWorkflowId("wf")).isEmpty();
+        assertThat(documents.findByWorkflowId("wf").orElseThrow().getMaster().getSha256()).isEqualTo("h0");
+    }
+
+    @Test
+    void replayedMigrationKeepsValuesWrittenSince() {
+        assertThat(migration.migrate("wf")).isEqualTo(3);
+        WorkflowField nom = fields.findById("wf-0").orElseThrow();
+        nom.getDefinition().setCurrentValue("Alice Martin");
+        fields.updateValues(List.of(nom));
+
+        // Migration interrompue avant la suppression de la liste embarquée, puis rejouée
+        WorkflowDocument stored = documents.findByWorkflowId("wf").orElseThrow();
+        stored.setFields(List.of(field("nom", "alice"), field("date", "alice"), field("visa", "bob")));
+        documents.save(stored);
+        assertThat(migration.migrate("wf")).isZero();
+
+        assertThat(fields.count()).isEqualTo(3);
+        assertThat(fields.findById("wf-0").orElseThrow().getDefinition().getCurrentValue()).isEqualTo("Alice Martin");
+    }
+
+    @Test
+    void startupMigrationCompletesAndDisablesOnDemandMigration() {
+        migration.migrateAll();
+
+        assertThat(migration.isComplete()).isTrue();
+        assertThat(fields.count()).isEqualTo(3);
+        assertThat(documents.streamWithEmbeddedFields()).isEmpty();
+    }
+
+    @Test
+    void failedStartupMigrationIsRetriedUntilComplete() {
+        unavailableScans.set(1);
+        migration.start();
+        assertThat(migration.isComplete()).isFalse();
+        assertThat(fields.count()).isZero();
+
+        migration.retry();
+
+        assertThat(migration.isComplete()).isTrue();
+        assertThat(fields.count()).isEqualTo(3);
+    }
+
+    private static FieldDefinition field(String name, String assignedTo) {
+        return FieldDefinition.builder().fieldName(name).assignedTo(assignedTo).fieldType("text").build();
+    }
+}
@@ -0,0 +1,150 @@
+package com.pdfforms.service;
+
+import com.pdfforms.model.FieldDefinition;
+import com.pdfforms.model.Signer;
+import com.pdfforms.model.SignerStatus;
+import com.pdfforms.model.Workflow;
+import com.pdfforms.model.WorkflowField;
+import com.pdfforms.model.WorkflowStatus;
+import com.pdfforms.repository.CacheInvalidationBus;
+import com.pdfforms.repository.CacheInvalidationBus.Invalidation;
+import com.pdfforms.repository.InMemoryDocumentRepository;
+import com.pdfforms.repository.InMemoryFieldRepository;
+import com.pdfforms.repository.InMemoryWorkflowRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.core.task.SyncTaskExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Invalidation du cache de métadonnées après les écritures, locales ou venues d'un autre nœud.
+ */
+class MetadataCacheTest {
+
+    private final InMemoryWorkflowRepository workflows = new InMemoryWorkflowRepository();
+    private final InMemoryFieldRepository fields = new InMemoryFieldRepository();
+    private final CacheInvalidationBus bus = mock(CacheInvalidationBus.class);
+    private MetadataCache cache;
+    private Consumer<Invalidation> remote;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        FieldMigration migration = new FieldMigration(new InMemoryDocumentRepository(), fields, new SyncTaskExecutor());
+        cache = new MetadataCache(workflows, fields, migration, bus, 100, 60);
+        ArgumentCaptor<Consumer<Invalidation>> listener = ArgumentCaptor.forClass(Consumer.class);
+        verify(bus).subscribe(listener.capture());
+        remote = listener.getValue();
+
+        workflows.save(Workflow.builder()
+                .id("wf")
+                .status(WorkflowStatus.IN_PROGRESS)
+                .currentSignerOrder(1)
+                .signers(new ArrayList<>(List.of(
+                        Signer.builder().signerId("alice").name("Alice").order(1).status(SignerStatus.PENDING).build(),
+                        Signer.builder().signerId("bob").name("Bob").order(2).status(SignerStatus.PENDING).build())))
+                .build());
+        fields.insert(List.of(field("wf-0", "nom", "alice"), field("wf-1", "visa", "bob")));
+    }
+
+    @Test
+    void workflowIsServedFromCacheUntilInvalidated() {
+        assertThat(cache.findWorkflow("wf").orElseThrow().getCurrentSignerOrder()).isEqualTo(1);
+        advanceTurn();
+
+        assertThat(cache.findWorkflow("wf").orElseThrow().getCurrentSignerOrder()).isEqualTo(1);
+        cache.invalidate("wf", "alice");
+
+        assertThat(cache.findWorkflow("wf").orElseThrow().getCurrentSignerOrder()).isEqualTo(2);
+        verify(bus).publish(new Invalidation("wf", "alice"));
+    }
+
+    @Test
+    void signerInvalidationKeepsOtherSignersFields() {
+        cache.findSignerFields("wf", "alice");
+        cache.findSignerFields("wf", "bob");
+        setValue("wf-0", "Alice Martin");
+        setValue("wf-1", "Bob Durand");
+
+        cache.invalidate("wf", "alice");
+
+        assertThat(value(cache.findSignerFields("wf", "alice"))).isEqualTo("Alice Martin");
+        assertThat(value(cache.findSignerFields("wf", "bob"))).isNull();
+    }
+
+    @Test
+    void workflowInvalidationEvictsEverySignersFields() {
+        cache.findSignerFields("wf", "alice");
+        cache.findSignerFields("wf", "bob");
+        setValue("wf-0", "Alice Martin");
+        setValue("wf-1", "Bob Durand");
+
+        cache.invalidate("wf", null);
+
+        assertThat(value(cache.findSignerFields("wf", "alice"))).isEqualTo("Alice Martin");
+        assertThat(value(cache.findSignerFields("wf", "bob"))).isEqualTo("Bob Durand");
+    }
+
+    @Test
+    void invalidationFromAnotherNodeEvictsLocalEntries() {
+        cache.findWorkflow("wf");
+        advanceTurn();
+
+        remote.accept(new Invalidation("wf", null));
+
+        assertThat(cache.findWorkflow("wf").orElseThrow().getCurrentSignerOrder()).isEqualTo(2);
+    }
+
+    @Test
+    void clearAllFromAnotherNodeEmptiesBothRegions() {
+        cache.findWorkflow("wf");
+        cache.findSignerFields("wf", "alice");
+
+        remote.accept(CacheInvalidationBus.ALL);
+
+        assertThat(cache.size(MetadataCache.Region.WORKFLOW)).isZero();
+        assertThat(cache.size(MetadataCache.Region.SIGNER_FIELDS)).isZero();
+    }
+
+    @Test
+    void modifyingAReadCopyDoesNotLeakIntoTheCache() {
+        cache.findWorkflow("wf").orElseThrow().getSigners().get(0).setStatus(SignerStatus.SIGNED);
+        cache.findSignerFields("wf", "alice").get(0).getDefinition().setCurrentValue("brouillon");
+
+        assertThat(cache.findWorkflow("wf").orElseThrow().getSigners().get(0).getStatus())
+                .isEqualTo(SignerStatus.PENDING);
+        assertThat(value(cache.findSignerFields("wf", "alice"))).isNull();
+    }
+
+    private void advanceTurn() {
+        Workflow stored = workflows.findById("wf").orElseThrow();
+        stored.setCurrentSignerOrder(2);
+        workflows.save(stored);
+    }
+
+    private void setValue(String fieldId, String value) {
+        WorkflowField field = fields.findById(fieldId).orElseThrow();
+        field.getDefinition().setCurrentValue(value);
+        fields.updateValues(List.of(field));
+    }
+
+    private static String value(List<WorkflowField> signerFields) {
+        return signerFields.get(0).getDefinition().getCurrentValue();
+    }
+
+    private static WorkflowField field(String id, String name, String assignedTo) {
+        return WorkflowField.builder()
+                .id(id)
+                .workflowId("wf")
+                .definition(FieldDefinition.builder().fieldName(name).assignedTo(assignedTo).fieldType("text").build())
+                .build();
+    }
+}
@@ -0,0 +1,108 @@
+package com.pdfforms.service;
+
+import com.pdfforms.model.PdfRevision;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Cache hors tas des PDFs : un défaut ne bloque pas la requête, le chargement se fait en arrière-plan,
+ * une seule fois par révision, et le LRU reste borné en octets.
+ */
+class PdfBufferCacheTest {
+
+    private final PdfRevisionStore store = mock(PdfRevisionStore.class);
+
+    @Test
+    void missReturnsEmptyAndLoadsForNextRequest() throws Exception {
+        PdfRevision pdf = revision("h1", 10);
+        when(store.open(pdf)).thenAnswer(invocation -> new ByteArrayInputStream(new byte[10]));
+        PdfBufferCache cache = new PdfBufferCache(store, new SyncTaskExecutor(), 100, 50);
+
+        assertThat(cache.get(pdf)).isEmpty();
+        assertThat(cache.get(pdf)).isPresent();
+        assertThat(cache.get(pdf).orElseThrow().remaining()).isEqualTo(10);
+        assertThat(cache.hits()).isEqualTo(2);
+        assertThat(cache.misses()).isEqualTo(1);
+        verify(store, times(1)).open(pdf);
+    }
+
+    @Test
+    void concurrentMissesLoadOnce() throws Exception {
+        PdfRevision pdf = revision("h1", 10);
+        when(store.open(pdf)).thenAnswer(invocation -> new ByteArrayInputStream(new byte[10]));
+        List<Runnable> queued = new ArrayList<>();
+        TaskExecutor deferred = queued::add;
+        PdfBufferCache cache = new PdfBufferCache(store, deferred, 100, 50);
+
+        assertThat(cache.get(pdf)).isEmpty();
+        assertThat(cache.get(pdf)).isEmpty();
+        assertThat(queued).hasSize(1);
+
+        queued.forEach(Runnable::run);
+        assertThat(cache.get(pdf)).isPresent();
+    }
+
+    @Test
+    void callersGetIndependentPositions() throws Exception {
+        PdfRevision pdf = revision("h1", 10);
+        when(store.open(pdf)).thenAnswer(invocation -> new ByteArrayInputStream(new byte[10]));
+        PdfBufferCache cache = new PdfBufferCache(store, new SyncTaskExecutor(), 100, 50);
+        cache.get(pdf);
+
+        ByteBuffer first = cache.get(pdf).orElseThrow();
+        first.position(7);
+
+        assertThat(cache.get(pdf).orElseThrow().position()).isZero();
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedBeyondMaxBytes() throws Exception {
+        when(store.open(any())).thenAnswer(invocation ->
+                new ByteArrayInputStream(new byte[(int) invocation.<PdfRevision>getArgument(0).getLength()]));
+        PdfBufferCache cache = new PdfBufferCache(store, new SyncTaskExecutor(), 100, 50);
+        PdfRevision a = revision("a", 40);
+        PdfRevision b = revision("b", 40);
+        PdfRevision c = revision("c", 40);
+
+        cache.get(a);
+        cache.get(b);
+        cache.get(a);  // a devient la plus récente
+        cache.get(c);  // évince b
+
+        assertThat(cache.bytes()).isEqualTo(80);
+        assertThat(cache.get(a)).isPresent();
+        assertThat(cache.get(c)).isPresent();
+        assertThat(cache.get(b)).isEmpty();  // évincée : rechargée, évince a à son tour
+        assertThat(cache.get(b)).isPresent();
+        assertThat(cache.get(c)).isPresent();
+        assertThat(cache.bytes()).isEqualTo(80);
+        verify(store, times(2)).open(b);
+    }
+
+    @Test
+    void oversizedRevisionIsNeverLoaded() throws Exception {
+        PdfBufferCache cache = new PdfBufferCache(store, new SyncTaskExecutor(), 100, 50);
+        PdfRevision big = revision("big", 60);
+
+        assertThat(cache.get(big)).isEmpty();
+        verify(store, never()).open(any());
+    }
+
+    private static PdfRevision revision(String sha256, long length) {
+        return PdfRevision.builder().revision(1).blobId(sha256).sha256(sha256).length(length).build();
+    }
+}
@@ -0,0 +1,54 @@
+package com.pdfforms.service;
+
+import com.pdfforms.model.PdfRevision;
+import com.pdfforms.repository.FileSystemBlobStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PdfRevisionStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private PdfRevisionStore store;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        store = new PdfRevisionStore(new FileSystemBlobStore(directory));
+    }
+
+    @Test
+    void signedRevisionIsCopiedAcrossSegmentsButNeverSentAsOneFile() throws Exception {
+        PdfRevision base = store.store("wf", "master", 0, out -> out.write(bytes("0123456789")));
+        PdfRevision signed = store.append("wf", "master", base, 1, out -> out.write(bytes("0123456789abcdef")));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        store.copyRange(signed, 7, 6, out);
+
+        assertThat(out.toString(StandardCharsets.US_ASCII)).isEqualTo("789abc");
+        assertThat(store.localFile(base)).isPresent();
+        assertThat(store.localFile(signed)).isEmpty();
+    }
+
+    @Test
+    void truncatedBlobFailsInsteadOfReturningShortContent() throws Exception {
+        PdfRevision base = store.store("wf", "master", 0, out -> out.write(bytes("0123456789")));
+        PdfRevision claimed = base.toBuilder().length(20).build();
+
+        assertThatThrownBy(() -> store.copyRange(claimed, 5, 10, new ByteArrayOutputStream()))
+                .isInstanceOf(EOFException.class);
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.US_ASCII);
+    }
+}
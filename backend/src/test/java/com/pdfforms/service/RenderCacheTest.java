@@ -0,0 +1,65 @@
+package com.pdfforms.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Purge globale du cache disque des rendus : par âge, puis par taille en commençant par les plus anciens.
+ */
+class RenderCacheTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void sweepDeletesRendersOlderThanMaxAge() throws Exception {
+        RenderCache cache = new RenderCache(0, directory, Long.MAX_VALUE, 24);
+        cache.put("termine", 3, 0, 72, new byte[10]);
+        cache.put("actif", 1, 0, 72, new byte[10]);
+        age(directory.resolve("termine/r3-p0-72.png"), Duration.ofHours(48));
+
+        cache.sweep();
+
+        assertThat(directory.resolve("termine/r3-p0-72.png")).doesNotExist();
+        assertThat(directory.resolve("actif/r1-p0-72.png")).exists();
+        assertThat(cache.get("termine", 3, 0, 72)).isEmpty();
+
+        // vidé par la purge précédente : supprimé à la suivante
+        assertThat(directory.resolve("termine")).exists();
+        age(directory.resolve("termine"), Duration.ofMinutes(2));
+        cache.sweep();
+        assertThat(directory.resolve("termine")).doesNotExist();
+        assertThat(directory.resolve("actif")).exists();
+    }
+
+    @Test
+    void sweepDeletesOldestBeyondMaxBytes() throws Exception {
+        RenderCache cache = new RenderCache(0, directory, 25, 24);
+        cache.put("wf", 1, 0, 72, new byte[10]);
+        cache.put("wf", 1, 1, 72, new byte[10]);
+        cache.put("wf", 1, 2, 72, new byte[10]);
+        age(directory.resolve("wf/r1-p0-72.png"), Duration.ofHours(3));
+        age(directory.resolve("wf/r1-p1-72.png"), Duration.ofHours(2));
+        age(directory.resolve("wf/r1-p2-72.png"), Duration.ofHours(1));
+
+        // relue depuis le disque : redevient la plus récente
+        assertThat(cache.get("wf", 1, 0, 72)).isPresent();
+        cache.sweep();
+
+        assertThat(directory.resolve("wf/r1-p0-72.png")).exists();
+        assertThat(directory.resolve("wf/r1-p1-72.png")).doesNotExist();
+        assertThat(directory.resolve("wf/r1-p2-72.png")).exists();
+    }
+
+    private static void age(Path path, Duration age) throws Exception {
+        Files.setLastModifiedTime(path, FileTime.from(Instant.now().minus(age)));
+    }
+}
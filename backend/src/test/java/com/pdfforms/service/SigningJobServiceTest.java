@@ -0,0 +1,54 @@
+package com.pdfforms.service;
+
+import com.pdfforms.dto.FillAndSignRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SigningJobServiceTest {
+
+    private final WorkflowService workflowService = mock(WorkflowService.class);
+    private ThreadPoolTaskExecutor executor;
+    private SigningJobService service;
+
+    @BeforeEach
+    void setUp() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.initialize();
+        service = new SigningJobService(workflowService, executor, 10, 5, 15);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void rejectedSchedulingFailsWith503AndDoesNotWedgeTheWorkflow() throws Exception {
+        when(workflowService.fillAndSign(eq("wf"), any())).thenReturn(Map.of("revision", 1));
+
+        executor.shutdown();
+        assertThatThrownBy(() -> service.submit("wf", new FillAndSignRequest()))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+        assertThat(service.pendingCount()).isZero();
+
+        executor.initialize();
+        assertThat(service.submitAndWait("wf", new FillAndSignRequest())).containsEntry("revision", 1);
+        assertThat(service.pendingCount()).isZero();
+    }
+}
@@ -0,0 +1,97 @@
+package com.pdfforms.service;
+
+import com.pdfforms.dto.TemplateInstantiateRequest;
+import com.pdfforms.model.FieldDefinition;
+import com.pdfforms.model.PdfRevision;
+import com.pdfforms.model.Signer;
+import com.pdfforms.model.TemplateRole;
+import com.pdfforms.model.WorkflowTemplate;
+import com.pdfforms.repository.TemplateRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Instanciation d'un template : signerId propres à chaque workflow, champs réassignés du rôle au signataire.
+ */
+@ExtendWith(MockitoExtension.class)
+class TemplateServiceTest {
+
+    @Mock private TemplateRepository templateRepository;
+    @Mock private WorkflowService workflowService;
+    @Mock private PdfRevisionStore pdfRevisionStore;
+
+    private TemplateService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new TemplateService(templateRepository, workflowService, pdfRevisionStore);
+        when(templateRepository.findById("tpl")).thenReturn(Optional.of(WorkflowTemplate.builder()
+                .id("tpl")
+                .name("Contrat de travail")
+                .roles(List.of(
+                        TemplateRole.builder().roleId("salarie").name("Salarié").order(1).build(),
+                        TemplateRole.builder().roleId("employeur").name("Employeur").order(2).build()))
+                .fields(List.of(
+                        FieldDefinition.builder().fieldName("nom").assignedTo("salarie").build(),
+                        FieldDefinition.builder().fieldName("visa").assignedTo("employeur").build()))
+                .master(PdfRevision.builder().revision(0).sha256("m").shared(true).build())
+                .flattened(PdfRevision.builder().revision(0).sha256("f").shared(true).build())
+                .build()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void signersGetTheirOwnIdAndTheirRoleFields() {
+        service.instantiate("tpl", request(assignee("salarie", "Jeanne Dupré")));
+
+        ArgumentCaptor<List<Signer>> signers = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<WorkflowService.PreparedDocument> document =
+                ArgumentCaptor.forClass(WorkflowService.PreparedDocument.class);
+        verify(workflowService).persistWorkflow(anyString(), any(), any(), signers.capture(), document.capture());
+
+        assertThat(signers.getValue()).extracting(Signer::getSignerId).containsExactly("jeanne-dupre", "employeur");
+        assertThat(document.getValue().fields())
+                .extracting(FieldDefinition::getFieldName, FieldDefinition::getAssignedTo)
+                .containsExactly(
+                        tuple("nom", "jeanne-dupre"),
+                        tuple("visa", "employeur"));
+    }
+
+    @Test
+    void duplicateSignerNamesAreRejected() {
+        assertThatThrownBy(() -> service.instantiate("tpl",
+                request(assignee("salarie", "Paul Martin"), assignee("employeur", "Paul Martin"))))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+    }
+
+    private static TemplateInstantiateRequest request(TemplateInstantiateRequest.Assignee... assignees) {
+        TemplateInstantiateRequest request = new TemplateInstantiateRequest();
+        request.setSigners(List.of(assignees));
+        return request;
+    }
+
+    private static TemplateInstantiateRequest.Assignee assignee(String roleId, String name) {
+        TemplateInstantiateRequest.Assignee assignee = new TemplateInstantiateRequest.Assignee();
+        assignee.setRoleId(roleId);
+        assignee.setName(name);
+        return assignee;
+    }
+}
@@ -0,0 +1,152 @@
+package com.pdfforms.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Cache LRU à TTL : copies isolées, expiration, éviction, et invalidation pendant un chargement.
+ */
+class TtlLruCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void secondReadIsServedFromCache() {
+        TtlLruCache<String, List<String>> cache = cache(10, 60);
+
+        cache.get("wf", () -> load("v1"));
+        List<String> cached = cache.get("wf", () -> load("v2"));
+
+        assertThat(cached).containsExactly("v1");
+        assertThat(loads).hasValue(1);
+        assertThat(cache.hits()).isEqualTo(1);
+        assertThat(cache.misses()).isEqualTo(1);
+    }
+
+    @Test
+    void callersCannotAlterTheCachedSnapshot() {
+        TtlLruCache<String, List<String>> cache = cache(10, 60);
+
+        cache.get("wf", () -> load("v1")).add("modifié par le premier lecteur");
+        cache.get("wf", () -> load("v2")).add("modifié par le second lecteur");
+
+        assertThat(cache.get("wf", () -> load("v3"))).containsExactly("v1");
+    }
+
+    @Test
+    void invalidatedKeyIsReloaded() {
+        TtlLruCache<String, List<String>> cache = cache(10, 60);
+        cache.get("wf", () -> load("v1"));
+
+        cache.invalidate("wf");
+
+        assertThat(cache.get("wf", () -> load("v2"))).containsExactly("v2");
+    }
+
+    @Test
+    void expiredEntryIsReloaded() {
+        TtlLruCache<String, List<String>> cache = new TtlLruCache<>(10, 0, TimeUnit.SECONDS, ArrayList::new);
+        cache.get("wf", () -> load("v1"));
+
+        assertThat(cache.get("wf", () -> load("v2"))).containsExactly("v2");
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void leastRecentlyReadEntryIsEvicted() {
+        TtlLruCache<String, List<String>> cache = cache(2, 60);
+        cache.get("a", () -> load("a"));
+        cache.get("b", () -> load("b"));
+        cache.get("a", () -> load("a"));
+
+        cache.get("c", () -> load("c"));
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get("a", () -> load("a2"))).containsExactly("a");
+        assertThat(cache.get("b", () -> load("b2"))).containsExactly("b2");
+    }
+
+    @Test
+    void nullIsNotCached() {
+        TtlLruCache<String, List<String>> cache = cache(10, 60);
+
+        assertThat(cache.get("absent", () -> null)).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void putValueIsServedWithoutLoadingAndNeverExpiresWithMaximalTtl() {
+        TtlLruCache<String, List<String>> cache =
+                new TtlLruCache<>(10, Long.MAX_VALUE, TimeUnit.NANOSECONDS, ArrayList::new);
+        cache.put("a", List.of("A"));
+
+        assertThat(cache.get("a", () -> load("autre"))).containsExactly("A");
+        assertThat(loads).hasValue(0);
+        assertThat(cache.hits()).isEqualTo(1);
+    }
+
+    @Test
+    void invalidateIfRemovesMatchingKeysOnly() {
+        TtlLruCache<String, List<String>> cache = cache(10, 60);
+        cache.get("wf1|alice", () -> load("a"));
+        cache.get("wf1|bob", () -> load("b"));
+        cache.get("wf2|alice", () -> load("c"));
+
+        cache.invalidateIf(key -> key.startsWith("wf1|"));
+
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.get("wf2|alice", () -> load("c2"))).containsExactly("c");
+    }
+
+    @Test
+    void invalidationDuringLoadKeepsTheLoadedValueOutOfTheCache() throws Exception {
+        TtlLruCache<String, List<String>> cache = cache(10, 60);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch written = new CountDownLatch(1);
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+        try {
+            // Lecture de l'ancienne valeur en base, puis écriture + invalidation avant la mise en cache
+            Future<List<String>> stale = reader.submit(() -> cache.get("wf", () -> {
+                List<String> value = load("avant écriture");
+                loading.countDown();
+                await(written);
+                return value;
+            }));
+            loading.await();
+            cache.invalidate("wf");
+            written.countDown();
+
+            assertThat(stale.get(5, TimeUnit.SECONDS)).containsExactly("avant écriture");
+            assertThat(cache.get("wf", () -> load("après écriture"))).containsExactly("après écriture");
+        } finally {
+            reader.shutdownNow();
+        }
+    }
+
+    private TtlLruCache<String, List<String>> cache(int maxEntries, long ttlSeconds) {
+        return new TtlLruCache<>(maxEntries, ttlSeconds, TimeUnit.SECONDS, ArrayList::new);
+    }
+
+    private List<String> load(String value) {
+        loads.incrementAndGet();
+        return new ArrayList<>(List.of(value));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.pdfforms.service;
+
+import com.pdfforms.dto.UploadCreateRequest;
+import com.pdfforms.dto.UploadStatusResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Uploads par morceaux : purge des uploads expirés, envoi concurrent, statut pendant un envoi
+ * et dépassement de la taille annoncée.
+ */
+class UploadServiceTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void purgeDeletesExpiredUploadsAndTheirFiles() throws Exception {
+        UploadService service = new UploadService(directory, 1024, 0);
+        UploadStatusResponse created = service.create(request(10));
+        service.append(created.getUploadId(), 0, null, new ByteArrayInputStream(new byte[4]));
+        assertThat(directory.resolve(created.getUploadId() + ".part")).exists();
+
+        service.purgeExpired();
+
+        assertThat(directory.resolve(created.getUploadId() + ".part")).doesNotExist();
+        assertThatThrownBy(() -> service.status(created.getUploadId()))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("404");
+    }
+
+    @Test
+    void purgeKeepsActiveUploads() throws Exception {
+        UploadService service = new UploadService(directory, 1024, 60);
+        UploadStatusResponse created = service.create(request(10));
+
+        service.purgeExpired();
+
+        assertThat(service.status(created.getUploadId()).getOffset()).isZero();
+    }
+
+    @Test
+    void statusAnswersWhileAChunkIsStillBeingReceived() throws Exception {
+        UploadService service = new UploadService(directory, 1024, 60);
+        String uploadId = service.create(request(10)).getUploadId();
+        SlowStream slow = new SlowStream();
+        ExecutorService sender = Executors.newSingleThreadExecutor();
+        try {
+            Future<UploadStatusResponse> first = sender.submit(() -> service.append(uploadId, 0, null, slow));
+            slow.send(new byte[4]);
+            await().atMost(5, TimeUnit.SECONDS).until(() -> service.status(uploadId).getOffset() == 4);
+
+            assertThatThrownBy(() -> service.append(uploadId, 4, null, new ByteArrayInputStream(new byte[6])))
+                    .isInstanceOfSatisfying(ResponseStatusException.class,
+                            e -> assertThat(e.getStatusCode().value()).isEqualTo(409));
+
+            slow.close();  // connexion coupée : les octets reçus sont conservés
+            assertThat(first.get(5, TimeUnit.SECONDS).getOffset()).isEqualTo(4);
+            UploadStatusResponse resumed = service.append(uploadId, 4, 9L, new ByteArrayInputStream(new byte[6]));
+            assertThat(resumed.isComplete()).isTrue();
+            assertThat(resumed.getSha256()).isEqualTo(sha256(new byte[10]));
+        } finally {
+            sender.shutdownNow();
+        }
+    }
+
+    @Test
+    void excessBytesCancelTheChunkWithoutCompletingTheUpload() throws Exception {
+        UploadService service = new UploadService(directory, 1024, 60);
+        String uploadId = service.create(request(10)).getUploadId();
+        service.append(uploadId, 0, null, new ByteArrayInputStream(new byte[]{1, 2, 3}));
+
+        assertThatThrownBy(() -> service.append(uploadId, 3, null, new ByteArrayInputStream(new byte[9])))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode().value()).isEqualTo(400));
+
+        UploadStatusResponse status = service.status(uploadId);
+        assertThat(status.isComplete()).isFalse();
+        assertThat(status.getOffset()).isEqualTo(3);
+        assertThat(Files.size(directory.resolve(uploadId + ".part"))).isEqualTo(3);
+
+        byte[] expected = {1, 2, 3, 0, 0, 0, 0, 0, 0, 0};
+        UploadStatusResponse completed = service.append(uploadId, 3, null, new ByteArrayInputStream(new byte[7]));
+        assertThat(completed.isComplete()).isTrue();
+        assertThat(completed.getSha256()).isEqualTo(sha256(expected));
+    }
+
+    @Test
+    void chunkEndingBeyondTheDeclaredLengthIsRejectedBeforeReading() throws Exception {
+        UploadService service = new UploadService(directory, 1024, 60);
+        String uploadId = service.create(request(10)).getUploadId();
+        InputStream unread = new ByteArrayInputStream(new byte[11]);
+
+        assertThatThrownBy(() -> service.append(uploadId, 0, 10L, unread))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode().value()).isEqualTo(400));
+        assertThat(unread.available()).isEqualTo(11);
+        assertThat(service.status(uploadId).getOffset()).isZero();
+    }
+
+    private static String sha256(byte[] content) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    }
+
+    /**
+     * Corps de requête reçu au rythme du client : chaque lecture attend le prochain envoi.
+     */
+    private static final class SlowStream extends InputStream {
+        private static final byte[] EOF = new byte[0];
+        private final BlockingQueue<byte[]> parts = new LinkedBlockingQueue<>();
+        private byte[] current = new byte[0];
+        private int position;
+
+        void send(byte[] bytes) {
+            parts.add(bytes);
+        }
+
+        @Override
+        public void close() {
+            parts.add(EOF);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) return 0;
+            if (position == current.length) {
+                try {
+                    current = parts.take();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                position = 0;
+                if (current == EOF) {
+                    parts.add(EOF);
+                    return -1;
+                }
+            }
+            int n = Math.min(length, current.length - position);
+            System.arraycopy(current, position, buffer, offset, n);
+            position += n;
+            return n;
+        }
+    }
+
+    private static UploadCreateRequest request(long length) {
+        UploadCreateRequest request = new UploadCreateRequest();
+        request.setFileName("doc.pdf");
+        request.setLength(length);
+        return request;
+    }
+}
@@ -0,0 +1,128 @@
+package com.pdfforms.service;
+
+import com.pdfforms.dto.WorkflowSummaryDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Diffusion SSE : un abonné dont l'écriture bloque ne retarde pas les autres et finit déconnecté.
+ */
+class WorkflowEventBusTest {
+
+    private WorkflowEventBus bus;
+    private final CountDownLatch unblock = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        unblock.countDown();
+        bus.shutdown();
+    }
+
+    @Test
+    void slowSubscriberDoesNotDelayOthersAndIsDroppedWhenItsQueueOverflows() {
+        bus = bus(3, 3600);
+        RecordingEmitter fast = new RecordingEmitter(null);
+        RecordingEmitter slow = new RecordingEmitter(unblock);
+        bus.register(fast, null);
+        bus.register(slow, null);
+        await().atMost(5, TimeUnit.SECONDS).until(() -> bus.subscriberCount() == 2);
+
+        for (int i = 1; i <= 6; i++) {
+            bus.publish(summary("wf-" + i));
+            int received = i;
+            await().atMost(5, TimeUnit.SECONDS).until(() -> fast.workflowIds.size() == received);
+        }
+
+        assertThat(fast.workflowIds).containsExactly("wf-1", "wf-2", "wf-3", "wf-4", "wf-5", "wf-6");
+        await().atMost(5, TimeUnit.SECONDS).until(() -> bus.subscriberCount() == 1);
+        assertThat(slow.workflowIds).isEmpty();
+    }
+
+    @Test
+    void subscriberBlockedPastWriteTimeoutIsDropped() throws Exception {
+        bus = bus(256, 0);
+        RecordingEmitter slow = new RecordingEmitter(unblock);
+        bus.register(slow, null);
+        await().atMost(5, TimeUnit.SECONDS).until(() -> bus.subscriberCount() == 1);
+
+        bus.publish(summary("wf-1"));
+        await().atMost(5, TimeUnit.SECONDS).until(() -> slow.writing.getCount() == 0);
+        Thread.sleep(10);
+        bus.publish(summary("wf-2"));
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> bus.subscriberCount() == 0);
+    }
+
+    @Test
+    void reconnectingSubscriberReceivesMissedEventsInOrder() {
+        bus = bus(256, 3600);
+        RecordingEmitter first = new RecordingEmitter(null);
+        bus.register(first, null);
+        await().atMost(5, TimeUnit.SECONDS).until(() -> bus.subscriberCount() == 1);
+        bus.publish(summary("wf-1"));
+        await().atMost(5, TimeUnit.SECONDS).until(() -> first.eventIds.size() == 1);
+        bus.publish(summary("wf-2"));
+        bus.publish(summary("wf-3"));
+
+        RecordingEmitter reconnected = new RecordingEmitter(null);
+        bus.register(reconnected, first.eventIds.get(0));
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> reconnected.workflowIds.size() == 2);
+        assertThat(reconnected.workflowIds).containsExactly("wf-2", "wf-3");
+    }
+
+    private static WorkflowEventBus bus(int maxPending, long writeTimeoutSeconds) {
+        return new WorkflowEventBus(new SimpleAsyncTaskExecutor("test-events-"),
+                100, 30, 3600, maxPending, writeTimeoutSeconds);
+    }
+
+    private static WorkflowSummaryDto summary(String id) {
+        return WorkflowSummaryDto.builder().id(id).status("PENDING").build();
+    }
+
+    /**
+     * Émetteur sans connexion HTTP qui enregistre les événements écrits ; bloque sur {@code gate}
+     * à la première écriture, comme un client dont la fenêtre TCP est pleine.
+     */
+    private static final class RecordingEmitter extends SseEmitter {
+        private final CountDownLatch gate;
+        private final CountDownLatch writing = new CountDownLatch(1);
+        private final List<String> workflowIds = new CopyOnWriteArrayList<>();
+        private final List<String> eventIds = new CopyOnWriteArrayList<>();
+
+        RecordingEmitter(CountDownLatch gate) {
+            this.gate = gate;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            writing.countDown();
+            if (gate != null) {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                }
+            }
+            for (DataWithMediaType part : builder.build()) {
+                if (part.getData() instanceof WorkflowSummaryDto summary) {
+                    workflowIds.add(summary.getId());
+                } else if (part.getData() instanceof String text && text.startsWith("id:")) {
+                    eventIds.add(text.substring(3).lines().findFirst().orElseThrow());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.pdfforms.service;
+
+import com.pdfforms.dto.FillAndSignRequest;
+import com.pdfforms.model.FieldDefinition;
+import com.pdfforms.model.PdfRevision;
+import com.pdfforms.model.Signer;
+import com.pdfforms.model.SignerStatus;
+import com.pdfforms.model.Workflow;
+import com.pdfforms.model.WorkflowDocument;
+import com.pdfforms.model.WorkflowField;
+import com.pdfforms.model.WorkflowStatus;
+import com.pdfforms.repository.DocumentRepository;
+import com.pdfforms.repository.FieldRepository;
+import com.pdfforms.repository.WorkflowRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.security.KeyPairGenerator;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Ordre et conditions des écritures de fillAndSign : aucune écriture ne doit survivre à une signature refusée.
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class WorkflowServiceFillAndSignTest {
+
+    private static final String WORKFLOW_ID = "wf-1";
+
+    @Mock private WorkflowRepository workflowRepository;
+    @Mock private DocumentRepository documentRepository;
+    @Mock private FieldRepository fieldRepository;
+    @Mock private MetadataCache metadataCache;
+    @Mock private PdfBoxService pdfBoxService;
+    @Mock private PdfRevisionStore pdfRevisionStore;
+    @Mock private FlattenPipeline flattenPipeline;
+    @Mock private AdmissionControl admissionControl;
+    @Mock private WorkflowEventBus eventBus;
+
+    private WorkflowService service;
+
+    private final PdfRevision r0 = PdfRevision.builder().revision(0).blobId("base").length(10).sha256("h0").build();
+    private final PdfRevision r1 = PdfRevision.builder().revision(1).length(20).sha256("h1").build();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        service = new WorkflowService(workflowRepository, documentRepository, fieldRepository, metadataCache,
+                pdfBoxService, pdfRevisionStore, flattenPipeline, admissionControl,
+                new PdfMetrics(new SimpleMeterRegistry()), eventBus,
+                KeyPairGenerator.getInstance("RSA").generateKeyPair(), null);
+
+        when(workflowRepository.findById(WORKFLOW_ID)).thenReturn(Optional.of(workflow(1, SignerStatus.PENDING)));
+        when(documentRepository.findMasterByWorkflowId(WORKFLOW_ID)).thenReturn(Optional.of(
+                WorkflowDocument.builder().workflowId(WORKFLOW_ID).master(r0).build()));
+        when(metadataCache.findSignerFields(WORKFLOW_ID, "alice")).thenReturn(List.of(
+                WorkflowField.builder().id("f1").workflowId(WORKFLOW_ID).definition(FieldDefinition.builder()
+                        .fieldName("nom").assignedTo("alice").fieldType("text").build()).build()));
+        when(pdfRevisionStore.append(eq(WORKFLOW_ID), eq("master"), eq(r0), eq(1), any())).thenReturn(r1);
+    }
+
+    @Test
+    void signatureWritesMasterThenTurnThenFields() throws Exception {
+        when(documentRepository.appendMaster(WORKFLOW_ID, r0, r1)).thenReturn(true);
+        when(workflowRepository.advanceSigner(eq(WORKFLOW_ID), eq("alice"), eq(1), eq(2), eq(false), any()))
+                .thenReturn(workflow(2, SignerStatus.SIGNED));
+
+        Map<String, Object> result = service.fillAndSign(WORKFLOW_ID, request());
+
+        assertThat(result).containsEntry("success", true).containsEntry("completed", false);
+        InOrder order = inOrder(documentRepository, workflowRepository, fieldRepository);
+        order.verify(documentRepository).appendMaster(WORKFLOW_ID, r0, r1);
+        order.verify(workflowRepository).advanceSigner(eq(WORKFLOW_ID), eq("alice"), eq(1), eq(2), eq(false), any());
+        order.verify(fieldRepository).updateValues(anyList());
+        verify(documentRepository, never()).restoreMaster(any(), any(), any());
+        verify(pdfRevisionStore).deleteSupersededQuietly(r0, r1);
+    }
+
+    @Test
+    void lostMasterRaceWritesNothingElse() throws Exception {
+        when(documentRepository.appendMaster(WORKFLOW_ID, r0, r1)).thenReturn(false);
+
+        assertThatThrownBy(() -> service.fillAndSign(WORKFLOW_ID, request()))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+
+        verify(workflowRepository, never()).advanceSigner(any(), any(), anyInt(), anyInt(), anyBoolean(), any());
+        verify(fieldRepository, never()).updateValues(anyList());
+        verify(pdfRevisionStore).deleteSupersededQuietly(r1, r0);
+        verify(pdfRevisionStore, never()).deleteSupersededQuietly(r0, r1);
+    }
+
+    @Test
+    void lostTurnRestoresMasterAndDropsIncrement() throws Exception {
+        when(documentRepository.appendMaster(WORKFLOW_ID, r0, r1)).thenReturn(true);
+        when(workflowRepository.advanceSigner(any(), any(), anyInt(), anyInt(), anyBoolean(), any())).thenReturn(null);
+        when(documentRepository.restoreMaster(eq(WORKFLOW_ID), eq(r1), any())).thenReturn(true);
+
+        assertThatThrownBy(() -> service.fillAndSign(WORKFLOW_ID, request()))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+
+        // Contenu de r0 sous un numéro jamais publié : r1 ne désignera pas un autre contenu plus tard
+        ArgumentCaptor<PdfRevision> restored = ArgumentCaptor.forClass(PdfRevision.class);
+        verify(documentRepository).restoreMaster(eq(WORKFLOW_ID), eq(r1), restored.capture());
+        assertThat(restored.getValue().getRevision()).isEqualTo(2);
+        assertThat(restored.getValue().getVoidedRevisions()).isEqualTo(2);
+        assertThat(restored.getValue().getSha256()).isEqualTo("h0");
+        assertThat(restored.getValue().getBlobId()).isEqualTo("base");
+        verify(flattenPipeline).schedule(WORKFLOW_ID, 2);
+        verify(pdfRevisionStore).deleteSupersededQuietly(r1, r0);
+        verify(pdfRevisionStore, never()).deleteSupersededQuietly(r0, r1);
+        verify(fieldRepository, never()).updateValues(anyList());
+        verify(eventBus, never()).publish(any());
+    }
+
+    @Test
+    void masterAheadOfWorkflowIsRejectedBeforeSigning() throws Exception {
+        // Le workflow a été lu avant une signature concurrente, le document après
+        when(documentRepository.findMasterByWorkflowId(WORKFLOW_ID)).thenReturn(Optional.of(
+                WorkflowDocument.builder().workflowId(WORKFLOW_ID).master(r1).build()));
+
+        assertThatThrownBy(() -> service.fillAndSign(WORKFLOW_ID, request()))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+
+        verify(pdfRevisionStore, never()).append(any(), any(), any(), anyInt(), any());
+        verify(documentRepository, never()).appendMaster(any(), any(), any());
+    }
+
+    @Test
+    void restoredMasterCountsOnlyItsSignatures() throws Exception {
+        // r2 restaure le contenu de r0 après une signature annulée : aucune signature n'est comptée
+        PdfRevision restored = r0.toBuilder().revision(2).voidedRevisions(2).build();
+        PdfRevision r3 = PdfRevision.builder().revision(3).length(20).sha256("h3").voidedRevisions(2).build();
+        when(documentRepository.findMasterByWorkflowId(WORKFLOW_ID)).thenReturn(Optional.of(
+                WorkflowDocument.builder().workflowId(WORKFLOW_ID).master(restored).build()));
+        when(pdfRevisionStore.append(eq(WORKFLOW_ID), eq("master"), eq(restored), eq(3), any())).thenReturn(r3);
+        when(documentRepository.appendMaster(WORKFLOW_ID, restored, r3)).thenReturn(true);
+        when(workflowRepository.advanceSigner(eq(WORKFLOW_ID), eq("alice"), eq(1), eq(2), eq(false), any()))
+                .thenReturn(workflow(2, SignerStatus.SIGNED));
+
+        assertThat(service.fillAndSign(WORKFLOW_ID, request())).containsEntry("success", true);
+        verify(flattenPipeline).schedule(WORKFLOW_ID, 3);
+    }
+
+    private static Workflow workflow(int currentOrder, SignerStatus aliceStatus) {
+        return Workflow.builder()
+                .id(WORKFLOW_ID)
+                .name("Contrat")
+                .status(WorkflowStatus.IN_PROGRESS)
+                .currentSignerOrder(currentOrder)
+                .signers(List.of(
+                        Signer.builder().signerId("alice").name("Alice").order(1).status(aliceStatus).build(),
+                        Signer.builder().signerId("bob").name("Bob").order(2).status(SignerStatus.PENDING).build()))
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private static FillAndSignRequest request() {
+        FillAndSignRequest request = new FillAndSignRequest();
+        request.setSignerName("Alice");
+        request.setFields(Map.of("nom", "Alice Martin"));
+        return request;
+    }
+}
@@ -0,0 +1,132 @@
+package com.pdfforms.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Point d'entrée de benchmarks.jar : lance JMH avec le profileur GC (taux d'allocation) et écrit
+ * les résultats en JSON, puis les compare éventuellement à une exécution de référence.
+ * <pre>
+ * java -jar target/benchmarks.jar [options JMH] [--result fichier.json]
+ *                                 [--baseline reference.json] [--threshold 10]
+ * java -jar target/benchmarks.jar --compare resultat.json --baseline reference.json
+ * </pre>
+ * Une régression est un débit (ops/s) en baisse ou une allocation par opération
+ * ({@code gc.alloc.rate.norm}) en hausse de plus de {@code threshold} % ; le code de sortie vaut alors 1.
+ */
+public final class BenchmarkRunner {
+
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path result = Path.of("target", "jmh-result.json");
+        Path baseline = null;
+        Path compare = null;
+        double threshold = 10;
+        List<String> jmhArgs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--result" -> result = Path.of(args[++i]);
+                case "--baseline" -> baseline = Path.of(args[++i]);
+                case "--compare" -> compare = Path.of(args[++i]);
+                case "--threshold" -> threshold = Double.parseDouble(args[++i]);
+                default -> jmhArgs.add(args[i]);
+            }
+        }
+
+        if (compare == null) {
+            Path parent = result.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            var options = new OptionsBuilder()
+                    .parent(new CommandLineOptions(jmhArgs.toArray(String[]::new)))
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(result.toString())
+                    .build();
+            new Runner(options).run();
+            compare = result;
+            System.out.printf("Résultats écrits dans %s%n", result);
+        }
+
+        if (baseline != null) {
+            int regressions = compare(read(baseline), read(compare), threshold);
+            System.exit(regressions > 0 ? 1 : 0);
+        }
+    }
+
+    /**
+     * Compare chaque benchmark (nom + paramètres) présent dans les deux exécutions.
+     * Retourne le nombre de régressions.
+     */
+    static int compare(Map<String, JsonNode> baseline, Map<String, JsonNode> current, double threshold) {
+        int regressions = 0;
+        System.out.printf("%n%-90s %14s %14s %9s %12s%n", "Benchmark", "Référence", "Actuel", "Δ ops", "Δ alloc");
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            JsonNode before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("%-90s %14s%n", entry.getKey(), "(nouveau)");
+                continue;
+            }
+            JsonNode after = entry.getValue();
+            double scoreBefore = before.path("primaryMetric").path("score").asDouble();
+            double scoreAfter = after.path("primaryMetric").path("score").asDouble();
+            double scoreDelta = percent(scoreBefore, scoreAfter);
+            double allocDelta = percent(allocation(before), allocation(after));
+
+            boolean slower = scoreDelta < -threshold;
+            boolean heavier = allocDelta > threshold;
+            if (slower || heavier) {
+                regressions++;
+            }
+            System.out.printf("%-90s %14.3f %14.3f %+8.1f%% %+11.1f%%%s%n", entry.getKey(), scoreBefore, scoreAfter,
+                    scoreDelta, allocDelta, slower || heavier ? "  RÉGRESSION" : "");
+        }
+        System.out.printf("%n%d régression(s) au-delà de %.1f %%.%n", regressions, threshold);
+        return regressions;
+    }
+
+    /** Résultats JMH indexés par benchmark et paramètres, ex. {@code SignedDocumentBenchmark.sign{fields=10, pages=1}}. */
+    static Map<String, JsonNode> read(Path file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file.toFile())) {
+            String benchmark = run.path("benchmark").asText();
+            Map<String, String> params = new TreeMap<>();
+            for (Iterator<Map.Entry<String, JsonNode>> it = run.path("params").fields(); it.hasNext(); ) {
+                Map.Entry<String, JsonNode> param = it.next();
+                params.put(param.getKey(), param.getValue().asText());
+            }
+            String name = benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1);
+            results.put(params.isEmpty() ? name : name + params, run);
+        }
+        return results;
+    }
+
+    private static double allocation(JsonNode run) {
+        return run.path("secondaryMetrics").path(ALLOCATION).path("score").asDouble(Double.NaN);
+    }
+
+    private static double percent(double before, double after) {
+        if (Double.isNaN(before) || Double.isNaN(after) || before == 0) {
+            return 0;
+        }
+        return (after - before) * 100 / before;
+    }
+}
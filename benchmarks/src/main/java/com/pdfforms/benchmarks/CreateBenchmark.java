@@ -0,0 +1,67 @@
+package com.pdfforms.benchmarks;
+
+import com.pdfforms.dto.FieldRequest;
+import com.pdfforms.model.CertificationSignature;
+import com.pdfforms.service.PdfBoxService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Création d'un workflow : createMasterPdf sur le PDF d'origine, puis certification du master.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class CreateBenchmark {
+
+    @Param({"1", "10", "50"})
+    public int pages;
+
+    @Param({"10", "100"})
+    public int fields;
+
+    private PdfBoxService service;
+    private byte[] original;
+    private List<FieldRequest> fieldRequests;
+    private byte[] unsignedMaster;
+    private CertificationSignature certification;
+
+    @Setup
+    public void setUp() throws Exception {
+        service = PdfFixtures.pdfBoxService();
+        original = PdfFixtures.originalPdf(pages);
+        fieldRequests = PdfFixtures.fieldRequests(pages, fields);
+        unsignedMaster = PdfFixtures.unsignedMaster(service, original, fieldRequests);
+        certification = PdfFixtures.certification();
+    }
+
+    @Benchmark
+    public long createMasterPdf() throws Exception {
+        PdfFixtures.Sink out = new PdfFixtures.Sink();
+        service.createMasterPdf(new ByteArrayInputStream(original), fieldRequests, out);
+        return out.count;
+    }
+
+    @Benchmark
+    public long certify() throws Exception {
+        PdfFixtures.Sink out = new PdfFixtures.Sink();
+        service.signPdf(new ByteArrayInputStream(unsignedMaster), certification, null, out);
+        return out.count;
+    }
+}
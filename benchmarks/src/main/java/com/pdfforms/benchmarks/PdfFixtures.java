@@ -0,0 +1,231 @@
+package com.pdfforms.benchmarks;
+
+import com.pdfforms.dto.FieldRequest;
+import com.pdfforms.model.ApprovalSignature;
+import com.pdfforms.model.CertificationSignature;
+import com.pdfforms.model.FieldDefinition;
+import com.pdfforms.model.Signature;
+import com.pdfforms.model.SignaturePermissionLevel;
+import com.pdfforms.service.CmsSigner;
+import com.pdfforms.service.PdfBoxService;
+import com.pdfforms.service.PdfMemoryBudget;
+import com.pdfforms.service.PdfMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Documents de test des benchmarks, générés une fois par essai : PDF de {@code pages} pages,
+ * master à {@code fields} champs certifié comme dans WorkflowService.prepareDocument, puis
+ * {@code priorSignatures} signatures d'approbation incrémentales remplissant chacune sa part des champs.
+ */
+final class PdfFixtures {
+
+    static final String SIGNER_NAME = "coc_platform";
+
+    static {
+        Security.addProvider(new BouncyCastleProvider());
+    }
+
+    private static KeyPair keyPair;
+    private static X509Certificate certificate;
+
+    private PdfFixtures() {
+    }
+
+    /**
+     * PdfBoxService hors Spring, avec la configuration par défaut du budget mémoire
+     * et un registre de métriques en mémoire.
+     */
+    static PdfBoxService pdfBoxService() throws IOException {
+        PdfMemoryBudget budget = new PdfMemoryBudget(16L << 20, 4L << 20, 256L << 20, 10_000,
+                Files.createTempDirectory("pdf-forms-bench-scratch"));
+        return new PdfBoxService(new CmsSigner(), budget, new PdfMetrics(new SimpleMeterRegistry()));
+    }
+
+    /** PDF d'origine : pages A4 avec un peu de texte, sans formulaire. */
+    static byte[] originalPdf(int pages) throws IOException {
+        try (PDDocument doc = new PDDocument()) {
+            PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+            for (int i = 0; i < pages; i++) {
+                PDPage page = new PDPage(PDRectangle.A4);
+                doc.addPage(page);
+                try (PDPageContentStream cs = new PDPageContentStream(doc, page)) {
+                    cs.beginText();
+                    cs.setFont(font, 12);
+                    cs.newLineAtOffset(72, 770);
+                    cs.showText("Page %d / %d".formatted(i + 1, pages));
+                    cs.endText();
+                }
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            doc.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * {@code count} champs répartis sur les pages en grille (un sur cinq est une case à cocher),
+     * assignés alternativement à deux signataires.
+     */
+    static List<FieldRequest> fieldRequests(int pages, int count) {
+        return fieldRequests(pages, count, List.of("signer-0", "signer-1"));
+    }
+
+    /**
+     * Idem, assignés à tour de rôle aux signataires {@code signerIds}.
+     */
+    static List<FieldRequest> fieldRequests(int pages, int count, List<String> signerIds) {
+        List<FieldRequest> fields = new ArrayList<>(count);
+        int perPage = (count + pages - 1) / pages;
+        for (int i = 0; i < count; i++) {
+            int slot = i % perPage;
+            boolean checkbox = i % 5 == 4;
+            FieldRequest field = new FieldRequest();
+            field.setFieldName("field_" + i);
+            field.setLabel("Champ " + i);
+            field.setAssignedTo(signerIds.get(i % signerIds.size()));
+            field.setFieldType(checkbox ? "checkbox" : "text");
+            field.setPage(i / perPage);
+            field.setX(50 + (slot % 2) * 260);
+            field.setY(720 - ((slot / 2) * 30) % 680);
+            field.setWidth(checkbox ? 14 : 220);
+            field.setHeight(checkbox ? 14 : 20);
+            fields.add(field);
+        }
+        return fields;
+    }
+
+    /** Valeurs de la part {@code part} (sur {@code parts}) des champs, comme les envoie fillAndSign. */
+    static List<FieldDefinition> values(List<FieldRequest> fields, int part, int parts) {
+        List<FieldDefinition> values = new ArrayList<>();
+        for (int i = part; i < fields.size(); i += parts) {
+            FieldRequest field = fields.get(i);
+            boolean checkbox = "checkbox".equals(field.getFieldType());
+            values.add(FieldDefinition.builder()
+                    .fieldName(field.getFieldName())
+                    .assignedTo(field.getAssignedTo())
+                    .fieldType(field.getFieldType())
+                    .page(field.getPage())
+                    .currentValue(checkbox ? "true" : "Valeur " + i)
+                    .build());
+        }
+        return values;
+    }
+
+    static CertificationSignature certification() throws Exception {
+        return CertificationSignature.builder()
+                .privateKey(keyPair().getPrivate())
+                .certificate(certificate())
+                .signerName(SIGNER_NAME)
+                .permissionLevel(SignaturePermissionLevel.FORM_FILL)
+                .build();
+    }
+
+    static ApprovalSignature approval(List<FieldDefinition> values) throws Exception {
+        return ApprovalSignature.builder()
+                .privateKey(keyPair().getPrivate())
+                .certificate(certificate())
+                .signerName(SIGNER_NAME)
+                .fieldToLock(values.stream().map(FieldDefinition::getFieldName).toList())
+                .build();
+    }
+
+    /** Master non signé, tel que produit par createMasterPdf. */
+    static byte[] unsignedMaster(PdfBoxService service, byte[] original, List<FieldRequest> fields) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.createMasterPdf(new ByteArrayInputStream(original), fields, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Master certifié puis signé {@code priorSignatures} fois : la signature k remplit la part k
+     * des champs (sur {@code priorSignatures + 1}, la dernière restant pour le benchmark).
+     */
+    static byte[] signedMaster(PdfBoxService service, byte[] unsignedMaster, List<FieldRequest> fields,
+                               int priorSignatures) throws Exception {
+        byte[] master = sign(service, unsignedMaster, certification(), null);
+        for (int k = 0; k < priorSignatures; k++) {
+            List<FieldDefinition> values = values(fields, k, priorSignatures + 1);
+            master = sign(service, master, approval(values), values);
+        }
+        return master;
+    }
+
+    private static byte[] sign(PdfBoxService service, byte[] pdf, Signature signature,
+                               List<FieldDefinition> values) throws Exception {
+        // Incrémental : le flux de sortie reçoit le document complet (original + incrément)
+        ByteArrayOutputStream out = new ByteArrayOutputStream(pdf.length + 64 * 1024);
+        service.signPdf(new ByteArrayInputStream(pdf), signature, values, out);
+        return out.toByteArray();
+    }
+
+    /** Clé RSA 2048 et certificat auto-signé, comme SigningConfig ; générés une fois par JVM. */
+    private static synchronized KeyPair keyPair() throws Exception {
+        if (keyPair == null) {
+            KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA", "BC");
+            kpg.initialize(2048, new SecureRandom());
+            keyPair = kpg.generateKeyPair();
+        }
+        return keyPair;
+    }
+
+    private static synchronized X509Certificate certificate() throws Exception {
+        if (certificate == null) {
+            X500Name issuer = new X500Name("CN=PDF Forms Benchmarks, O=POC, C=FR");
+            Date from = new Date();
+            Date to = new Date(from.getTime() + 365L * 24 * 60 * 60 * 1000);
+            var builder = new JcaX509v3CertificateBuilder(issuer, BigInteger.ONE, from, to, issuer,
+                    keyPair().getPublic());
+            var contentSigner = new JcaContentSignerBuilder("SHA256withRSA")
+                    .setProvider("BC")
+                    .build(keyPair().getPrivate());
+            certificate = new JcaX509CertificateConverter()
+                    .setProvider("BC")
+                    .getCertificate(builder.build(contentSigner));
+        }
+        return certificate;
+    }
+
+    /**
+     * Destination des PDFs produits : compte les octets sans les conserver, pour que
+     * l'allocation mesurée soit celle de PDFBox et non celle d'un ByteArrayOutputStream.
+     */
+    static final class Sink extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
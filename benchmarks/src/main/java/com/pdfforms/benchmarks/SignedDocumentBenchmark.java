@@ -0,0 +1,78 @@
+package com.pdfforms.benchmarks;
+
+import com.pdfforms.dto.FieldRequest;
+import com.pdfforms.model.ApprovalSignature;
+import com.pdfforms.model.FieldDefinition;
+import com.pdfforms.service.PdfBoxService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Traitements d'un master déjà certifié et signé {@code priorSignatures} fois : analyse des champs,
+ * signature d'approbation suivante (remplissage + CMS + sauvegarde incrémentale) et aplatissement.
+ * Le coût de ces opérations croît avec le nombre d'incréments à relire.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class SignedDocumentBenchmark {
+
+    @Param({"1", "10", "50"})
+    public int pages;
+
+    @Param({"10", "100"})
+    public int fields;
+
+    @Param({"0", "5", "20"})
+    public int priorSignatures;
+
+    private PdfBoxService service;
+    private byte[] master;
+    private List<FieldDefinition> nextValues;
+    private ApprovalSignature approval;
+
+    @Setup
+    public void setUp() throws Exception {
+        service = PdfFixtures.pdfBoxService();
+        List<FieldRequest> fieldRequests = PdfFixtures.fieldRequests(pages, fields);
+        byte[] unsigned = PdfFixtures.unsignedMaster(service, PdfFixtures.originalPdf(pages), fieldRequests);
+        master = PdfFixtures.signedMaster(service, unsigned, fieldRequests, priorSignatures);
+        nextValues = PdfFixtures.values(fieldRequests, priorSignatures, priorSignatures + 1);
+        approval = PdfFixtures.approval(nextValues);
+    }
+
+    @Benchmark
+    public Object extractFields() throws Exception {
+        return service.extractFields(new ByteArrayInputStream(master));
+    }
+
+    @Benchmark
+    public long sign() throws Exception {
+        PdfFixtures.Sink out = new PdfFixtures.Sink();
+        service.signPdf(new ByteArrayInputStream(master), approval, nextValues, out);
+        return out.count;
+    }
+
+    @Benchmark
+    public long flattenPdf() throws Exception {
+        PdfFixtures.Sink out = new PdfFixtures.Sink();
+        service.flattenPdf(new ByteArrayInputStream(master), out);
+        return out.count;
+    }
+}
@@ -0,0 +1,411 @@
+package com.pdfforms.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.pdfforms.dto.FieldRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Test de charge de bout en bout par l'API HTTP : chaque utilisateur virtuel crée un workflow,
+ * le fait signer par chaque signataire dans l'ordre (document du signataire, PDF aplati,
+ * fill-and-sign), puis télécharge le PDF final.
+ * <p>
+ * Le serveur visé peut tourner sans MongoDB avec le profil {@code inmemory} :
+ * <pre>
+ * mvn -f backend spring-boot:run -Dspring-boot.run.profiles=inmemory
+ * java -cp target/benchmarks.jar com.pdfforms.benchmarks.WorkflowLoadTest \
+ *      --workflows 200 --concurrency 16 --signers 3 --pages 10 --fields 30
+ * </pre>
+ * Rapport : workflows terminés par minute, p50/p90/p99 par endpoint, et côté serveur
+ * (via /actuator/metrics) pic de heap, pauses GC et octets alloués pendant la mesure.
+ * Les 429 (contrôle d'admission) sont comptés et rejoués après le Retry-After.
+ */
+public final class WorkflowLoadTest {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final int MAX_PREPARING_POLLS = 300;
+    private static final int MAX_RETRIES = 20;
+
+    private final URI baseUrl;
+    private final int concurrency;
+    private final int signers;
+    private final int pages;
+    private final int fields;
+    private final byte[] originalPdf;
+    private final HttpClient client;
+
+    private Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    private WorkflowLoadTest(URI baseUrl, int concurrency, int signers, int pages, int fields) throws IOException {
+        this.baseUrl = baseUrl;
+        this.concurrency = concurrency;
+        this.signers = signers;
+        this.pages = pages;
+        this.fields = fields;
+        this.originalPdf = PdfFixtures.originalPdf(pages);
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newFixedThreadPool(Math.max(2, concurrency)))
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>(Map.of(
+                "url", "http://localhost:8080",
+                "workflows", "50",
+                "warmup", "5",
+                "concurrency", "8",
+                "signers", "3",
+                "pages", "5",
+                "fields", "15"));
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Option inattendue : " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+
+        WorkflowLoadTest test = new WorkflowLoadTest(URI.create(options.get("url")),
+                Integer.parseInt(options.get("concurrency")), Integer.parseInt(options.get("signers")),
+                Integer.parseInt(options.get("pages")), Integer.parseInt(options.get("fields")));
+        int warmup = Integer.parseInt(options.get("warmup"));
+        if (warmup > 0) {
+            System.out.printf("Échauffement : %d workflows...%n", warmup);
+            test.run(warmup);
+            test.endpoints = new ConcurrentHashMap<>();
+        }
+
+        ServerStats server = new ServerStats(test);
+        ObjectNode report = test.run(Integer.parseInt(options.get("workflows")), server);
+        report.set("options", JSON.valueToTree(options));
+        if (options.containsKey("result")) {
+            JSON.writerWithDefaultPrettyPrinter().writeValue(Path.of(options.get("result")).toFile(), report);
+            System.out.printf("Résultats écrits dans %s%n", options.get("result"));
+        }
+        System.exit(report.path("failedWorkflows").asInt() > 0 ? 1 : 0);
+    }
+
+    private void run(int workflows) throws Exception {
+        run(workflows, null);
+    }
+
+    private ObjectNode run(int workflows, ServerStats server) throws Exception {
+        AtomicInteger remaining = new AtomicInteger(workflows);
+        AtomicInteger failed = new AtomicInteger();
+        ExecutorService users = Executors.newFixedThreadPool(concurrency);
+        if (server != null) {
+            server.start();
+        }
+        long start = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int u = 0; u < concurrency; u++) {
+            futures.add(users.submit(() -> {
+                while (remaining.getAndDecrement() > 0) {
+                    try {
+                        time("workflow", this::workflow);
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                        System.err.println("Workflow en échec : " + e.getMessage());
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        users.shutdown();
+        if (server == null) {
+            return null;
+        }
+        server.stop();
+
+        int completed = workflows - failed.get();
+        ObjectNode report = JSON.createObjectNode();
+        report.put("elapsedSeconds", elapsedSeconds);
+        report.put("completedWorkflows", completed);
+        report.put("failedWorkflows", failed.get());
+        report.put("workflowsPerMinute", completed * 60 / elapsedSeconds);
+        System.out.printf("%n%d workflows terminés (%d en échec) en %.1f s : %.1f workflows/min%n",
+                completed, failed.get(), elapsedSeconds, completed * 60 / elapsedSeconds);
+        System.out.printf("%d utilisateurs, %d signataires, %d pages, %d champs par workflow%n%n",
+                concurrency, signers, pages, fields);
+
+        System.out.printf("%-16s %9s %8s %6s %9s %9s %9s %9s %8s%n",
+                "Endpoint", "Requêtes", "Erreurs", "429", "p50 ms", "p90 ms", "p99 ms", "max ms", "req/s");
+        ObjectNode byEndpoint = report.putObject("endpoints");
+        for (String name : List.of("create", "signer-document", "signer-pdf", "fill-and-sign", "download", "workflow")) {
+            Endpoint endpoint = endpoints.get(name);
+            if (endpoint == null) continue;
+            long[] latencies = endpoint.sorted();
+            System.out.printf("%-16s %9d %8d %6d %9.1f %9.1f %9.1f %9.1f %8.2f%n", name, latencies.length,
+                    endpoint.errors.get(), endpoint.rejected.get(), millis(latencies, 0.50), millis(latencies, 0.90),
+                    millis(latencies, 0.99), millis(latencies, 1.0), latencies.length / elapsedSeconds);
+            ObjectNode node = byEndpoint.putObject(name);
+            node.put("count", latencies.length);
+            node.put("errors", endpoint.errors.get());
+            node.put("rejected", endpoint.rejected.get());
+            node.put("p50Ms", millis(latencies, 0.50));
+            node.put("p90Ms", millis(latencies, 0.90));
+            node.put("p99Ms", millis(latencies, 0.99));
+            node.put("maxMs", millis(latencies, 1.0));
+            node.put("perSecond", latencies.length / elapsedSeconds);
+        }
+        report.set("server", server.report(elapsedSeconds));
+        return report;
+    }
+
+    /**
+     * Un workflow complet, signataires dans l'ordre.
+     */
+    private void workflow() throws Exception {
+        List<String> signerNames = IntStream.range(0, signers).mapToObj(i -> "Signataire " + (i + 1)).toList();
+        List<String> signerIds = signerNames.stream().map(name -> name.toLowerCase().replace(' ', '-')).toList();
+        List<FieldRequest> fieldRequests = PdfFixtures.fieldRequests(pages, fields, signerIds);
+
+        ObjectNode data = JSON.createObjectNode();
+        data.put("name", "Charge " + UUID.randomUUID());
+        var signerArray = data.putArray("signers");
+        for (int i = 0; i < signers; i++) {
+            signerArray.addObject().put("name", signerNames.get(i)).put("order", i + 1);
+        }
+        data.set("fields", JSON.valueToTree(fieldRequests));
+
+        JsonNode created = json(send("create", multipart(data)));
+        String workflowId = created.path("workflowId").asText();
+        String workflowPath = "/api/workflows/" + workflowId;
+
+        for (int i = 0; i < signers; i++) {
+            String signerId = signerIds.get(i);
+            JsonNode document = json(send("signer-document", get(workflowPath + "/signer/" + signerId)));
+            for (int poll = 0; "PREPARING".equals(document.path("documentStatus").asText()); poll++) {
+                if (poll >= MAX_PREPARING_POLLS) {
+                    throw new IOException("PDF aplati toujours en préparation : " + workflowId);
+                }
+                Thread.sleep(100);
+                document = json(send("signer-document", get(workflowPath + "/signer/" + signerId)));
+            }
+            send("signer-pdf", get(document.path("pdfUrl").asText()));
+
+            ObjectNode request = JSON.createObjectNode();
+            request.put("signerName", signerNames.get(i));
+            request.put("signerId", signerId);
+            ObjectNode values = request.putObject("fields");
+            for (JsonNode field : document.path("fields")) {
+                values.put(field.path("fieldName").asText(),
+                        "checkbox".equals(field.path("fieldType").asText()) ? "true" : "Valeur " + signerId);
+            }
+            send("fill-and-sign", HttpRequest.newBuilder(baseUrl.resolve(workflowPath + "/fill-and-sign"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(JSON.writeValueAsBytes(request))));
+        }
+
+        send("download", get(workflowPath + "/download"));
+    }
+
+    /**
+     * Envoie la requête en rejouant les 429 après le Retry-After ; toute autre erreur fait échouer le workflow.
+     */
+    private byte[] send(String endpointName, HttpRequest.Builder request) throws Exception {
+        Endpoint endpoint = endpoint(endpointName);
+        HttpRequest built = request.timeout(Duration.ofMinutes(5)).build();
+        for (int attempt = 0; ; attempt++) {
+            long start = System.nanoTime();
+            HttpResponse<byte[]> response = client.send(built, HttpResponse.BodyHandlers.ofByteArray());
+            long nanos = System.nanoTime() - start;
+            int status = response.statusCode();
+            if (status == 429 && attempt < MAX_RETRIES) {
+                endpoint.rejected.incrementAndGet();
+                long retryAfter = response.headers().firstValueAsLong("Retry-After").orElse(1);
+                Thread.sleep(TimeUnit.SECONDS.toMillis(retryAfter));
+                continue;
+            }
+            if (status >= 400) {
+                endpoint.errors.incrementAndGet();
+                throw new IOException("%s : HTTP %d %s".formatted(endpointName, status,
+                        new String(response.body(), StandardCharsets.UTF_8)));
+            }
+            endpoint.record(nanos);
+            return response.body();
+        }
+    }
+
+    private <E extends Exception> void time(String endpointName, Call<E> call) throws E {
+        long start = System.nanoTime();
+        call.run();
+        endpoint(endpointName).record(System.nanoTime() - start);
+    }
+
+    @FunctionalInterface
+    private interface Call<E extends Exception> {
+        void run() throws E;
+    }
+
+    private Endpoint endpoint(String name) {
+        return endpoints.computeIfAbsent(name, key -> new Endpoint());
+    }
+
+    private HttpRequest.Builder get(String path) {
+        return HttpRequest.newBuilder(baseUrl.resolve(path)).GET();
+    }
+
+    private HttpRequest.Builder multipart(JsonNode data) throws IOException {
+        String boundary = "----pdf-forms-" + UUID.randomUUID();
+        ByteArrayOutputStream body = new ByteArrayOutputStream(originalPdf.length + 8192);
+        body.write(("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"charge.pdf\"\r\n"
+                + "Content-Type: application/pdf\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.write(originalPdf);
+        body.write(("\r\n--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"data\"\r\n"
+                + "Content-Type: application/json\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.write(JSON.writeValueAsBytes(data));
+        body.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return HttpRequest.newBuilder(baseUrl.resolve("/api/workflows"))
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()));
+    }
+
+    private static JsonNode json(byte[] body) throws IOException {
+        return JSON.readTree(body);
+    }
+
+    private static double millis(long[] sorted, double quantile) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    /**
+     * Latences (ns) et erreurs d'un endpoint.
+     */
+    private static final class Endpoint {
+        private long[] latencies = new long[1024];
+        private int count;
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+
+        synchronized void record(long nanos) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+        }
+
+        synchronized long[] sorted() {
+            long[] copy = Arrays.copyOf(latencies, count);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+
+    /**
+     * Heap et GC du serveur, lus sur /actuator/metrics : compteurs relevés avant et après la mesure,
+     * heap utilisé échantillonné toutes les 500 ms pour en garder le pic.
+     */
+    private static final class ServerStats {
+        private final WorkflowLoadTest test;
+        private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        private final AtomicLong heapPeak = new AtomicLong();
+        private Map<String, Double> before;
+        private Map<String, Double> after;
+
+        ServerStats(WorkflowLoadTest test) {
+            this.test = test;
+        }
+
+        void start() {
+            before = counters();
+            sampler.scheduleAtFixedRate(() -> {
+                double heap = metric("jvm.memory.used?tag=area:heap", "VALUE");
+                heapPeak.accumulateAndGet((long) heap, Math::max);
+            }, 0, 500, TimeUnit.MILLISECONDS);
+        }
+
+        void stop() {
+            sampler.shutdownNow();
+            after = counters();
+        }
+
+        ObjectNode report(double elapsedSeconds) {
+            ObjectNode node = JSON.createObjectNode();
+            if (Double.isNaN(before.get("gcCount"))) {
+                System.out.println("\nMétriques serveur indisponibles (/actuator/metrics).");
+                return node;
+            }
+            double gcCount = after.get("gcCount") - before.get("gcCount");
+            double gcSeconds = after.get("gcSeconds") - before.get("gcSeconds");
+            double allocated = after.get("allocated") - before.get("allocated");
+            node.put("heapPeakBytes", heapPeak.get());
+            node.put("heapMaxBytes", after.get("heapMax"));
+            node.put("gcPauses", gcCount);
+            node.put("gcPauseSeconds", gcSeconds);
+            node.put("gcPauseMaxSeconds", after.get("gcMax"));
+            node.put("allocatedBytes", allocated);
+            System.out.printf("%nServeur : heap max observé %.0f Mo / %.0f Mo, %.0f pauses GC (%.2f s, %.1f %% du temps,"
+                            + " max %.0f ms), %.0f Mo alloués (%.0f Mo/s)%n",
+                    heapPeak.get() / 1048576.0, after.get("heapMax") / 1048576.0, gcCount, gcSeconds,
+                    gcSeconds * 100 / elapsedSeconds, after.get("gcMax") * 1000,
+                    allocated / 1048576.0, allocated / 1048576.0 / elapsedSeconds);
+            return node;
+        }
+
+        private Map<String, Double> counters() {
+            Map<String, Double> values = new LinkedHashMap<>();
+            values.put("gcCount", metric("jvm.gc.pause", "COUNT"));
+            values.put("gcSeconds", metric("jvm.gc.pause", "TOTAL_TIME"));
+            values.put("gcMax", metric("jvm.gc.pause", "MAX"));
+            values.put("allocated", metric("jvm.gc.memory.allocated", "COUNT"));
+            values.put("heapMax", metric("jvm.memory.max?tag=area:heap", "VALUE"));
+            return values;
+        }
+
+        /** Valeur de {@code statistic} pour la métrique, NaN si indisponible. */
+        private double metric(String name, String statistic) {
+            try {
+                HttpResponse<byte[]> response = test.client.send(test.get("/actuator/metrics/" + name).build(),
+                        HttpResponse.BodyHandlers.ofByteArray());
+                if (response.statusCode() != 200) {
+                    return Double.NaN;
+                }
+                for (JsonNode measurement : json(response.body()).path("measurements")) {
+                    if (statistic.equals(measurement.path("statistic").asText())) {
+                        return measurement.path("value").asDouble();
+                    }
+                }
+            } catch (IOException e) {
+                return Double.NaN;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Double.NaN;
+        }
+    }
+}
@@ -1,17 +1,79 @@
 const API_BASE = "/api";
 
+const CHUNK_SIZE = 5 * 1024 * 1024;
+const MAX_RETRIES = 5;
+
+/** Upload déjà envoyé pour un File : analyse puis création réutilisent le même. */
+const uploads = new WeakMap();
+
+/**
+ * Envoie le fichier par morceaux de 5 Mo (reprise à l'offset reçu par le serveur en cas
+ * de coupure) et retourne l'identifiant de l'upload.
+ * @param {File} file - Le fichier PDF
+ * @returns {Promise<string>} uploadId
+ */
+export function uploadFile(file) {
+  if (!uploads.has(file)) {
+    const upload = sendChunks(file);
+    upload.catch(() => uploads.delete(file));
+    uploads.set(file, upload);
+  }
+  return uploads.get(file);
+}
+
+async function sendChunks(file) {
+  const res = await fetch(`${API_BASE}/uploads`, {
+    method: "POST",
+    headers: { "Content-Type": "application/json" },
+    body: JSON.stringify({ fileName: file.name, length: file.size }),
+  });
+  if (!res.ok) throw new Error(`Erreur upload : ${res.status}`);
+  let { uploadId, offset } = await res.json();
+
+  let failures = 0;
+  while (offset < file.size) {
+    const end = Math.min(offset + CHUNK_SIZE, file.size);
+    try {
+      const chunk = await fetch(`${API_BASE}/uploads/${uploadId}`, {
+        method: "PUT",
+        headers: {
+          "Content-Type": "application/octet-stream",
+          "Content-Range": `bytes ${offset}-${end - 1}/${file.size}`,
+        },
+        body: file.slice(offset, end),
+      });
+      if (chunk.ok) {
+        offset = (await chunk.json()).offset;
+        failures = 0;
+        continue;
+      }
+      if (chunk.status !== 409 && chunk.status < 500) {
+        throw Object.assign(new Error(`Erreur upload : ${chunk.status}`), { fatal: true });
+      }
+    } catch (err) {
+      if (err.fatal) throw err;
+    }
+
+    // Coupure ou conflit : on relit l'offset reçu par le serveur avant de reprendre
+    if (++failures > MAX_RETRIES) throw new Error("Upload interrompu.");
+    await new Promise((resolve) => setTimeout(resolve, 500 * 2 ** failures));
+    const status = await fetch(`${API_BASE}/uploads/${uploadId}`).catch(() => null);
+    if (status?.ok) offset = (await status.json()).offset;
+  }
+
+  return uploadId;
+}
+
 /**
  * Analyse un PDF et retourne les champs AcroForm existants.
  * @param {File} file - Le fichier PDF
  * @returns {{ fields: Array }} Liste des champs détectés (coords en points PDF)
  */
 export async function analyzePdf(file) {
-  const formData = new FormData();
-  formData.append("file", file);
+  const uploadId = await uploadFile(file);
 
-  const res = await fetch(`${API_BASE}/workflows/analyze-pdf`, {
+  const res = await fetch(`${API_BASE}/workflows/analyze-pdf?uploadId=${uploadId}`, {
     method: "POST",
-    body: formData,
   });
 
   if (!res.ok) throw new Error(`Erreur analyse PDF : ${res.status}`);
@@ -24,26 +86,26 @@ export async function analyzePdf(file) {
  * @param {Object} data - { name, signers: [{name, order}], fields: [{...}] }
  */
 export async function createWorkflow(file, data) {
-  const formData = new FormData();
-  formData.append("file", file);
-  formData.append("data", JSON.stringify(data));
+  const uploadId = await uploadFile(file);
 
-  const res = await fetch(`${API_BASE}/workflows`, {
+  const res = await fetch(`${API_BASE}/workflows?uploadId=${uploadId}`, {
     method: "POST",
-    body: formData,
+    headers: { "Content-Type": "application/json" },
+    body: JSON.stringify(data),
   });
-
   if (!res.ok) {
     const text = await res.text();
     throw new Error(text || `Erreur ${res.status}`);
   }
 
+  // L'upload est supprimé côté serveur une fois le workflow créé
+  uploads.delete(file);
   return res.json();
 }
 
 /**
  * Récupère le document pour un signataire.
- * Retourne { workflowId, signerName, signerId, pdfBase64, fields }.
+ * Retourne { workflowId, signerName, signerId, pdfUrl, pdfRevision, fields }.
  * Lance une erreur avec status=403 si ce n'est pas son tour.
  */
 export async function getSignerDocument(workflowId, signerId) {
@@ -68,6 +130,19 @@ export async function getSignerDocument(workflowId, signerId) {
   return res.json();
 }
 
+/**
+ * Télécharge le PDF aplati à partir de l'URL (estampillée par révision) fournie par getSignerDocument.
+ * La réponse est immuable : le navigateur la sert depuis son cache lors d'une réouverture.
+ * @param {string} pdfUrl
+ * @returns {Promise<ArrayBuffer>}
+ */
+export async function fetchSignerPdf(pdfUrl) {
+  const res = await fetch(pdfUrl);
+
+  if (!res.ok) throw new Error(`Erreur chargement PDF : ${res.status}`);
+  return res.arrayBuffer();
+}
+
 /**
  * Remplit les champs puis signe le document en une seule opération.
  * @param {string} workflowId
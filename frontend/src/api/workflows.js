@@ -1,11 +1,35 @@
 const API_BASE = '/api'
 
-export async function fetchWorkflows() {
-  const res = await fetch(`${API_BASE}/workflows`)
+/**
+ * Une page de la liste des workflows (du plus récent au plus ancien).
+ * Filtres optionnels : status, q (début du nom), signer ; cursor = nextCursor de la page précédente.
+ * La première page porte aussi total et counts (nombre par statut, hors filtre de statut).
+ */
+export async function fetchWorkflows({ status, q, signer, cursor, size } = {}) {
+  const params = new URLSearchParams()
+  if (status) params.set('status', status)
+  if (q) params.set('q', q)
+  if (signer) params.set('signer', signer)
+  if (cursor) params.set('cursor', cursor)
+  if (size) params.set('size', size)
+  const res = await fetch(`${API_BASE}/workflows?${params}`)
   if (!res.ok) throw new Error(`Erreur ${res.status}`)
   return res.json()
 }
 
+/**
+ * Abonnement aux changements de workflows (Server-Sent Events).
+ * onWorkflow reçoit le résumé à jour d'un workflow créé ou modifié ; onReset signale que des
+ * événements ont pu être perdus et que la liste doit être rechargée. Retourne la fonction de désabonnement.
+ * EventSource se reconnecte seul et renvoie Last-Event-ID pour récupérer les événements manqués.
+ */
+export function subscribeWorkflowEvents({ onWorkflow, onReset }) {
+  const source = new EventSource(`${API_BASE}/workflows/events`)
+  source.addEventListener('workflow', (event) => onWorkflow(JSON.parse(event.data)))
+  source.addEventListener('reset', () => onReset())
+  return () => source.close()
+}
+
 export async function downloadWorkflowPdf(id, filename) {
   const res = await fetch(`${API_BASE}/workflows/${id}/download`)
   if (!res.ok) throw new Error(`Erreur ${res.status}`)
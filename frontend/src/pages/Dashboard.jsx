@@ -1,15 +1,16 @@
-import { useState } from 'react'
-import { useQuery } from '@tanstack/react-query'
+import { useEffect, useState } from 'react'
+import { keepPreviousData, useInfiniteQuery, useQueryClient } from '@tanstack/react-query'
 import { useNavigate } from 'react-router-dom'
 
 import { format, formatDistanceToNow } from 'date-fns'
 import { fr } from 'date-fns/locale'
-import { FileText, FolderOpen, Clock, Loader2, PenLine, CheckCircle2, Download, ExternalLink, PlusCircle } from 'lucide-react'
+import { FileText, FolderOpen, Clock, Loader2, PenLine, CheckCircle2, Download, ExternalLink, PlusCircle, Search } from 'lucide-react'
 import { Card } from '../components/ui/card'
 import { Badge } from '../components/ui/badge'
 import { Button } from '../components/ui/button'
+import { Input } from '../components/ui/input'
 import { Tabs, TabsList, TabsTrigger } from '../components/ui/tabs'
-import { fetchWorkflows, downloadWorkflowPdf } from '../api/workflows'
+import { fetchWorkflows, downloadWorkflowPdf, subscribeWorkflowEvents } from '../api/workflows'
 
 const STATUS_BADGE = {
   DRAFT: <Badge className="bg-slate-100 text-slate-600">Brouillon</Badge>,
@@ -43,8 +44,17 @@ function WorkflowCard({ workflow }) {
 
   return (
     <Card className={`p-3 space-y-2 border-l-4 ${STATUS_BORDER[workflow.status]}`}>
-      {/* Ligne 1 : nom + badge + bouton télécharger */}
+      {/* Ligne 1 : vignette + nom + badge + bouton télécharger */}
       <div className="flex items-center gap-2">
+        {workflow.thumbnailUrl && (
+          <img
+            src={workflow.thumbnailUrl}
+            alt=""
+            loading="lazy"
+            className="h-8 w-6 object-cover object-top rounded-sm border border-slate-200 shrink-0"
+            onError={(e) => { e.currentTarget.style.display = 'none' }}
+          />
+        )}
         <p className="font-medium text-sm text-slate-900 truncate flex-1">{workflow.name}</p>
         {STATUS_BADGE[workflow.status]}
         {workflow.status === 'COMPLETED' && (
@@ -113,30 +123,136 @@ function EmptyState() {
 }
 
 const TAB_ALL = 'all'
+const PAGE_SIZE = 20
+
+/** Valeur recopiée après `delay` ms sans changement (évite une requête par frappe). */
+function useDebounced(value, delay) {
+  const [debounced, setDebounced] = useState(value)
+  useEffect(() => {
+    const timer = setTimeout(() => setDebounced(value), delay)
+    return () => clearTimeout(timer)
+  }, [value, delay])
+  return debounced
+}
+
+/** Le workflow satisfait-il les filtres de la liste (hors signataire, normalisé côté serveur) ? */
+function matchesFilters(workflow, filters) {
+  if (filters.status && workflow.status !== filters.status) return false
+  if (filters.q && !workflow.name.toLowerCase().startsWith(filters.q.toLowerCase())) return false
+  return true
+}
+
+/**
+ * Applique le résumé reçu à une liste en cache : le workflow est retiré de sa position et, s'il
+ * satisfait toujours les filtres, replacé en tête (il vient d'être modifié). Les compteurs par
+ * statut de la première page suivent. Retourne null si le cache ne peut pas être mis à jour sur place.
+ */
+function applyWorkflowEvent(data, filters, workflow, previousStatus) {
+  const isNew = workflow.createdAt === workflow.updatedAt
+  if (!isNew && previousStatus === undefined) return null
+
+  const pages = data.pages.map((page) => ({ ...page, items: page.items.filter((w) => w.id !== workflow.id) }))
+  const first = pages[0]
+  if (matchesFilters(workflow, filters)) {
+    first.items = [workflow, ...first.items]
+  }
+  if (first.counts && matchesFilters(workflow, { q: filters.q })) {
+    const counts = { ...first.counts }
+    if (previousStatus) counts[previousStatus] -= 1
+    counts[workflow.status] = (counts[workflow.status] ?? 0) + 1
+    first.counts = counts
+    first.total = filters.status
+      ? counts[filters.status]
+      : Object.values(counts).reduce((sum, n) => sum + n, 0)
+  }
+  return { ...data, pages }
+}
+
+/**
+ * Tient à jour les listes de workflows en cache à partir des événements du serveur, sans polling.
+ * Les listes filtrées par signataire, ou dont l'état précédent du workflow est inconnu, sont
+ * rechargées (une fois par seconde au plus).
+ */
+function useWorkflowEvents() {
+  const queryClient = useQueryClient()
+  useEffect(() => {
+    let timer = null
+    const stale = new Set()
+    const invalidateLater = (filters) => {
+      stale.add(filters ? JSON.stringify(filters) : null)
+      if (timer) return
+      timer = setTimeout(() => {
+        timer = null
+        const keys = [...stale]
+        stale.clear()
+        if (keys.includes(null)) {
+          queryClient.invalidateQueries({ queryKey: ['workflows'] })
+        } else {
+          keys.forEach((key) => queryClient.invalidateQueries({ queryKey: ['workflows', JSON.parse(key)], exact: true }))
+        }
+      }, 1_000)
+    }
+
+    const unsubscribe = subscribeWorkflowEvents({
+      onWorkflow: (workflow) => {
+        const cached = queryClient.getQueriesData({ queryKey: ['workflows'] })
+        // Statut connu avant l'événement, cherché dans toutes les listes en cache
+        let previousStatus
+        for (const [, data] of cached) {
+          const found = data?.pages.flatMap((page) => page.items).find((w) => w.id === workflow.id)
+          if (found) {
+            previousStatus = found.status
+            break
+          }
+        }
+        for (const [queryKey, data] of cached) {
+          if (!data) continue
+          const filters = queryKey[1] ?? {}
+          const next = filters.signer ? null : applyWorkflowEvent(data, filters, workflow, previousStatus)
+          if (next === null) {
+            invalidateLater(filters)
+          } else {
+            queryClient.setQueryData(queryKey, next)
+          }
+        }
+      },
+      onReset: () => invalidateLater(null),
+    })
+    return () => {
+      clearTimeout(timer)
+      unsubscribe()
+    }
+  }, [queryClient])
+}
 
 export default function Dashboard() {
   const navigate = useNavigate()
   const [activeTab, setActiveTab] = useState(TAB_ALL)
+  const [search, setSearch] = useState('')
+  const [signer, setSigner] = useState('')
+  const filters = {
+    status: activeTab === TAB_ALL ? undefined : activeTab,
+    q: useDebounced(search.trim(), 300),
+    signer: useDebounced(signer.trim(), 300),
+  }
 
-  const { data: workflows = [], isLoading, isError } = useQuery({
-    queryKey: ['workflows'],
-    queryFn: fetchWorkflows,
-    staleTime: 5_000,
-    refetchOnWindowFocus: true,
+  // Pagination par curseur côté serveur, chaque page bornée à PAGE_SIZE workflows lus sur l'index
+  // (updatedAt, _id). Pas de polling : les changements arrivent par useWorkflowEvents.
+  useWorkflowEvents()
+  const { data, isLoading, isError, hasNextPage, fetchNextPage, isFetchingNextPage } = useInfiniteQuery({
+    queryKey: ['workflows', filters],
+    queryFn: ({ pageParam }) => fetchWorkflows({ ...filters, cursor: pageParam, size: PAGE_SIZE }),
+    initialPageParam: null,
+    getNextPageParam: (lastPage) => lastPage.nextCursor ?? undefined,
+    placeholderData: keepPreviousData,
+    staleTime: Infinity,
+    refetchOnWindowFocus: false,
   })
 
-  const sorted = [...workflows].sort(
-    (a, b) => new Date(b.updatedAt) - new Date(a.updatedAt)
-  )
-
-  const counts = {
-    IN_PROGRESS: sorted.filter((w) => w.status === 'IN_PROGRESS').length,
-    COMPLETED:   sorted.filter((w) => w.status === 'COMPLETED').length,
-    DRAFT:       sorted.filter((w) => w.status === 'DRAFT').length,
-  }
-
-  const filtered =
-    activeTab === TAB_ALL ? sorted : sorted.filter((w) => w.status === activeTab)
+  const workflows = data?.pages.flatMap((page) => page.items) ?? []
+  const counts = data?.pages[0]?.counts ?? {}
+  const totalAll = Object.values(counts).reduce((sum, n) => sum + n, 0)
+  const filtering = filters.q || filters.signer
 
   if (isLoading) {
     return (
@@ -168,32 +284,58 @@ export default function Dashboard() {
         </Button>
       </div>
 
-      {sorted.length === 0 ? (
+      {totalAll === 0 && !filtering ? (
         <EmptyState />
       ) : (
         <div className="space-y-4">
-          <Tabs value={activeTab} onValueChange={setActiveTab}>
-            <TabsList>
-              <TabsTrigger value={TAB_ALL}>Tous ({sorted.length})</TabsTrigger>
-              <TabsTrigger value="IN_PROGRESS">En cours ({counts.IN_PROGRESS})</TabsTrigger>
-              <TabsTrigger value="COMPLETED">Complétés ({counts.COMPLETED})</TabsTrigger>
-              {counts.DRAFT > 0 && (
-                <TabsTrigger value="DRAFT">Brouillons ({counts.DRAFT})</TabsTrigger>
-              )}
-            </TabsList>
-          </Tabs>
+          <div className="flex flex-wrap items-center gap-3">
+            <Tabs value={activeTab} onValueChange={setActiveTab}>
+              <TabsList>
+                <TabsTrigger value={TAB_ALL}>Tous ({totalAll})</TabsTrigger>
+                <TabsTrigger value="IN_PROGRESS">En cours ({counts.IN_PROGRESS ?? 0})</TabsTrigger>
+                <TabsTrigger value="COMPLETED">Complétés ({counts.COMPLETED ?? 0})</TabsTrigger>
+                {counts.DRAFT > 0 && (
+                  <TabsTrigger value="DRAFT">Brouillons ({counts.DRAFT})</TabsTrigger>
+                )}
+              </TabsList>
+            </Tabs>
+            <div className="relative flex-1 min-w-40">
+              <Search size={14} className="absolute left-2.5 top-1/2 -translate-y-1/2 text-slate-400" />
+              <Input
+                value={search}
+                onChange={(e) => setSearch(e.target.value)}
+                placeholder="Nom du workflow…"
+                className="pl-8"
+              />
+            </div>
+            <Input
+              value={signer}
+              onChange={(e) => setSigner(e.target.value)}
+              placeholder="Signataire…"
+              className="w-40"
+            />
+          </div>
 
-          {filtered.length === 0 ? (
+          {workflows.length === 0 ? (
             <p className="text-center text-slate-400 py-12 text-sm">
               Aucun workflow dans cette catégorie.
             </p>
           ) : (
             <div className="grid gap-3">
-              {filtered.map((w) => (
+              {workflows.map((w) => (
                 <WorkflowCard key={w.id} workflow={w} />
               ))}
             </div>
           )}
+
+          {hasNextPage && (
+            <div className="flex justify-center">
+              <Button variant="outline" size="sm" disabled={isFetchingNextPage} onClick={() => fetchNextPage()}>
+                {isFetchingNextPage && <Loader2 size={14} className="animate-spin" />}
+                Afficher plus
+              </Button>
+            </div>
+          )}
         </div>
       )}
     </div>
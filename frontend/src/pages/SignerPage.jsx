@@ -3,9 +3,12 @@ import { useParams } from 'react-router-dom'
 import PDFCanvas from '../components/PDFCanvas'
 import FieldOverlay from '../components/FieldOverlay'
 import SignaturePanel from '../components/SignaturePanel'
-import { getSignerDocument, fillAndSign, downloadFinalPdf } from '../api/workflowApi'
+import { getSignerDocument, fetchSignerPdf, fillAndSign, downloadFinalPdf } from '../api/workflowApi'
 import { AlertTriangle, Loader2, FileSignature, CheckCircle, Download } from 'lucide-react'
 
+// Délai entre deux relectures tant que le PDF aplati est en préparation côté serveur
+const PREPARING_RETRY_MS = 1500
+
 export default function SignerPage() {
   const { workflowId, signerId } = useParams()
 
@@ -18,18 +21,22 @@ export default function SignerPage() {
 
   useEffect(() => {
     let cancelled = false
+    let retryTimer = null
 
     async function load() {
-      setStatus('loading')
       setErrorMessage('')
       try {
         const data = await getSignerDocument(workflowId, signerId)
         if (cancelled) return
+        if (data.documentStatus === 'PREPARING') {
+          setStatus('preparing')
+          retryTimer = setTimeout(load, PREPARING_RETRY_MS)
+          return
+        }
         setDocData(data)
-        const binary = atob(data.pdfBase64)
-        const bytes = new Uint8Array(binary.length)
-        for (let i = 0; i < binary.length; i++) bytes[i] = binary.charCodeAt(i)
-        setPdfData(bytes.buffer)
+        const buffer = await fetchSignerPdf(data.pdfUrl)
+        if (cancelled) return
+        setPdfData(buffer)
         setStatus('ready')
       } catch (err) {
         if (cancelled) return
@@ -38,8 +45,12 @@ export default function SignerPage() {
       }
     }
 
+    setStatus('loading')
     load()
-    return () => { cancelled = true }
+    return () => {
+      cancelled = true
+      clearTimeout(retryTimer)
+    }
   }, [workflowId, signerId])
 
   // Initialise les valeurs par défaut pour checkbox/radio dès que docData est disponible
@@ -79,14 +90,16 @@ export default function SignerPage() {
   }, [docData, fieldValues])
 
   // Chargement
-  if (status === 'loading') {
+  if (status === 'loading' || status === 'preparing') {
     return (
       <div className="min-h-screen bg-slate-50 flex items-center justify-center">
         <div className="flex flex-col items-center gap-3">
           <div className="w-12 h-12 rounded-2xl bg-indigo-50 flex items-center justify-center">
             <Loader2 size={24} className="animate-spin text-indigo-500" />
           </div>
-          <p className="text-sm text-slate-500">Chargement du document…</p>
+          <p className="text-sm text-slate-500">
+            {status === 'preparing' ? 'Préparation du document…' : 'Chargement du document…'}
+          </p>
         </div>
       </div>
     )